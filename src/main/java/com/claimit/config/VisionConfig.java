@@ -0,0 +1,41 @@
+package com.claimit.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import com.google.api.gax.grpc.ChannelPoolSettings;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import com.google.cloud.vision.v1.ImageAnnotatorSettings;
+
+@Configuration
+public class VisionConfig {
+
+	/**
+	 * Creates the single Vision client shared by all requests. The client owns a
+	 * pool of gRPC channels, so credentials are loaded and TLS is negotiated once
+	 * instead of on every upload. The client is closed when the context shuts
+	 * down.
+	 *
+	 * @param channelPoolSize the number of gRPC channels to keep open.
+	 * @return the shared ImageAnnotatorClient.
+	 * @throws IOException if the client cannot be created.
+	 */
+	@Lazy
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "claimit.vision.mode", havingValue = "google", matchIfMissing = true)
+	public ImageAnnotatorClient imageAnnotatorClient(
+			@Value("${claimit.vision.channel-pool-size:2}") int channelPoolSize) throws IOException {
+		InstantiatingGrpcChannelProvider channelProvider = ImageAnnotatorSettings.defaultGrpcTransportProviderBuilder()
+				.setChannelPoolSettings(ChannelPoolSettings.staticallySized(channelPoolSize)).build();
+		ImageAnnotatorSettings settings = ImageAnnotatorSettings.newBuilder().setTransportChannelProvider(channelProvider)
+				.build();
+		return ImageAnnotatorClient.create(settings);
+	}
+
+}
@@ -11,9 +11,25 @@ public class Constants {
 	public static final String SUCESSFULLY_RETRIVED_DATA = "Succesfully retrived data.";
 	public static final String NODATA = "No data.";
 	public static final String DATA = "Data";
+	public static final String NEXT_AFTER = "NextAfter";
+	public static final String NEXT_AFTER_HEADER = "X-Next-After";
+	public static final String ITEM_NOT_FOUND = "Item not found.";
+	public static final String ITEM_ACCEPTED_FOR_ENRICHMENT = "Item accepted, details will be available shortly.";
 
 	public static final Object ALREADY_EXISTS = "Already exists";
 	public static final String COUNT = "Count";
 	public static final Object SUCESSFULLY_DELETED = "Sucessfully deleted";
 
+	public static final String ITEM_IMAGE_URL = "/items/%d/image?size=THUMBNAIL";
+
+	/**
+	 * Builds the thumbnail URL of an item, relative to the API base path. Clients
+	 * can request other sizes through the size parameter.
+	 * 
+	 * @return the URL, or null when the item has no image.
+	 */
+	public static String itemImageUrl(int itemId, String imageHash) {
+		return imageHash == null ? null : String.format(ITEM_IMAGE_URL, itemId);
+	}
+
 }
\ No newline at end of file
@@ -1,14 +1,23 @@
 package com.claimit.controller;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -17,16 +26,22 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.claimit.constants.ClaimConstants;
 import com.claimit.constants.Constants;
+import com.claimit.dto.ImageRendition;
 import com.claimit.dto.ItemDTO;
+import com.claimit.dto.ItemImageDTO;
 import com.claimit.dto.ItemStatus;
 import com.claimit.dto.ItemStatusCountDTO;
+import com.claimit.dto.ItemSummaryView;
 import com.claimit.dto.ItemsSearchDTO;
-import com.claimit.entity.Items;
 import com.claimit.entity.error.ErrorDetails;
+import com.claimit.service.ItemExportService;
 import com.claimit.service.ItemsService;
+import com.claimit.utils.ImageUtils;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -37,9 +52,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 @RequestMapping("/items")
 public class ItemsController {
 
+	private static final long IMAGE_CACHE_DAYS = 30;
+
+	private static final int DEFAULT_SIMILAR_LIMIT = 20;
+
 	@Autowired
 	private ItemsService itemsService;
 
+	@Autowired
+	private ItemExportService itemExportService;
+
 	public ItemsController(ItemsService itemsService) {
 		this.itemsService = itemsService;
 	}
@@ -58,7 +80,12 @@ public class ItemsController {
 	 *                     upload, if applicable.
 	 * @param editedLabels (Optional) A list of manually edited labels provided by
 	 *                     the user.
-	 * @return A ResponseEntity containing a map of detected or edited labels.
+	 * @param async        (Optional) When true the item is saved as
+	 *                     PENDING_ENRICHMENT and its ID is returned immediately;
+	 *                     labels are detected in the background and can be polled
+	 *                     from /items/{itemId}/enrichment.
+	 * @return A ResponseEntity containing a map of detected or edited labels, or
+	 *         the ID of the pending item in async mode.
 	 * @throws IOException If an error occurs while processing the image.
 	 */
 	@ResponseStatus(HttpStatus.OK)
@@ -72,11 +99,40 @@ public class ItemsController {
 	@PostMapping("/upload")
 	public ResponseEntity<Map<String, Object>> uploadFoundObject(@RequestParam("image") MultipartFile file,
 			@RequestParam(value = "orgId", required = false) String orgId,
-			@RequestParam(value = "editedLabels", required = false) List<String> editedLabels) throws IOException {
+			@RequestParam(value = "editedLabels", required = false) List<String> editedLabels,
+			@RequestParam(value = "async", defaultValue = "false") boolean async) throws IOException {
+		if (async) {
+			return ResponseEntity.status(HttpStatus.ACCEPTED)
+					.body(itemsService.detectLabelsAsync(file, orgId, editedLabels));
+		}
 		Map<String, Object> labels = itemsService.detectLabels(file, orgId, editedLabels);
 		return ResponseEntity.ok(labels);
 	}
 
+	/**
+	 * Returns the enrichment state of an item uploaded in async mode.
+	 *
+	 * The status stays PENDING_ENRICHMENT while the image is being analysed. Once
+	 * it changes, the detected title, description, colour and unique ID are
+	 * included.
+	 *
+	 * @param itemId The ID of the uploaded item.
+	 * @return A ResponseEntity containing the item status and, when enriched, its
+	 *         details.
+	 */
+	@ResponseStatus(HttpStatus.OK)
+	@Operation(summary = "poll enrichment of an uploaded item", responses = {
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_200, description = ClaimConstants.RESPONSE_CODE_200_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ItemsService.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_204, description = ClaimConstants.RESPONSE_CODE_204_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_400, description = ClaimConstants.RESPONSE_CODE_400_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_422, description = ClaimConstants.RESPONSE_CODE_422_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_429, description = ClaimConstants.RESPONSE_CODE_429_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_503, description = ClaimConstants.RESPONSE_CODE_503_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))) })
+	@GetMapping("/{itemId}/enrichment")
+	public ResponseEntity<Map<String, Object>> getEnrichmentStatus(@PathVariable int itemId) {
+		return ResponseEntity.ok(itemsService.getEnrichmentStatus(itemId));
+	}
+
 	/**
 	 * Uploads an image for preview and performs label detection.
 	 *
@@ -184,6 +240,12 @@ public class ItemsController {
 	 * returns items organized by their respective dates, enabling easy viewing of
 	 * items added over time.
 	 * 
+	 * Items are returned one page at a time, newest first. When more items exist,
+	 * the X-Next-After response header holds the value to pass as after for the
+	 * next page.
+	 * 
+	 * @param after (Optional) The ID of the last item of the previous page.
+	 * @param limit (Optional) The page size, 50 by default and at most 500.
 	 * @return A ResponseEntity containing a map of items grouped by date.
 	 */
 	@ResponseStatus(HttpStatus.OK)
@@ -195,9 +257,15 @@ public class ItemsController {
 			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_429, description = ClaimConstants.RESPONSE_CODE_429_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
 			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_503, description = ClaimConstants.RESPONSE_CODE_503_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))) })
 	@GetMapping("/grouped")
-	public ResponseEntity<Map<String, List<ItemDTO>>> getItemsGroupedByDate() {
-		Map<String, List<ItemDTO>> items = itemsService.getItemsGroupedByDate();
-		return ResponseEntity.ok(items);
+	public ResponseEntity<Map<String, List<ItemDTO>>> getItemsGroupedByDate(
+			@RequestParam(required = false) Integer after, @RequestParam(required = false) Integer limit) {
+		Map<String, List<ItemDTO>> items = itemsService.getItemsGroupedByDate(after, limit);
+		List<ItemDTO> page = items.values().stream().flatMap(List::stream).toList();
+		Integer nextAfter = itemsService.nextAfter(page, itemsService.pageSize(limit));
+		if (nextAfter == null) {
+			return ResponseEntity.ok(items);
+		}
+		return ResponseEntity.ok().header(Constants.NEXT_AFTER_HEADER, String.valueOf(nextAfter)).body(items);
 	}
 
 	/**
@@ -265,10 +333,14 @@ public class ItemsController {
 	 * Retrieves all items stored in the system.
 	 *
 	 * 
-	 * This method returns all items currently available in the database.
+	 * This method returns the items currently available in the database one page
+	 * at a time, newest first. The NextAfter field of the response is the value to
+	 * pass as after for the next page, or null on the last page.
 	 * 
 	 *
-	 * @return A map containing a list of all items.
+	 * @param after (Optional) The ID of the last item of the previous page.
+	 * @param limit (Optional) The page size, 50 by default and at most 500.
+	 * @return A map containing a page of items.
 	 */
 	@ResponseStatus(HttpStatus.OK)
 	@Operation(summary = "retrieve all items", responses = {
@@ -279,8 +351,113 @@ public class ItemsController {
 			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_429, description = ClaimConstants.RESPONSE_CODE_429_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
 			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_503, description = ClaimConstants.RESPONSE_CODE_503_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))) })
 	@GetMapping("/listOfItems")
-	public Map<String, Object> getItems() {
-		return itemsService.getAllItems();
+	public Map<String, Object> getItems(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer limit) {
+		return itemsService.getAllItems(after, limit);
+	}
+
+	/**
+	 * Exports every item, archived ones included, for audits.
+	 *
+	 * The export is streamed to the client while the rows are read from the
+	 * database, so it uses constant memory however many items there are.
+	 *
+	 * @param format (Optional) NDJSON (default), one JSON object per line, or CSV.
+	 * @return A ResponseEntity streaming the export as an attachment.
+	 */
+	@ResponseStatus(HttpStatus.OK)
+	@Operation(summary = "export all items", responses = {
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_200, description = ClaimConstants.RESPONSE_CODE_200_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ItemsService.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_204, description = ClaimConstants.RESPONSE_CODE_204_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_400, description = ClaimConstants.RESPONSE_CODE_400_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_422, description = ClaimConstants.RESPONSE_CODE_422_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_429, description = ClaimConstants.RESPONSE_CODE_429_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_503, description = ClaimConstants.RESPONSE_CODE_503_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))) })
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportItems(
+			@RequestParam(defaultValue = "NDJSON") ItemExportService.Format format) {
+		StreamingResponseBody body = out -> itemExportService.exportItems(out, format);
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(format.getContentType()))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"items." + format.getExtension() + "\"")
+				.body(body);
+	}
+
+	/**
+	 * Streams the stored image of an item.
+	 *
+	 * The image is served straight from the image store without being buffered in
+	 * memory. The content hash is sent as a strong ETag so clients can revalidate
+	 * with If-None-Match and receive a 304 when their cached copy is current. A
+	 * rendition that has not been generated yet is answered with an uncached 307
+	 * to the original, so the original is never cached under the rendition URL.
+	 * Only JPEG, PNG, GIF and WebP images are served with their own type; any
+	 * other stored content goes out as a byte stream with nosniff, so an upload
+	 * can never be rendered as HTML or SVG from this origin.
+	 *
+	 * @param itemId The ID of the item whose image is requested.
+	 * @param size   (Optional) The rendition to return: THUMBNAIL, PREVIEW or
+	 *               ORIGINAL (default).
+	 * @return A ResponseEntity streaming the image, or 404 if the item has no
+	 *         image.
+	 */
+	@ResponseStatus(HttpStatus.OK)
+	@Operation(summary = "stream the image of an item", responses = {
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_200, description = ClaimConstants.RESPONSE_CODE_200_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ItemsService.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_204, description = ClaimConstants.RESPONSE_CODE_204_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_400, description = ClaimConstants.RESPONSE_CODE_400_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_422, description = ClaimConstants.RESPONSE_CODE_422_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_429, description = ClaimConstants.RESPONSE_CODE_429_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_503, description = ClaimConstants.RESPONSE_CODE_503_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))) })
+	@GetMapping("/{itemId}/image")
+	public ResponseEntity<Resource> getItemImage(@PathVariable int itemId,
+			@RequestParam(defaultValue = "ORIGINAL") ImageRendition size) {
+		Optional<ItemImageDTO> image = itemsService.getItemImage(itemId, size);
+		if (image.isEmpty()) {
+			return ResponseEntity.notFound().build();
+		}
+		if (image.get().isFallback()) {
+			URI original = ServletUriComponentsBuilder.fromCurrentRequest()
+					.replaceQueryParam("size", ImageRendition.ORIGINAL.name()).build().toUri();
+			return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT).location(original)
+					.cacheControl(CacheControl.noStore()).build();
+		}
+
+		String contentType = image.get().getContentType();
+		boolean raster = ImageUtils.isRasterType(contentType);
+		ContentDisposition disposition = ContentDisposition.inline()
+				.filename("item-" + itemId + "." + (raster ? contentType.substring("image/".length()) : "bin"))
+				.build();
+		return ResponseEntity.ok().eTag(image.get().getETag())
+				.cacheControl(CacheControl.maxAge(IMAGE_CACHE_DAYS, TimeUnit.DAYS).cachePublic())
+				.header("X-Content-Type-Options", "nosniff")
+				.header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+				.contentType(raster ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM)
+				.body(image.get().getResource());
+	}
+
+	/**
+	 * Suggests search text while the user types.
+	 *
+	 * Suggestions come from item names, category and subcategory names and words
+	 * often detected on item photos, matched at the start of any of their words
+	 * and ranked by the number of items they find.
+	 *
+	 * @param prefix The text typed so far.
+	 * @param limit  (Optional) The maximum number of suggestions, at most 10.
+	 * @return A ResponseEntity containing the suggestions.
+	 */
+	@ResponseStatus(HttpStatus.OK)
+	@Operation(summary = "suggest search text", responses = {
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_200, description = ClaimConstants.RESPONSE_CODE_200_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ItemsService.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_204, description = ClaimConstants.RESPONSE_CODE_204_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_400, description = ClaimConstants.RESPONSE_CODE_400_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_422, description = ClaimConstants.RESPONSE_CODE_422_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_429, description = ClaimConstants.RESPONSE_CODE_429_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
+			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_503, description = ClaimConstants.RESPONSE_CODE_503_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))) })
+	@GetMapping("/suggest")
+	public ResponseEntity<Map<String, Object>> suggestItems(@RequestParam String prefix,
+			@RequestParam(defaultValue = "10") int limit) {
+		return ResponseEntity.ok(itemsService.suggestItems(prefix, limit));
 	}
 
 	/**
@@ -299,6 +476,13 @@ public class ItemsController {
 	 * @param query        (Optional) The search query for searching items by name
 	 *                     or other attributes.
 	 * @param file         (Optional) The image file for searching items by image.
+	 * @param imageMatch   (Optional) For IMAGE searches, DUPLICATE (default) finds
+	 *                     copies of the photo, SIMILAR ranks items that look alike.
+	 * @param after        (Optional) For EMAIL searches, the ID of the last item of
+	 *                     the previous page.
+	 * @param limit        (Optional) For EMAIL searches the page size, 50 by
+	 *                     default and at most 500; for SIMILAR searches the maximum
+	 *                     number of results, 20 by default.
 	 * @return A {@link ResponseEntity} containing the search results or an error
 	 *         message.
 	 * @throws IllegalArgumentException If an invalid search type is provided.
@@ -317,14 +501,16 @@ public class ItemsController {
 	public ResponseEntity<Map<String, Object>> searchItems(@RequestParam String searchType,
 			@RequestParam(required = false) String email, @RequestParam(required = false) String receivedDate,
 			@RequestParam(required = false) String status, @RequestParam(required = false) String query,
-			@RequestParam(required = false) MultipartFile file) {
+			@RequestParam(required = false) MultipartFile file,
+			@RequestParam(defaultValue = "DUPLICATE") String imageMatch,
+			@RequestParam(required = false) Integer after, @RequestParam(required = false) Integer limit) {
 
 		Map<String, Object> response = new HashMap<>();
 
 		try {
 			switch (searchType.toUpperCase()) {
 			case "EMAIL":
-				response = itemsService.searchItems(email, receivedDate, status);
+				response = itemsService.searchItems(email, receivedDate, status, after, limit);
 				break;
 
 			case "QUERY":
@@ -337,7 +523,11 @@ public class ItemsController {
 				if (file == null || file.isEmpty()) {
 					throw new IllegalArgumentException("Image file cannot be empty.");
 				}
-				response = itemsService.uploadImageForSearch(file);
+				if ("SIMILAR".equalsIgnoreCase(imageMatch)) {
+					response = itemsService.findSimilarItems(file, limit == null ? DEFAULT_SIMILAR_LIMIT : limit);
+				} else {
+					response = itemsService.uploadImageForSearch(file);
+				}
 				break;
 
 			default:
@@ -362,10 +552,10 @@ public class ItemsController {
 			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_429, description = ClaimConstants.RESPONSE_CODE_429_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))),
 			@ApiResponse(responseCode = ClaimConstants.RESPONSE_CODE_503, description = ClaimConstants.RESPONSE_CODE_503_DESCRIPTION, content = @Content(mediaType = ClaimConstants.MEDIA_TYPE, schema = @Schema(implementation = ErrorDetails.class))) })
 	@GetMapping("/archived")
-	public ResponseEntity<List<Items>> getArchivedItems(
+	public ResponseEntity<List<ItemSummaryView>> getArchivedItems(
 			@RequestParam(value = "fromDate", required = false) String fromDateStr,
 			@RequestParam(value = "toDate", required = false) String toDateStr) {
-		List<Items> items = itemsService.getArchivedItems(fromDateStr, toDateStr);
+		List<ItemSummaryView> items = itemsService.getArchivedItems(fromDateStr, toDateStr);
 		return ResponseEntity.ok(items);
 	}
 
@@ -2,6 +2,8 @@ package com.claimit.dto;
 
 import java.time.LocalDateTime;
 
+import com.claimit.constants.Constants;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,18 +16,19 @@ public class ClaimHistoryDTO {
 	private ItemStatus status;
 	private int claimId;
 	private LocalDateTime claimDate;
-	private byte[] image;
+	private String imageUrl;
 	private int requestId;
 	private int userId;
 	private String userName;
 	private String email;
 
-	public ClaimHistoryDTO(int claimId, LocalDateTime claimDate, ItemStatus claimStatus, byte[] image, int requestId,
+	public ClaimHistoryDTO(int claimId, LocalDateTime claimDate, ItemStatus claimStatus, int itemId, String imageHash,
+			int requestId,
 			int userId, String userName, String userEmail) {
 		this.claimId = claimId;
 		this.claimDate = claimDate;
 		this.status = claimStatus;
-		this.image = image;
+		this.imageUrl = Constants.itemImageUrl(itemId, imageHash);
 		this.requestId = requestId;
 		this.userId = userId;
 		this.userName = userName;
@@ -56,12 +59,12 @@ public class ClaimHistoryDTO {
 		this.claimDate = claimDate;
 	}
 
-	public byte[] getImage() {
-		return image;
+	public String getImageUrl() {
+		return imageUrl;
 	}
 
-	public void setImage(byte[] image) {
-		this.image = image;
+	public void setImageUrl(String imageUrl) {
+		this.imageUrl = imageUrl;
 	}
 
 	public int getRequestId() {
@@ -0,0 +1,18 @@
+package com.claimit.dto;
+
+import java.util.Date;
+
+/**
+ * Read-only view of an item due for an expiry notice and the email address of
+ * its owner.
+ */
+public interface ExpiryNoticeView {
+
+	int getItemId();
+
+	String getItemName();
+
+	Date getExpirationDate();
+
+	String getEmail();
+}
@@ -0,0 +1,26 @@
+package com.claimit.dto;
+
+/**
+ * Sizes in which an item image can be served. Renditions other than
+ * {@link #ORIGINAL} are JPEG images scaled so that their longest side does not
+ * exceed {@link #getMaxDimension()}.
+ */
+public enum ImageRendition {
+
+	ORIGINAL(0), THUMBNAIL(240), PREVIEW(1024);
+
+	private final int maxDimension;
+
+	ImageRendition(int maxDimension) {
+		this.maxDimension = maxDimension;
+	}
+
+	public int getMaxDimension() {
+		return maxDimension;
+	}
+
+	public String getKey() {
+		return name().toLowerCase();
+	}
+
+}
@@ -2,6 +2,8 @@ package com.claimit.dto;
 
 import java.util.Date;
 
+import com.claimit.constants.Constants;
+
 public class ItemDTO {
 	
 	private int itemId;
@@ -9,22 +11,22 @@ public class ItemDTO {
 	private ItemStatus status;
 	private Date receivedDate;
 	private Integer userId;
-	private byte[] image;
+	private String imageUrl;
 	private String userName;
 	private String email;
 	private String categoryName;
 	private String description;
 	private String uniqueId;
 
-	public ItemDTO(int itemId, String itemName, ItemStatus status, Date receivedDate, Integer userId, byte[] image,
-			String userName, String email, String categoryName, String description, String uniqueId) {
+	public ItemDTO(int itemId, String itemName, ItemStatus status, Date receivedDate, Integer userId,
+			String imageHash, String userName, String email, String categoryName, String description, String uniqueId) {
 		super();
 		this.itemId = itemId;
 		this.itemName = itemName;
 		this.status = status;
 		this.receivedDate = receivedDate;
 		this.userId = userId;
-		this.image = image;
+		this.imageUrl = Constants.itemImageUrl(itemId, imageHash);
 		this.userName = userName;
 		this.email = email;
 		this.categoryName = categoryName;
@@ -72,12 +74,12 @@ public class ItemDTO {
 		this.userId = userId;
 	}
 
-	public byte[] getImage() {
-		return image;
+	public String getImageUrl() {
+		return imageUrl;
 	}
 
-	public void setImage(byte[] image) {
-		this.image = image;
+	public void setImageUrl(String imageUrl) {
+		this.imageUrl = imageUrl;
 	}
 
 	public String getUserName() {
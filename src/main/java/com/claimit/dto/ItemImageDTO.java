@@ -0,0 +1,44 @@
+package com.claimit.dto;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * An item image ready to be streamed, together with the headers needed to serve
+ * it. A fallback is the original served in place of a rendition that has not
+ * been generated yet.
+ */
+public class ItemImageDTO {
+
+	private final Resource resource;
+	private final String contentType;
+	private final String eTag;
+	private final boolean fallback;
+
+	public ItemImageDTO(Resource resource, String contentType, String eTag) {
+		this(resource, contentType, eTag, false);
+	}
+
+	public ItemImageDTO(Resource resource, String contentType, String eTag, boolean fallback) {
+		this.resource = resource;
+		this.contentType = contentType;
+		this.eTag = eTag;
+		this.fallback = fallback;
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+
+	public boolean isFallback() {
+		return fallback;
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.claimit.dto;
+
+import java.util.Objects;
+
+/**
+ * The monthly statistics row and status counter an item is counted in.
+ */
+public class ItemStatsKey {
+
+	private final String orgId;
+	private final String month;
+	private final int categoryId;
+	private final ItemStatus status;
+
+	public ItemStatsKey(String orgId, String month, int categoryId, ItemStatus status) {
+		this.orgId = orgId;
+		this.month = month;
+		this.categoryId = categoryId;
+		this.status = status;
+	}
+
+	public String getOrgId() {
+		return orgId;
+	}
+
+	public String getMonth() {
+		return month;
+	}
+
+	public int getCategoryId() {
+		return categoryId;
+	}
+
+	public ItemStatus getStatus() {
+		return status;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof ItemStatsKey)) {
+			return false;
+		}
+		ItemStatsKey key = (ItemStatsKey) other;
+		return categoryId == key.categoryId && orgId.equals(key.orgId) && month.equals(key.month)
+				&& status == key.status;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(orgId, month, categoryId, status);
+	}
+
+}
@@ -3,6 +3,6 @@ package com.claimit.dto;
 
 public enum ItemStatus {
 
-	UNCLAIMED, PENDING_PICKUP, CLAIMED, EXPIRING_SOON, ARCHIVED, PENDING_APPROVAL, REJECTED
+	UNCLAIMED, PENDING_PICKUP, CLAIMED, EXPIRING_SOON, ARCHIVED, PENDING_APPROVAL, REJECTED, PENDING_ENRICHMENT
 
 }
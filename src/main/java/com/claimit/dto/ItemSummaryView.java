@@ -0,0 +1,43 @@
+package com.claimit.dto;
+
+import java.util.Date;
+
+import com.claimit.constants.Constants;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Read-only view of the columns an item list shows. Repository methods that
+ * return it select only these columns, so the detected text and the user are
+ * never loaded; the image is fetched separately from {@link #getImageUrl()}.
+ */
+public interface ItemSummaryView {
+
+	int getItemId();
+
+	String getUniqueId();
+
+	String getItemName();
+
+	String getTitle();
+
+	String getDescription();
+
+	String getColour();
+
+	ItemStatus getStatus();
+
+	Date getReceivedDate();
+
+	Date getExpirationDate();
+
+	int getCategoryId();
+
+	int getSubcatgeoryId();
+
+	@JsonIgnore
+	String getImageHash();
+
+	default String getImageUrl() {
+		return Constants.itemImageUrl(getItemId(), getImageHash());
+	}
+}
@@ -2,22 +2,25 @@ package com.claimit.dto;
 
 import java.time.LocalDateTime;
 
+import com.claimit.constants.Constants;
+
 public class ItemsRequestDTO {
 	
 	private int requestId;
 	private LocalDateTime claimDate;
 	private ItemStatus status;
-	private byte[] image;
+	private String imageUrl;
 	private String userName;
 	private String email;
 
-	public ItemsRequestDTO(int requestId, LocalDateTime claimDate, ItemStatus status, byte[] image, String userName,
+	public ItemsRequestDTO(int requestId, LocalDateTime claimDate, ItemStatus status, int itemId, String imageHash,
+			String userName,
 			String email) {
 		super();
 		this.requestId = requestId;
 		this.claimDate = claimDate;
 		this.status = status;
-		this.image = image;
+		this.imageUrl = Constants.itemImageUrl(itemId, imageHash);
 		this.userName = userName;
 		this.email = email;
 	}
@@ -46,12 +49,12 @@ public class ItemsRequestDTO {
 		this.status = status;
 	}
 
-	public byte[] getImage() {
-		return image;
+	public String getImageUrl() {
+		return imageUrl;
 	}
 
-	public void setImage(byte[] image) {
-		this.image = image;
+	public void setImageUrl(String imageUrl) {
+		this.imageUrl = imageUrl;
 	}
 
 	public String getUserName() {
@@ -3,6 +3,8 @@ package com.claimit.dto;
 
 import java.util.Date;
 
+import com.claimit.constants.Constants;
+
 public class ItemsSearchDTO {
 	
 	private int itemId;
@@ -18,7 +20,7 @@ public class ItemsSearchDTO {
 	private String itemName;
 	private ItemStatus status;
 	private Integer userId;
-	private byte[] image;
+	private String imageUrl;
 	private String userName;
 	private String email;
 
@@ -126,12 +128,12 @@ public class ItemsSearchDTO {
 		this.userId = userId;
 	}
 
-	public byte[] getImage() {
-		return image;
+	public String getImageUrl() {
+		return imageUrl;
 	}
 
-	public void setImage(byte[] image) {
-		this.image = image;
+	public void setImageUrl(String imageUrl) {
+		this.imageUrl = imageUrl;
 	}
 
 	public String getUserName() {
@@ -162,7 +164,7 @@ public class ItemsSearchDTO {
 
 	public ItemsSearchDTO(int itemId, Date receivedDate, Date expirationDate, String colour, String detectedText,
 			String orgId, String description, String title, String itemName, ItemStatus status, Integer userId,
-			byte[] image, String userName, String email, String categoryName) {
+			String imageHash, String userName, String email, String categoryName) {
 		this.itemId = itemId;
 		this.receivedDate = receivedDate;
 		this.expirationDate = expirationDate;
@@ -174,7 +176,7 @@ public class ItemsSearchDTO {
 		this.itemName = itemName;
 		this.status = status;
 		this.userId = userId;
-		this.image = image;
+		this.imageUrl = Constants.itemImageUrl(itemId, imageHash);
 		this.userName = userName;
 		this.email = email;
 		this.categoryName = categoryName;
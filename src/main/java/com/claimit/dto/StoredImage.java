@@ -0,0 +1,31 @@
+package com.claimit.dto;
+
+/**
+ * Describes an image that has been written to the {@code ImageStore}. The hash
+ * is the hex encoded SHA-256 of the content and doubles as the storage key.
+ */
+public class StoredImage {
+
+	private final String hash;
+	private final long size;
+	private final String contentType;
+
+	public StoredImage(String hash, long size, String contentType) {
+		this.hash = hash;
+		this.size = size;
+		this.contentType = contentType;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.claimit.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Next free number of the per-day item unique ID sequence. Numbers are handed
+ * out in blocks, so {@code nextValue} is the first number not yet reserved by
+ * any application instance.
+ */
+@Entity
+@Table(name = "daily_sequence")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailySequence {
+
+	@Id
+	@Column(length = 10)
+	private String sequenceDate;
+
+	private long nextValue;
+
+	public String getSequenceDate() {
+		return sequenceDate;
+	}
+
+	public void setSequenceDate(String sequenceDate) {
+		this.sequenceDate = sequenceDate;
+	}
+
+	public long getNextValue() {
+		return nextValue;
+	}
+
+	public void setNextValue(long nextValue) {
+		this.nextValue = nextValue;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.claimit.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An email waiting to be sent. Rows are written in the same transaction as the
+ * change they report and are sent afterwards by {@code EmailOutboxDispatcher},
+ * so a request never waits for the mail server and a rolled back change sends
+ * no email. A sent row keeps its {@code sentAt}; a row that failed is retried
+ * at {@code nextAttemptAt} until it runs out of attempts.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_due", columnList = "sent_at, next_attempt_at"))
+@Data
+@NoArgsConstructor
+public class EmailOutbox {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+
+	@Column(nullable = false, length = 320)
+	private String recipient;
+
+	@Column(nullable = false)
+	private String subject;
+
+	/** HTML body of the email. */
+	@Lob
+	@Column(nullable = false)
+	private String body;
+
+	@Column(nullable = false)
+	private Date createdAt;
+
+	/** Earliest time of the next attempt, also used as a lease while sending. */
+	@Column(nullable = false)
+	private Date nextAttemptAt;
+
+	private int attempts;
+
+	private Date sentAt;
+
+	@Column(length = 500)
+	private String lastError;
+
+	public EmailOutbox(String recipient, String subject, String body) {
+		this.recipient = recipient;
+		this.subject = subject;
+		this.body = body;
+		this.createdAt = new Date();
+		this.nextAttemptAt = this.createdAt;
+	}
+
+}
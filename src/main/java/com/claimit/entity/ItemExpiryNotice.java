@@ -0,0 +1,44 @@
+package com.claimit.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The last expiry notice sent for an item, so a notice is not sent twice and a
+ * notice that fell due while the application was down is still sent when it
+ * starts. The notice belongs to the expiration date it was sent for; once the
+ * item is given a new expiration date the row no longer applies.
+ */
+@Entity
+@Table(name = "item_expiry_notice")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemExpiryNotice {
+
+	@Id
+	private int itemId;
+
+	/** Expiration date of the item when the notice was sent. */
+	@Column(nullable = false)
+	private Date expirationDate;
+
+	/** Number of days before expiration of the notice. */
+	private int noticeDays;
+
+	/**
+	 * Returns whether this row records the notice of the given number of days,
+	 * or a later one, for the given expiration date.
+	 */
+	public boolean covers(Date expirationDate, int noticeDays) {
+		return this.expirationDate.getTime() == expirationDate.getTime() && this.noticeDays <= noticeDays;
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.claimit.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of items received in a month, per organisation and category, with one
+ * counter per item status. Rows are kept up to date by
+ * {@code ItemStatsService} whenever an item is saved or removed, so the
+ * dashboard reads these rows instead of aggregating the items table.
+ */
+@Entity
+@Table(name = "item_stats_monthly", uniqueConstraints = @UniqueConstraint(name = "uk_item_stats_monthly", columnNames = {
+		"org_id", "stats_month", "category_id" }))
+@Data
+@NoArgsConstructor
+public class ItemStatsMonthly {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+
+	/** Organisation of the items, empty when they have none. */
+	@Column(nullable = false, length = 64)
+	private String orgId;
+
+	/** Month the items were received, as yyyy-MM. */
+	@Column(nullable = false, length = 7)
+	private String statsMonth;
+
+	private int categoryId;
+
+	private long totalItems;
+
+	private long unclaimed;
+
+	private long pendingPickup;
+
+	private long claimed;
+
+	private long expiringSoon;
+
+	private long archived;
+
+	private long pendingApproval;
+
+	private long rejected;
+
+	private long pendingEnrichment;
+
+}
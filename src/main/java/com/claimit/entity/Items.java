@@ -3,27 +3,43 @@ package com.claimit.entity;
 
 import java.util.Date;
 
+import com.claimit.dto.ItemStatsKey;
 import com.claimit.dto.ItemStatus;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.ColumnDefault;
+
 @Entity
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@Table(indexes = { @Index(name = "idx_items_image_hash", columnList = "image_hash"),
+		@Index(name = "idx_items_status_expiration", columnList = "status, expiration_date"),
+		@Index(name = "idx_items_status_received", columnList = "status, received_date"),
+		@Index(name = "idx_items_category_received", columnList = "category_id, received_date"),
+		@Index(name = "idx_items_org_status", columnList = "org_id, status"),
+		@Index(name = "idx_items_received", columnList = "received_date") })
+@EntityListeners(ItemsEntityListener.class)
 public class Items {
 
 	@Id
@@ -43,8 +59,14 @@ public class Items {
 
 	private Date expirationDate;
 
-	@Lob
-	private byte[] image;
+	@Column(length = 64)
+	private String imageHash;
+
+	private long imageSize;
+
+	private String imageContentType;
+
+	private Long perceptualHash;
 
 	private String colour;
 
@@ -66,6 +88,20 @@ public class Items {
 	private User user;
 	private String uniqueId;
 
+	/**
+	 * Optimistic lock, so a save made from a stale copy of the item fails instead
+	 * of moving its statistics counters from where it was counted when loaded.
+	 */
+	@Version
+	@ColumnDefault("0")
+	@JsonIgnore
+	private long version;
+
+	/** Where the item was counted in the monthly statistics when loaded. */
+	@Transient
+	@JsonIgnore
+	private ItemStatsKey statsKey;
+
 	public int getItemId() {
 		return itemId;
 	}
@@ -122,12 +158,36 @@ public class Items {
 		this.expirationDate = expirationDate;
 	}
 
-	public byte[] getImage() {
-		return image;
+	public String getImageHash() {
+		return imageHash;
+	}
+
+	public void setImageHash(String imageHash) {
+		this.imageHash = imageHash;
 	}
 
-	public void setImage(byte[] image) {
-		this.image = image;
+	public long getImageSize() {
+		return imageSize;
+	}
+
+	public void setImageSize(long imageSize) {
+		this.imageSize = imageSize;
+	}
+
+	public String getImageContentType() {
+		return imageContentType;
+	}
+
+	public void setImageContentType(String imageContentType) {
+		this.imageContentType = imageContentType;
+	}
+
+	public Long getPerceptualHash() {
+		return perceptualHash;
+	}
+
+	public void setPerceptualHash(Long perceptualHash) {
+		this.perceptualHash = perceptualHash;
 	}
 
 	public String getColour() {
@@ -194,4 +254,12 @@ public class Items {
 		this.uniqueId = uniqueId;
 	}
 
+	public ItemStatsKey getStatsKey() {
+		return statsKey;
+	}
+
+	public void setStatsKey(ItemStatsKey statsKey) {
+		this.statsKey = statsKey;
+	}
+
 }
@@ -0,0 +1,60 @@
+package com.claimit.entity;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.claimit.dto.ItemStatsKey;
+import com.claimit.event.ItemDeletedEvent;
+import com.claimit.event.ItemSavedEvent;
+import com.claimit.service.ItemStatsService;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA callbacks of {@link Items} that publish {@link ItemSavedEvent} and
+ * {@link ItemDeletedEvent}, so in-memory indexes can follow changes made
+ * through the repository, and that keep the monthly statistics rollup up to
+ * date in the same transaction. The counters are moved from the key captured
+ * when the item was loaded; the version of {@link Items} makes the update of a
+ * stale copy fail, so that key is always where the row is still counted.
+ * Hibernate obtains the listener from Spring. The publisher and the statistics
+ * service are resolved lazily because the listener is created while the entity
+ * manager factory is still being built.
+ */
+@Component
+public class ItemsEntityListener {
+
+	@Autowired
+	private ObjectProvider<ApplicationEventPublisher> eventPublisher;
+
+	@Autowired
+	private ObjectProvider<ItemStatsService> itemStatsService;
+
+	@PostLoad
+	public void afterLoad(Items item) {
+		item.setStatsKey(itemStatsService.getObject().keyOf(item));
+	}
+
+	@PostPersist
+	@PostUpdate
+	public void afterSave(Items item) {
+		ItemStatsService stats = itemStatsService.getObject();
+		ItemStatsKey key = stats.keyOf(item);
+		stats.move(item.getStatsKey(), key);
+		item.setStatsKey(key);
+		eventPublisher.getObject().publishEvent(new ItemSavedEvent(item));
+	}
+
+	@PostRemove
+	public void afterRemove(Items item) {
+		itemStatsService.getObject().move(item.getStatsKey(), null);
+		item.setStatsKey(null);
+		eventPublisher.getObject().publishEvent(new ItemDeletedEvent(item.getItemId()));
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.claimit.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a batch job run, saved after every chunk so a run that stops
+ * part way resumes after the last completed chunk.
+ */
+@Entity
+@Table(name = "job_checkpoint")
+@Data
+@NoArgsConstructor
+public class JobCheckpoint {
+
+	@Id
+	@Column(length = 64)
+	private String jobName;
+
+	/** Day of the run the checkpoint belongs to, as yyyy-MM-dd. */
+	@Column(length = 10)
+	private String runDate;
+
+	/** Index of the step the run is on. */
+	private int step;
+
+	/** ID of the last item completed in the current step. */
+	private int lastItemId;
+
+	private boolean completed;
+
+	public JobCheckpoint(String jobName, String runDate) {
+		this.jobName = jobName;
+		this.runDate = runDate;
+	}
+
+}
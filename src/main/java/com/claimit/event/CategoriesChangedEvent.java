@@ -0,0 +1,19 @@
+package com.claimit.event;
+
+/**
+ * Published after a category is added, renamed or deleted, so in-memory copies
+ * of the category names can be refreshed.
+ */
+public class CategoriesChangedEvent {
+
+	private final int categoryId;
+
+	public CategoriesChangedEvent(int categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public int getCategoryId() {
+		return categoryId;
+	}
+
+}
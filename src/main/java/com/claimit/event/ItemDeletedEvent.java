@@ -0,0 +1,18 @@
+package com.claimit.event;
+
+/**
+ * Published after an item row is deleted.
+ */
+public class ItemDeletedEvent {
+
+	private final int itemId;
+
+	public ItemDeletedEvent(int itemId) {
+		this.itemId = itemId;
+	}
+
+	public int getItemId() {
+		return itemId;
+	}
+
+}
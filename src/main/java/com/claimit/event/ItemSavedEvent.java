@@ -0,0 +1,92 @@
+package com.claimit.event;
+
+import java.util.Date;
+
+import com.claimit.dto.ItemStatus;
+import com.claimit.entity.Items;
+
+/**
+ * Published after an {@link Items} row is inserted or updated. It carries a copy
+ * of the searchable fields, the category, the image hashes, the status and the
+ * expiration date, so listeners running after the commit do not touch the
+ * managed entity.
+ */
+public class ItemSavedEvent {
+
+	private final int itemId;
+	private final String itemName;
+	private final String title;
+	private final String description;
+	private final String detectedText;
+	private final String colour;
+	private final int categoryId;
+	private final int subcategoryId;
+	private final String imageHash;
+	private final Long perceptualHash;
+	private final ItemStatus status;
+	private final Date expirationDate;
+
+	public ItemSavedEvent(Items item) {
+		this.itemId = item.getItemId();
+		this.itemName = item.getItemName();
+		this.title = item.getTitle();
+		this.description = item.getDescription();
+		this.detectedText = item.getDetectedText();
+		this.colour = item.getColour();
+		this.categoryId = item.getCategoryId();
+		this.subcategoryId = item.getSubcatgeoryId();
+		this.imageHash = item.getImageHash();
+		this.perceptualHash = item.getPerceptualHash();
+		this.status = item.getStatus();
+		this.expirationDate = item.getExpirationDate() == null ? null : new Date(item.getExpirationDate().getTime());
+	}
+
+	public int getItemId() {
+		return itemId;
+	}
+
+	public String getItemName() {
+		return itemName;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public String getDetectedText() {
+		return detectedText;
+	}
+
+	public String getColour() {
+		return colour;
+	}
+
+	public int getCategoryId() {
+		return categoryId;
+	}
+
+	public int getSubcategoryId() {
+		return subcategoryId;
+	}
+
+	public String getImageHash() {
+		return imageHash;
+	}
+
+	public Long getPerceptualHash() {
+		return perceptualHash;
+	}
+
+	public ItemStatus getStatus() {
+		return status;
+	}
+
+	public Date getExpirationDate() {
+		return expirationDate;
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.claimit.event;
+
+import java.util.List;
+
+/**
+ * Published when expired items are archived in bulk, once per archived chunk.
+ * Bulk updates bypass the entity callbacks, so this is the only notice of the
+ * change.
+ */
+public class ItemsArchivedEvent {
+
+	private final List<Integer> itemIds;
+
+	public ItemsArchivedEvent(List<Integer> itemIds) {
+		this.itemIds = itemIds;
+	}
+
+	public List<Integer> getItemIds() {
+		return itemIds;
+	}
+
+}
@@ -4,6 +4,7 @@ package com.claimit.exception;
 import java.util.Map;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,6 +23,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.OK).body(Map.of("message", ex.getMessage()));
     }
 
+    /**
+     * Handles a save of an item that was changed by another request since it
+     * was loaded.
+     * 
+     * @param ex The ObjectOptimisticLockingFailureException instance.
+     * @return ResponseEntity with a conflict message.
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                             .body(Map.of("message", "The item was changed by someone else. Please try again."));
+    }
+
     /**
      * Handles any other exception and returns a generic error response.
      * 
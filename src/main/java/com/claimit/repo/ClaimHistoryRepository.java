@@ -16,7 +16,7 @@ public interface ClaimHistoryRepository extends JpaRepository<ClaimHistory, Inte
 
 
 	@Query("SELECT new com.claimit.dto.ClaimHistoryDTO( "
-	        + "ch.claimId, ch.claimDate, ch.claimStatus, i.image, r.requestId, ch.user.id, ch.user.userName, ch.user.email) "
+	        + "ch.claimId, ch.claimDate, ch.claimStatus, i.itemId, i.imageHash, r.requestId, ch.user.id, ch.user.userName, ch.user.email) "
 	        + "FROM ClaimHistory ch "
 	        + "JOIN ch.request r "
 	        + "JOIN r.item i "
@@ -0,0 +1,20 @@
+package com.claimit.repo;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.claimit.entity.DailySequence;
+
+import jakarta.persistence.LockModeType;
+
+public interface DailySequenceRepo extends JpaRepository<DailySequence, String> {
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT d FROM DailySequence d WHERE d.sequenceDate = :date")
+	Optional<DailySequence> findForUpdate(@Param("date") String date);
+
+}
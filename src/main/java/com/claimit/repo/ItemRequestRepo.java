@@ -17,7 +17,7 @@ public interface ItemRequestRepo extends JpaRepository<ItemsRequest, Integer> {
 	Optional<ItemsRequest> findFirstByItemItemIdAndStatus(int itemId, ItemStatus status);
 
 	@Query("SELECT new com.claimit.dto.ItemsRequestDTO( "
-			+ "ir.requestId, ir.claimedDate as claimDate, ir.status, ir.item.image, ir.user.userName, ir.user.email) "
+			+ "ir.requestId, ir.claimedDate as claimDate, ir.status, ir.item.itemId, ir.item.imageHash, ir.user.userName, ir.user.email) "
 			+ "FROM ItemsRequest ir " + "WHERE ir.user.userId = :userId AND ir.status <> :excludedStatus")
 	List<ItemsRequestDTO> findByUserIdAndExcludeStatus(@Param("userId") int userId,
 			@Param("excludedStatus") ItemStatus excludedStatus);
@@ -0,0 +1,28 @@
+package com.claimit.repo;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.claimit.entity.ItemStatsMonthly;
+
+public interface ItemStatsMonthlyRepo extends JpaRepository<ItemStatsMonthly, Long> {
+
+	@Query("SELECT s.statsMonth, SUM(s.totalItems), SUM(s.unclaimed), SUM(s.pendingApproval), SUM(s.pendingPickup), "
+			+ "SUM(s.claimed), SUM(s.rejected), SUM(s.archived) FROM ItemStatsMonthly s "
+			+ "WHERE (:month IS NULL OR s.statsMonth = :month) GROUP BY s.statsMonth "
+			+ "HAVING SUM(s.totalItems) > 0 ORDER BY s.statsMonth DESC")
+	List<Object[]> findStatusCountsByMonth(@Param("month") String month);
+
+	@Query("SELECT CAST(SUBSTRING(s.statsMonth, 6, 2) AS int), s.categoryId, SUM(s.totalItems) "
+			+ "FROM ItemStatsMonthly s GROUP BY SUBSTRING(s.statsMonth, 6, 2), s.categoryId "
+			+ "HAVING SUM(s.totalItems) > 0")
+	List<Object[]> findItemCountGroupedByCategoryIdAndMonthOfYear();
+
+	@Query("SELECT s.categoryId, SUM(s.totalItems) FROM ItemStatsMonthly s WHERE s.statsMonth = :month "
+			+ "GROUP BY s.categoryId HAVING SUM(s.totalItems) > 0")
+	List<Object[]> findItemCountGroupedByCategoryId(@Param("month") String month);
+
+}
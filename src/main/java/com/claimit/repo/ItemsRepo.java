@@ -1,84 +1,112 @@
 
 package com.claimit.repo;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import com.claimit.dto.ExpiryNoticeView;
 import com.claimit.dto.ItemDTO;
 import com.claimit.dto.ItemStatus;
+import com.claimit.dto.ItemSummaryView;
 import com.claimit.dto.ItemsSearchDTO;
 import com.claimit.entity.Items;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 public interface ItemsRepo extends JpaRepository<Items, Integer> {
 
 	@Query("SELECT new com.claimit.dto.ItemsSearchDTO( "
 			+ "i.itemId, i.receivedDate, i.expirationDate, i.colour, i.detectedText, "
 			+ "i.orgId, i.description, i.title, i.itemName, i.status, "
-			+ "u.userId, i.image, u.userName, u.email, c.categoryName) " + "FROM Items i " + "LEFT JOIN i.user u "
+			+ "u.userId, i.imageHash, u.userName, u.email, c.categoryName) " + "FROM Items i " + "LEFT JOIN i.user u "
+			+ "LEFT JOIN Categories c ON c.id = i.categoryId " + "WHERE i.itemId IN :ids")
+	List<ItemsSearchDTO> findSearchItemsByIds(@Param("ids") Collection<Integer> ids);
+
+	@Query("SELECT new com.claimit.dto.ItemsSearchDTO( "
+			+ "i.itemId, i.receivedDate, i.expirationDate, i.colour, i.detectedText, "
+			+ "i.orgId, i.description, i.title, i.itemName, i.status, "
+			+ "u.userId, i.imageHash, u.userName, u.email, c.categoryName) " + "FROM Items i " + "LEFT JOIN i.user u "
 			+ "LEFT JOIN Categories c ON c.id = i.categoryId "
-			+ "WHERE (:itemName IS NULL OR LOWER(i.itemName) LIKE LOWER(CONCAT('%', :itemName, '%'))) "
-			+ "AND (:color IS NULL OR LOWER(i.colour) LIKE LOWER(CONCAT('%', :color, '%'))) "
-			+ "AND (:category IS NULL OR LOWER(c.categoryName ) LIKE LOWER(CONCAT('%', :category, '%')))")
-	List<ItemsSearchDTO> searchByItemNameColorAndCategory(@Param("itemName") String itemName,
-			@Param("color") String color, @Param("category") String category);
+			+ "WHERE i.status != 'ARCHIVED' AND i.status != 'PENDING_ENRICHMENT' " + "ORDER BY i.itemId DESC")
+	List<ItemsSearchDTO> findLatestSearchItems(Pageable page);
 
-	@Query("SELECT new com.claimit.dto.ItemDTO(" + "i.itemId, i.itemName, i.status, i.receivedDate, u.userId, i.image, "
+	@Query("SELECT new com.claimit.dto.ItemDTO(" + "i.itemId, i.itemName, i.status, i.receivedDate, u.userId, i.imageHash, "
 			+ "u.userName, u.email, c.categoryName, i.description, i.uniqueId) " + "FROM Items i "
 			+ "LEFT JOIN i.user u " + "LEFT JOIN Categories c ON c.id = i.categoryId " + "WHERE i.status != 'ARCHIVED' "
+			+ "AND i.status != 'PENDING_ENRICHMENT' " + "AND (:after IS NULL OR i.itemId < :after) "
 			+ "ORDER BY i.itemId DESC")
-	List<ItemDTO> findItemsSummary();
+	List<ItemDTO> findItemsSummary(@Param("after") Integer after, Pageable page);
+
+	/**
+	 * Streams every item in ID order for exports. The rows are fetched from a
+	 * server-side cursor in batches of the fetch size, so the caller must consume
+	 * the stream inside a transaction and close it.
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT new com.claimit.dto.ItemDTO(i.itemId, i.itemName, i.status, i.receivedDate, u.userId, i.imageHash, u.userName, u.email, c.categoryName, i.description, i.uniqueId) "
+			+ "FROM Items i " + "LEFT JOIN i.user u " + "LEFT JOIN Categories c ON c.id = i.categoryId "
+			+ "ORDER BY i.itemId")
+	Stream<ItemDTO> streamAllItems();
 
-	@Query("SELECT new com.claimit.dto.ItemDTO(i.itemId, i.itemName, i.status, i.receivedDate, u.userId, i.image, u.userName, u.email, c.categoryName, i.description, i.uniqueId) "
+	@Query("SELECT new com.claimit.dto.ItemDTO(i.itemId, i.itemName, i.status, i.receivedDate, u.userId, i.imageHash, u.userName, u.email, c.categoryName, i.description, i.uniqueId) "
 			+ "FROM Items i " + "LEFT JOIN i.user u " + "LEFT JOIN Categories c ON c.id = i.categoryId "
 			+ "WHERE (:userId IS NULL OR u.userId = :userId) " + "AND (:status IS NULL OR i.status = :status) "
-			+ "AND (:receivedDate IS NULL OR i.receivedDate = :receivedDate)" + "ORDER BY i.itemId DESC")
+			+ "AND (:receivedDate IS NULL OR i.receivedDate = :receivedDate) "
+			+ "AND (:after IS NULL OR i.itemId < :after) " + "ORDER BY i.itemId DESC")
 	List<ItemDTO> findAllByCriteria(@Param("userId") Integer userId, @Param("status") ItemStatus status,
-			@Param("receivedDate") Date receivedDate);
-
-	@Query("UPDATE Items i SET i.status = :status WHERE i.itemId = :itemId")
-	void updateItemStatus(@Param("status") ItemStatus status, @Param("itemId") int itemId);
-
-	@Query("SELECT FUNCTION('DATE_FORMAT', i.receivedDate, '%Y-%m') AS month, " + "COUNT(i) AS totalItems, "
-			+ "COUNT(CASE WHEN i.status = 'UNCLAIMED' THEN 1 END) AS unclaimed, "
-			+ "COUNT(CASE WHEN i.status = 'PENDING_APPROVAL' THEN 1 END) AS pendingApproval, "
-			+ "COUNT(CASE WHEN i.status = 'PENDING_PICKUP' THEN 1 END) AS pendingPickup, "
-			+ "COUNT(CASE WHEN i.status = 'CLAIMED' THEN 1 END) AS claimed, "
-			+ "COUNT(CASE WHEN i.status = 'REJECTED' THEN 1 END) AS rejected, "
-			+ "COUNT(CASE WHEN i.status = 'ARCHIVED' THEN 1 END) AS archived " + "FROM Items i "
-			+ "WHERE (:month IS NULL OR FUNCTION('DATE_FORMAT', i.receivedDate, '%Y-%m') = :month) " + "GROUP BY month "
-			+ "ORDER BY month DESC")
-	List<Object[]> findItemsGroupedByMonth(@Param("month") String month);
-
-	@Query("SELECT FUNCTION('MONTH', i.receivedDate) AS month, i.categoryId, COUNT(i) AS totalItems " + "FROM Items i "
-			+ "GROUP BY FUNCTION('MONTH', i.receivedDate), i.categoryId")
-	List<Object[]> findItemCountGroupedByCategoryIdAndMonth();
-
-	@Query("SELECT i.categoryId, COUNT(i) AS totalItems "
-			+ "FROM Items i WHERE YEAR(i.receivedDate) = :year AND MONTH(i.receivedDate) = :month "
-			+ "GROUP BY i.categoryId")
-	List<Object[]> findItemCountGroupedByCategoryIdAndMonth(@Param("year") int year, @Param("month") int month);
-
-	List<Items> findByStatus(ItemStatus status);
+			@Param("receivedDate") Date receivedDate, @Param("after") Integer after, Pageable page);
 
 	@Query("SELECT COALESCE(MAX(CAST(SUBSTRING(i.uniqueId, LENGTH(:date) + 2) AS int)), 0) "
 			+ "FROM Items i WHERE i.uniqueId LIKE CONCAT(:date, '-%')")
 	Optional<Integer> findLatestNumberByDate(@Param("date") String date);
 
-	@Query("SELECT new com.claimit.dto.ItemDTO(i.itemId, i.itemName, i.status, i.receivedDate, u.userId, i.image, u.userName, u.email, c.categoryName, i.description, i.uniqueId) "
+	@Query("SELECT new com.claimit.dto.ItemDTO(i.itemId, i.itemName, i.status, i.receivedDate, u.userId, i.imageHash, u.userName, u.email, c.categoryName, i.description, i.uniqueId) "
 			+ "FROM Items i " + "LEFT JOIN i.user u " + "LEFT JOIN Categories c ON i.categoryId = c.id "
-			+ "WHERE FUNCTION('MONTH', i.receivedDate) = FUNCTION('MONTH', CURRENT_DATE) "
-			+ "AND FUNCTION('YEAR', i.receivedDate) = FUNCTION('YEAR', CURRENT_DATE) "
-			+ "ORDER BY i.receivedDate DESC, i.uniqueId DESC")
-	List<ItemDTO> findItemsByCurrentMonthAndYear();
+			+ "WHERE i.receivedDate >= :from AND i.receivedDate < :to "
+			+ "AND (i.status IS NULL OR i.status != 'PENDING_ENRICHMENT') "
+			+ "AND (:after IS NULL OR i.itemId < :after) " + "ORDER BY i.itemId DESC")
+	List<ItemDTO> findItemsReceivedBetween(@Param("from") Date from, @Param("to") Date to,
+			@Param("after") Integer after, Pageable page);
+
+	@Query("SELECT i FROM Items i WHERE i.status = :status "
+			+ "AND i.expirationDate >= :from AND i.expirationDate < :to")
+	List<Items> findByStatusAndExpiringBetween(@Param("status") ItemStatus status, @Param("from") Date from,
+			@Param("to") Date to);
 
-	@Query("SELECT i FROM Items i WHERE FUNCTION('MONTH', i.expirationDate) = :fromDate "
-			+ "AND FUNCTION('YEAR', i.expirationDate) = :toDate " + "AND i.status = :status")
-	List<Items> findByExpirationMonthAndYearAndStatus(@Param("fromDate") String fromDateStr,
-			@Param("toDate") String toDateStr, @Param("status") ItemStatus status);
+	List<Items> findByImageHash(String imageHash);
 
 	List<Items> findByStatusAndReceivedDateBetween(ItemStatus status, Date fromDate, Date toDate);
+
+	List<ItemSummaryView> findViewsByStatusOrderByItemIdDesc(ItemStatus status);
+
+	List<ItemSummaryView> findViewsByStatusAndReceivedDateBetweenOrderByItemIdDesc(ItemStatus status, Date fromDate,
+			Date toDate);
+
+	@Query("SELECT i.itemId AS itemId, i.itemName AS itemName, i.expirationDate AS expirationDate, u.email AS email "
+			+ "FROM Items i JOIN i.user u WHERE i.status = :status "
+			+ "AND i.expirationDate >= :from AND i.expirationDate < :to AND i.itemId > :after ORDER BY i.itemId")
+	List<ExpiryNoticeView> findExpiryNotices(@Param("status") ItemStatus status, @Param("from") Date from,
+			@Param("to") Date to, @Param("after") int after, Pageable page);
+
+	@Query("SELECT i.itemId AS itemId, i.itemName AS itemName, i.expirationDate AS expirationDate, u.email AS email "
+			+ "FROM Items i JOIN i.user u WHERE i.itemId = :itemId AND i.status = :status")
+	Optional<ExpiryNoticeView> findExpiryNotice(@Param("itemId") int itemId, @Param("status") ItemStatus status);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT i.itemId FROM Items i WHERE i.itemId IN :ids AND i.status = :status ORDER BY i.itemId")
+	List<Integer> lockIdsByStatus(@Param("ids") Collection<Integer> ids, @Param("status") ItemStatus status);
+
+	@Query("SELECT i.itemId FROM Items i WHERE i.status = :status")
+	List<Integer> findItemIdsByStatus(@Param("status") ItemStatus status);
 }
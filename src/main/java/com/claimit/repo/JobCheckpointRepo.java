@@ -0,0 +1,9 @@
+package com.claimit.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.claimit.entity.JobCheckpoint;
+
+public interface JobCheckpointRepo extends JpaRepository<JobCheckpoint, String> {
+
+}
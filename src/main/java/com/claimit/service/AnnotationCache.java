@@ -0,0 +1,175 @@
+package com.claimit.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+
+/**
+ * Caches Vision annotation results by the SHA-256 of the image, so the preview
+ * and the upload of the same photo only call Vision once. Entries live in a
+ * bounded LRU map in memory and, when {@code claimit.vision.cache.dir} is set,
+ * as serialized protobuf files on disk so they survive a restart. Both tiers
+ * expire entries after {@code claimit.vision.cache.ttl-minutes}.
+ */
+@Service
+public class AnnotationCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationCache.class);
+
+	private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+	private static final String FILE_SUFFIX = ".pb";
+
+	private final long ttlMillis;
+
+	private final Path dir;
+
+	private final Map<String, CachedResponse> entries;
+
+	public AnnotationCache(@Value("${claimit.vision.cache.max-entries:500}") int maxEntries,
+			@Value("${claimit.vision.cache.ttl-minutes:60}") long ttlMinutes,
+			@Value("${claimit.vision.cache.dir:}") String dir) throws IOException {
+		this.ttlMillis = ttlMinutes * 60_000L;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		if (dir == null || dir.isBlank()) {
+			this.dir = null;
+		} else {
+			this.dir = Paths.get(dir).toAbsolutePath().normalize();
+			Files.createDirectories(this.dir);
+		}
+	}
+
+	/**
+	 * Returns the cached response for an image, checking memory first and then
+	 * disk.
+	 *
+	 * @param imageHash the SHA-256 of the image content.
+	 * @return the cached response, or empty if absent or expired.
+	 */
+	public Optional<AnnotateImageResponse> get(String imageHash) {
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			CachedResponse cached = entries.get(imageHash);
+			if (cached != null) {
+				if (cached.expiresAt > now) {
+					return Optional.of(cached.response);
+				}
+				entries.remove(imageHash);
+			}
+		}
+
+		Path file = file(imageHash);
+		if (file == null) {
+			return Optional.empty();
+		}
+		try {
+			if (!Files.exists(file)) {
+				return Optional.empty();
+			}
+			long expiresAt = Files.getLastModifiedTime(file).toMillis() + ttlMillis;
+			if (expiresAt <= now) {
+				Files.deleteIfExists(file);
+				return Optional.empty();
+			}
+			AnnotateImageResponse response = AnnotateImageResponse.parseFrom(Files.readAllBytes(file));
+			synchronized (entries) {
+				entries.put(imageHash, new CachedResponse(response, expiresAt));
+			}
+			return Optional.of(response);
+		} catch (IOException e) {
+			LOGGER.warn("Could not read cached annotation {}: {}", imageHash, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Caches the response for an image in both tiers.
+	 *
+	 * @param imageHash the SHA-256 of the image content.
+	 * @param response  the Vision response for the image.
+	 */
+	public void put(String imageHash, AnnotateImageResponse response) {
+		synchronized (entries) {
+			entries.put(imageHash, new CachedResponse(response, System.currentTimeMillis() + ttlMillis));
+		}
+
+		Path file = file(imageHash);
+		if (file == null) {
+			return;
+		}
+		try {
+			Path tmp = Files.createTempFile(dir, imageHash, ".part");
+			Files.write(tmp, response.toByteArray());
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.warn("Could not write cached annotation {}: {}", imageHash, e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes expired entries from the disk tier. Expired memory entries are
+	 * dropped on access or pushed out by the LRU bound.
+	 */
+	@Scheduled(fixedDelayString = "${claimit.vision.cache.purge-interval-ms:3600000}")
+	public void purgeExpired() {
+		if (dir == null) {
+			return;
+		}
+		long cutoff = System.currentTimeMillis() - ttlMillis;
+		int purged = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + FILE_SUFFIX)) {
+			for (Path file : files) {
+				if (Files.getLastModifiedTime(file).toMillis() <= cutoff && Files.deleteIfExists(file)) {
+					purged++;
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Could not purge annotation cache: {}", e.getMessage());
+		}
+		if (purged > 0) {
+			LOGGER.info("Purged {} expired annotations from disk cache", purged);
+		}
+	}
+
+	private Path file(String imageHash) {
+		if (dir == null || imageHash == null || !HASH_PATTERN.matcher(imageHash).matches()) {
+			return null;
+		}
+		return dir.resolve(imageHash + FILE_SUFFIX);
+	}
+
+	private static final class CachedResponse {
+
+		private final AnnotateImageResponse response;
+
+		private final long expiresAt;
+
+		private CachedResponse(AnnotateImageResponse response, long expiresAt) {
+			this.response = response;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
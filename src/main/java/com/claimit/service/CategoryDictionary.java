@@ -0,0 +1,195 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.claimit.entity.Subcategories;
+import com.claimit.event.CategoriesChangedEvent;
+import com.claimit.repo.CategoriesRepo;
+import com.claimit.repo.SubCategoriesRepo;
+
+/**
+ * In-memory dictionary of the category and subcategory names, so result
+ * mapping and statistics resolve names without a query per row.
+ *
+ * The dictionary is loaded on first use. Every category change committed
+ * through {@link LookUpService} bumps its version, and the next lookup loads a
+ * new snapshot tagged with that version. A load that raced with a change is
+ * tagged with the version it started from, so it is replaced on the following
+ * lookup.
+ */
+@Service
+public class CategoryDictionary {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CategoryDictionary.class);
+
+	public static final String UNKNOWN_CATEGORY = "Unknown Category";
+
+	@Autowired
+	private CategoriesRepo categoriesRepo;
+
+	@Autowired
+	private SubCategoriesRepo subCategoriesRepo;
+
+	private final AtomicLong version = new AtomicLong();
+
+	private volatile Snapshot snapshot;
+
+	/**
+	 * A subcategory and the category it belongs to.
+	 */
+	public static final class Subcategory {
+
+		private final int id;
+
+		private final String name;
+
+		private final int categoryId;
+
+		private final String lowerCaseName;
+
+		private Subcategory(Subcategories subcategory) {
+			this.id = subcategory.getId();
+			this.name = subcategory.getName();
+			this.categoryId = subcategory.getCategoryId();
+			this.lowerCaseName = name == null ? "" : name.toLowerCase(Locale.ROOT);
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCategoryId() {
+			return categoryId;
+		}
+	}
+
+	/**
+	 * Names loaded for one version of the dictionary.
+	 */
+	private static final class Snapshot {
+
+		private final long version;
+
+		private final Map<Integer, String> categoryNames;
+
+		private final List<Subcategory> subcategories;
+
+		private Snapshot(long version, Map<Integer, String> categoryNames, List<Subcategory> subcategories) {
+			this.version = version;
+			this.categoryNames = categoryNames;
+			this.subcategories = subcategories;
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCategoriesChanged(CategoriesChangedEvent event) {
+		invalidate();
+	}
+
+	/**
+	 * Discards the loaded names; the next lookup loads them again.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Returns the current version of the dictionary. It changes whenever the
+	 * categories change.
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Returns the name of a category, deleted categories included.
+	 *
+	 * @param categoryId the category ID.
+	 * @return the name, or {@value #UNKNOWN_CATEGORY} if there is no such
+	 *         category.
+	 */
+	public String getCategoryName(int categoryId) {
+		String name = snapshot().categoryNames.get(categoryId);
+		return name != null ? name : UNKNOWN_CATEGORY;
+	}
+
+	/**
+	 * Returns the names of all categories by ID, in ID order.
+	 */
+	public Map<Integer, String> getCategoryNames() {
+		return snapshot().categoryNames;
+	}
+
+	/**
+	 * Returns the subcategories whose name contains a label, ignoring case, in ID
+	 * order.
+	 *
+	 * @param label the label, such as one detected on an item photo.
+	 * @return the matching subcategories.
+	 */
+	public List<Subcategory> findSubcategories(String label) {
+		String lowerCaseLabel = label.toLowerCase(Locale.ROOT);
+		List<Subcategory> matches = new ArrayList<>();
+		for (Subcategory subcategory : snapshot().subcategories) {
+			if (subcategory.lowerCaseName.contains(lowerCaseLabel)) {
+				matches.add(subcategory);
+			}
+		}
+		return matches;
+	}
+
+	private Snapshot snapshot() {
+		Snapshot current = snapshot;
+		if (current != null && current.version == version.get()) {
+			return current;
+		}
+		synchronized (this) {
+			long expected = version.get();
+			current = snapshot;
+			if (current != null && current.version == expected) {
+				return current;
+			}
+			current = load(expected);
+			snapshot = current;
+			return current;
+		}
+	}
+
+	private Snapshot load(long loadVersion) {
+		List<Object[]> rows = new ArrayList<>(categoriesRepo.findIdAndCategoryName());
+		rows.sort(Comparator.comparing(row -> (Integer) row[0]));
+		Map<Integer, String> categoryNames = new LinkedHashMap<>();
+		for (Object[] row : rows) {
+			categoryNames.put((Integer) row[0], (String) row[1]);
+		}
+
+		List<Subcategory> subcategories = new ArrayList<>();
+		for (Subcategories subcategory : subCategoriesRepo.findAll()) {
+			subcategories.add(new Subcategory(subcategory));
+		}
+		subcategories.sort(Comparator.comparingInt(Subcategory::getId));
+
+		LOGGER.info("Loaded category dictionary version {} with {} categories and {} subcategories", loadVersion,
+				categoryNames.size(), subcategories.size());
+		return new Snapshot(loadVersion, Collections.unmodifiableMap(categoryNames),
+				Collections.unmodifiableList(subcategories));
+	}
+
+}
@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.claimit.constants.Constants;
 import com.claimit.dto.ClaimHistoryDTO;
@@ -230,13 +231,15 @@ public class ClaimService {
 	 * ID, and user name. 2. Verifies the inputs, ensures that the item and user
 	 * exist, and processes the claim request. 3. If the item does not have an
 	 * existing claim, creates a new claim request and updates the item status to
-	 * "Pending Approval." 4. Sends a confirmation email to the user and a
-	 * notification to the admin.
+	 * "Pending Approval." 4. Queues a confirmation email to the user and a
+	 * notification to the admin in the same transaction as the claim; they are
+	 * sent after the commit by {@link EmailOutboxDispatcher}.
 	 * 
 	 * @param claimRequest The claim request containing user details and item ID.
 	 * @return A response map indicating success or failure, including the relevant
 	 *         message.
 	 */
+	@Transactional
 	public Map<String, Object> claimItem(Map<String, Object> requestData) {
 		LOGGER.info("Entering claimItem with requestData: {}", requestData);
 		Map<String, Object> res = new HashMap<>();
@@ -303,7 +306,7 @@ public class ClaimService {
 		userData.setMessage(message);
 		userRepository.save(userData);
 
-		EmailService.sendClaimConfirmationEmail(user.getEmail(), item);
+		emailService.sendClaimConfirmationEmail(user.getEmail(), item);
 		emailService.sendClaimNotificationToAdmin(item);
 
 		res.put(Constants.MESSAGE, "Successfully claimed the item.");
@@ -0,0 +1,138 @@
+package com.claimit.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.claimit.entity.DailySequence;
+import com.claimit.repo.DailySequenceRepo;
+import com.claimit.repo.ItemsRepo;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Hands out the per-day numbers of item unique IDs ({@code yyyy/MM/dd-n}).
+ * Numbers come from an in-memory block, so an upload only increments an
+ * {@link AtomicLong}. When a block runs out, the next one is reserved from the
+ * {@code daily_sequence} row of the day with one row-locked update, which keeps
+ * numbers unique across threads and application instances. Numbers left in a
+ * block when the application stops are skipped, so a day's sequence can have
+ * gaps.
+ */
+@Service
+public class DailySequenceService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DailySequenceService.class);
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+	private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+	@Autowired
+	private DailySequenceRepo dailySequenceRepo;
+
+	@Autowired
+	private ItemsRepo itemsRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${claimit.unique-id.block-size:20}")
+	private int blockSize;
+
+	private TransactionTemplate transactionTemplate;
+
+	private volatile Block current = new Block("", 0, 0);
+
+	@PostConstruct
+	public void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * Returns the next unique ID for an item received today.
+	 *
+	 * @return the unique ID, in the form {@code yyyy/MM/dd-n}.
+	 */
+	public String nextUniqueId() {
+		String date = LocalDate.now().format(DATE_FORMAT);
+		return date + "-" + next(date);
+	}
+
+	private long next(String date) {
+		while (true) {
+			Block block = current;
+			if (block.date.equals(date)) {
+				long value = block.next.getAndIncrement();
+				if (value < block.limit) {
+					return value;
+				}
+			}
+			synchronized (this) {
+				// Another thread may have reserved a fresh block while we waited.
+				if (current == block) {
+					current = reserve(date);
+				}
+			}
+		}
+	}
+
+	private Block reserve(String date) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				return transactionTemplate.execute(status -> reserveInTransaction(date));
+			} catch (DataIntegrityViolationException e) {
+				// Another instance created the day's row first; lock it and retry.
+				if (attempt >= MAX_RESERVE_ATTEMPTS) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	private Block reserveInTransaction(String date) {
+		Optional<DailySequence> locked = dailySequenceRepo.findForUpdate(date);
+		DailySequence sequence;
+		if (locked.isPresent()) {
+			sequence = locked.get();
+		} else {
+			// First block of the day: continue after any IDs assigned before the
+			// sequence table existed.
+			long seed = itemsRepository.findLatestNumberByDate(date).orElse(0) + 1L;
+			sequence = new DailySequence(date, seed);
+		}
+		long start = sequence.getNextValue();
+		sequence.setNextValue(start + blockSize);
+		dailySequenceRepo.saveAndFlush(sequence);
+		LOGGER.debug("Reserved unique ID block {}-{} for {}", start, start + blockSize - 1, date);
+		return new Block(date, start, start + blockSize);
+	}
+
+	private static final class Block {
+
+		private final String date;
+
+		private final AtomicLong next;
+
+		private final long limit;
+
+		private Block(String date, long start, long limit) {
+			this.date = date;
+			this.next = new AtomicLong(start);
+			this.limit = limit;
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.claimit.entity.EmailOutbox;
+import com.claimit.repo.EmailOutboxRepo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sends the emails queued in the {@code email_outbox} table.
+ *
+ * Every poll claims the due rows in a short transaction that skips rows locked
+ * by another instance and leases the claimed rows by moving their next attempt
+ * time forward, so a row is sent by one instance at a time and is picked up
+ * again if that instance dies. The claimed rows are split into batches that a
+ * bounded pool of sender threads hands to {@link MailDelivery}. A batch is as
+ * large as {@code claimit.mail.smtp.batch-size}, so it is sent over one SMTP
+ * connection. A poll sends one round of batches at most, and polling runs on a
+ * thread of its own, so a slow mail server holds up neither the scheduled jobs
+ * of the application nor a poll for longer than the SMTP timeouts allow. A
+ * failed email is retried with exponential backoff until it has used
+ * {@code max-attempts}; after that it stays in the table with its last error
+ * for inspection.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+	private static final String SELECT_DUE = "SELECT id FROM email_outbox "
+			+ "WHERE sent_at IS NULL AND attempts < ? AND next_attempt_at <= ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+	@Autowired
+	private EmailOutboxRepo emailOutboxRepo;
+
+	@Autowired
+	private MailDelivery mailDelivery;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${claimit.mail.outbox.senders:2}")
+	private int senders;
+
+	/** Emails per batch, so that a batch fills one SMTP connection. */
+	@Value("${claimit.mail.smtp.batch-size:50}")
+	private int batchSize;
+
+	@Value("${claimit.mail.outbox.max-attempts:5}")
+	private int maxAttempts;
+
+	@Value("${claimit.mail.outbox.retry-backoff-ms:30000}")
+	private long retryBackoffMs;
+
+	@Value("${claimit.mail.outbox.lease-ms:300000}")
+	private long leaseMs;
+
+	@Value("${claimit.mail.outbox.poll-interval-ms:1000}")
+	private long pollIntervalMs;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ExecutorService senderPool;
+
+	private ScheduledExecutorService poller;
+
+	@PostConstruct
+	public void start() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		AtomicInteger threadCount = new AtomicInteger();
+		senderPool = Executors.newFixedThreadPool(senders, runnable -> {
+			Thread thread = new Thread(runnable, "email-sender-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "email-outbox-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		poller.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void poll() {
+		try {
+			dispatch();
+		} catch (RuntimeException e) {
+			// an exception would cancel the polling for good
+			LOGGER.error("Failed to dispatch emails", e);
+		}
+	}
+
+	/**
+	 * Sends one round of due emails: as many batches as there are sender threads.
+	 * Emails left over are sent by the following polls.
+	 *
+	 * @return the number of emails claimed for sending.
+	 */
+	public int dispatch() {
+		List<Long> ids = claimDue(senders * batchSize);
+		List<Future<?>> batches = new ArrayList<>();
+		for (int from = 0; from < ids.size(); from += batchSize) {
+			List<Long> batchIds = ids.subList(from, Math.min(ids.size(), from + batchSize));
+			batches.add(senderPool.submit(() -> sendBatch(batchIds)));
+		}
+		for (Future<?> batch : batches) {
+			try {
+				batch.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				LOGGER.error("Email batch failed", e.getCause());
+			}
+		}
+		return ids.size();
+	}
+
+	/**
+	 * Claims up to the given number of due emails by leasing them.
+	 */
+	private List<Long> claimDue(int limit) {
+		List<Long> ids = transactionTemplate.execute(status -> {
+			Date now = new Date();
+			List<Long> due = jdbcTemplate.queryForList(SELECT_DUE, Long.class, maxAttempts, now, limit);
+			if (!due.isEmpty()) {
+				Object[] args = new Object[due.size() + 1];
+				args[0] = new Date(now.getTime() + leaseMs);
+				for (int i = 0; i < due.size(); i++) {
+					args[i + 1] = due.get(i);
+				}
+				jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ? WHERE id IN ("
+						+ String.join(", ", Collections.nCopies(due.size(), "?")) + ")", args);
+			}
+			return due;
+		});
+		return ids == null ? Collections.emptyList() : ids;
+	}
+
+	private void sendBatch(List<Long> ids) {
+		List<EmailOutbox> emails = emailOutboxRepo.findAllById(ids);
+		Map<Long, String> failures;
+		try {
+			failures = mailDelivery.deliver(emails);
+		} catch (RuntimeException e) {
+			LOGGER.error("Failed to deliver batch of {} emails", emails.size(), e);
+			failures = new HashMap<>();
+			for (EmailOutbox email : emails) {
+				failures.put(email.getId(), String.valueOf(e.getMessage()));
+			}
+		}
+
+		Date now = new Date();
+		for (EmailOutbox email : emails) {
+			email.setAttempts(email.getAttempts() + 1);
+			String error = failures.get(email.getId());
+			if (error == null) {
+				email.setSentAt(now);
+				email.setLastError(null);
+			} else {
+				long backoff = retryBackoffMs << Math.min(email.getAttempts() - 1, 10);
+				email.setNextAttemptAt(new Date(now.getTime() + backoff));
+				email.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+				if (email.getAttempts() >= maxAttempts) {
+					LOGGER.error("Giving up on email ID {} to {} after {} attempts: {}", email.getId(),
+							email.getRecipient(), email.getAttempts(), error);
+				}
+			}
+		}
+		emailOutboxRepo.saveAll(emails);
+		LOGGER.debug("Sent {} of {} emails", emails.size() - failures.size(), emails.size());
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		poller.shutdownNow();
+		senderPool.shutdown();
+	}
+
+}
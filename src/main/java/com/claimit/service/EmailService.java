@@ -5,41 +5,37 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import com.claimit.dto.ItemStatus;
+import com.claimit.entity.EmailOutbox;
 import com.claimit.entity.Items;
-
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import com.claimit.repo.EmailOutboxRepo;
 
 @Service
 public class EmailService {
 
 	@Autowired
-	private static JavaMailSender mailSender;
+	private EmailOutboxRepo emailOutboxRepo;
 
 	/**
-	 * Send an email using Spring's JavaMailSender.
+	 * Queue an email in the outbox. The row joins the caller's transaction, so
+	 * the email is sent by {@link EmailOutboxDispatcher} only once the change it
+	 * reports is committed, and the caller never waits for the mail server.
 	 */
-	public static void sendEmail(String to, String subject, String body) {
-		try {
-			MimeMessage message = mailSender.createMimeMessage();
-			MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-			helper.setTo(to);
-			helper.setSubject(subject);
-			helper.setText(body, true);
-
-			mailSender.send(message);
-		} catch (MessagingException e) {
-			e.printStackTrace();
-			throw new RuntimeException("Failed to send email.");
-		}
+	public void sendEmail(String to, String subject, String body) {
+		emailOutboxRepo.save(new EmailOutbox(to, subject, body));
+	}
+
+	/**
+	 * Queue a batch of emails in the outbox with one round trip. The dispatcher
+	 * sends them in batches over shared SMTP connections.
+	 */
+	public void sendEmails(List<EmailOutbox> emails) {
+		emailOutboxRepo.saveAll(emails);
 	}
 
 	/**
@@ -49,7 +45,7 @@ public class EmailService {
 	 * @param userEmail The email address of the user.
 	 * @param item The item object containing claim details.
 	 */
-	public static void sendClaimConfirmationEmail(String userEmail, Items item) {
+	public void sendClaimConfirmationEmail(String userEmail, Items item) {
 		String subject = "Item Claim Confirmation";
 
 		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
@@ -0,0 +1,236 @@
+package com.claimit.service;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.claimit.dto.ExpiryNoticeView;
+import com.claimit.dto.ItemStatus;
+import com.claimit.entity.EmailOutbox;
+import com.claimit.entity.ItemExpiryNotice;
+import com.claimit.entity.JobCheckpoint;
+import com.claimit.repo.ItemExpiryNoticeRepo;
+import com.claimit.repo.ItemsRepo;
+import com.claimit.repo.JobCheckpointRepo;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Warns owners of unclaimed items that expire in 30, 10, 2 or 1 days.
+ *
+ * {@link ItemExpiryScheduler} sends each notice when it falls due through
+ * {@link #sendNotice(int, int)}. The batch run below is kept as a manual
+ * catch-up for the notices due today. Both record the last notice sent to each
+ * item in {@link ItemExpiryNotice} and skip an item that already had it. Both
+ * lock the item rows before reading that record, so the two cannot send the
+ * same notice at once.
+ *
+ * For each of those days the job reads the items expiring on that day with a
+ * range query on the status and expiration date index, one page of item IDs at
+ * a time, so a run reads only the items due for a notice. The notices of a
+ * page are queued in the email outbox together, and are sent in batches over
+ * shared SMTP connections. The outbox rows, the notice records and the
+ * checkpoint of a page are committed in one transaction. A run that stops part
+ * way resumes after the last committed page, and a run that already completed
+ * today does nothing, so owners are not mailed twice for the same day.
+ */
+@Service
+public class ExpiryNotificationJob {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExpiryNotificationJob.class);
+
+	private static final String JOB_NAME = "expiry-notification";
+
+	private static final String SUBJECT = "Item Expiration Notification";
+
+	/** Days before expiration on which a notice is sent, in processing order. */
+	static final int[] NOTICE_DAYS = { 30, 10, 2, 1 };
+
+	@Autowired
+	private ItemsRepo itemsRepo;
+
+	@Autowired
+	private JobCheckpointRepo jobCheckpointRepo;
+
+	@Autowired
+	private ItemExpiryNoticeRepo itemExpiryNoticeRepo;
+
+	@Autowired
+	private EmailService emailService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${claimit.expiry-notice.page-size:200}")
+	private int pageSize;
+
+	private TransactionTemplate transactionTemplate;
+
+	@PostConstruct
+	public void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * Sends today's expiry notices, resuming today's run if it stopped part way.
+	 *
+	 * @return the number of notices sent by this call.
+	 */
+	public synchronized int run() {
+		LocalDate today = LocalDate.now();
+		String runDate = today.toString();
+		JobCheckpoint checkpoint = jobCheckpointRepo.findById(JOB_NAME).orElse(null);
+		if (checkpoint == null || !runDate.equals(checkpoint.getRunDate())) {
+			checkpoint = new JobCheckpoint(JOB_NAME, runDate);
+		} else if (checkpoint.isCompleted()) {
+			LOGGER.info("Expiry notices for {} were already sent", runDate);
+			return 0;
+		} else {
+			LOGGER.info("Resuming expiry notices for {} at {} days after item ID {}", runDate,
+					NOTICE_DAYS[checkpoint.getStep()], checkpoint.getLastItemId());
+		}
+
+		int sent = 0;
+		for (int step = checkpoint.getStep(); step < NOTICE_DAYS.length; step++) {
+			int days = NOTICE_DAYS[step];
+			Date from = startOfDay(today.plusDays(days));
+			Date to = startOfDay(today.plusDays(days + 1L));
+			int after = step == checkpoint.getStep() ? checkpoint.getLastItemId() : 0;
+			while (true) {
+				List<ExpiryNoticeView> page = itemsRepo.findExpiryNotices(ItemStatus.UNCLAIMED, from, to, after,
+						PageRequest.of(0, pageSize));
+				if (page.isEmpty()) {
+					break;
+				}
+				after = page.get(page.size() - 1).getItemId();
+				checkpoint.setStep(step);
+				checkpoint.setLastItemId(after);
+				JobCheckpoint pageCheckpoint = checkpoint;
+				sent += transactionTemplate.execute(status -> sendPage(page, days, pageCheckpoint));
+				if (page.size() < pageSize) {
+					break;
+				}
+			}
+		}
+		checkpoint.setStep(NOTICE_DAYS.length - 1);
+		checkpoint.setCompleted(true);
+		jobCheckpointRepo.save(checkpoint);
+		LOGGER.info("Sent {} expiry notices for {}", sent, runDate);
+		return sent;
+	}
+
+	/**
+	 * Queues the notices of one page and saves the checkpoint after it. Must be
+	 * called in a transaction: the items of the page that are still unclaimed
+	 * are locked before their notice records are read.
+	 *
+	 * @return the number of notices queued.
+	 */
+	private int sendPage(List<ExpiryNoticeView> page, int days, JobCheckpoint checkpoint) {
+		List<Integer> itemIds = itemsRepo.lockIdsByStatus(
+				page.stream().map(ExpiryNoticeView::getItemId).collect(Collectors.toList()), ItemStatus.UNCLAIMED);
+		Map<Integer, ItemExpiryNotice> sentNotices = itemExpiryNoticeRepo.findAllById(itemIds).stream()
+				.collect(Collectors.toMap(ItemExpiryNotice::getItemId, Function.identity()));
+		Set<Integer> unclaimed = new HashSet<>(itemIds);
+		List<EmailOutbox> emails = new ArrayList<>(page.size());
+		List<ItemExpiryNotice> notices = new ArrayList<>(page.size());
+		for (ExpiryNoticeView notice : page) {
+			if (unclaimed.contains(notice.getItemId()) && hasEmail(notice)
+					&& !alreadySent(sentNotices.get(notice.getItemId()), notice, days)) {
+				emails.add(new EmailOutbox(notice.getEmail(), SUBJECT, buildNotice(notice, days)));
+				notices.add(new ItemExpiryNotice(notice.getItemId(), notice.getExpirationDate(), days));
+			}
+		}
+		if (!emails.isEmpty()) {
+			emailService.sendEmails(emails);
+			itemExpiryNoticeRepo.saveAll(notices);
+		}
+		jobCheckpointRepo.save(checkpoint);
+		return emails.size();
+	}
+
+	/**
+	 * Sends the notice of one item if it is still unclaimed and has not had this
+	 * notice, or a later one, for its current expiration date. The item row is
+	 * locked, and the outbox row and notice record are committed together.
+	 *
+	 * @param itemId the item ID.
+	 * @param days   the number of days left before the item expires.
+	 * @return whether a notice was sent.
+	 */
+	public boolean sendNotice(int itemId, int days) {
+		try {
+			return transactionTemplate.execute(status -> {
+				if (itemsRepo.lockIdsByStatus(List.of(itemId), ItemStatus.UNCLAIMED).isEmpty()) {
+					return false;
+				}
+				return itemsRepo.findExpiryNotice(itemId, ItemStatus.UNCLAIMED).map(notice -> send(notice, days))
+						.orElse(false);
+			});
+		} catch (RuntimeException e) {
+			LOGGER.error("Failed to send expiry notice for item ID: {}", itemId, e);
+			return false;
+		}
+	}
+
+	private boolean send(ExpiryNoticeView notice, int days) {
+		if (!hasEmail(notice)) {
+			return false;
+		}
+		if (alreadySent(itemExpiryNoticeRepo.findById(notice.getItemId()).orElse(null), notice, days)) {
+			LOGGER.debug("Expiry notice of {} days was already sent for item ID: {}", days, notice.getItemId());
+			return false;
+		}
+		emailService.sendEmail(notice.getEmail(), SUBJECT, buildNotice(notice, days));
+		itemExpiryNoticeRepo.save(new ItemExpiryNotice(notice.getItemId(), notice.getExpirationDate(), days));
+		return true;
+	}
+
+	private static boolean hasEmail(ExpiryNoticeView notice) {
+		return notice.getEmail() != null && !notice.getEmail().isEmpty();
+	}
+
+	private static boolean alreadySent(ItemExpiryNotice sentNotice, ExpiryNoticeView notice, int days) {
+		return sentNotice != null && sentNotice.covers(notice.getExpirationDate(), days);
+	}
+
+	private static Date startOfDay(LocalDate day) {
+		return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+	private static String buildNotice(ExpiryNoticeView notice, int days) {
+		String expirationDate = new SimpleDateFormat("yyyy-MM-dd").format(notice.getExpirationDate());
+		return String.format("<!DOCTYPE html>" + "<html>" + "<head>" + "    <style>"
+				+ "        body { font-family: Arial, sans-serif; margin: 0; padding: 0; }"
+				+ "        .container { width: 100%%; max-width: 600px; margin: 20px auto; border: 1px solid #ddd; padding: 20px; }"
+				+ "        .header { font-size: 18px; font-weight: bold; color: #333; margin-bottom: 10px; }"
+				+ "        table { width: 100%%; border-collapse: collapse; margin-top: 20px; }"
+				+ "        th, td { border: 1px solid #ddd; padding: 8px; text-align: left; }"
+				+ "        th { background-color: #f4f4f4; }" + "    </style>" + "</head>" + "<body>"
+				+ "    <div class='container'>" + "        <div class='header'>Item Expiration Notification</div>"
+				+ "        <p>Dear User,</p>" + "        <p>The following item will be archived/removed in %d days:</p>"
+				+ "        <table>" + "            <tr><th>Item Name</th><td>%s</td></tr>"
+				+ "            <tr><th>Expiration Date</th><td>%s</td></tr>" + "        </table>"
+				+ "        <p>Please take the necessary action before the expiration date.</p>"
+				+ "        <p>Thank you,<br>ClaimItHub Team</p>" + "    </div>" + "</body>" + "</html>", days,
+				notice.getItemName(), expirationDate);
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.claimit.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import com.claimit.dto.ImageRendition;
+import com.claimit.dto.StoredImage;
+import com.claimit.utils.HashUtils;
+import com.claimit.utils.ImageUtils;
+
+/**
+ * {@link ImageStore} backed by the local file system. Files are laid out as
+ * {@code <root>/ab/cd/abcd...} so no directory grows beyond a few thousand
+ * entries. Uploads are streamed to a temporary file while the hash is computed
+ * and then atomically moved into place. Scaled renditions are stored next to
+ * the original as {@code <hash>.<rendition>.jpg}, and an original that cannot
+ * be decoded is marked by an empty {@code <hash>.undecodable} file.
+ */
+@Service
+public class FileSystemImageStore implements ImageStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemImageStore.class);
+
+	private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+	private final Path root;
+
+	private final Path tmpDir;
+
+	public FileSystemImageStore(@Value("${claimit.image-store.root:./data/images}") String root) throws IOException {
+		this.root = Paths.get(root).toAbsolutePath().normalize();
+		this.tmpDir = this.root.resolve("tmp");
+		Files.createDirectories(tmpDir);
+		LOGGER.info("Image store initialised at {}", this.root);
+	}
+
+	@Override
+	public StoredImage save(InputStream content) throws IOException {
+		MessageDigest digest = HashUtils.newSha256();
+		Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+		long size;
+		String contentType;
+		try {
+			try (InputStream in = new DigestInputStream(content, digest); OutputStream out = Files.newOutputStream(tmp)) {
+				byte[] header = in.readNBytes(ImageUtils.HEADER_LENGTH);
+				contentType = ImageUtils.detectContentType(header);
+				out.write(header);
+				size = header.length + in.transferTo(out);
+			}
+
+			String hash = HashUtils.toHex(digest);
+			Path target = resolve(hash);
+			if (Files.exists(target)) {
+				LOGGER.debug("Image {} already stored, skipping write", hash);
+			} else {
+				Files.createDirectories(target.getParent());
+				try {
+					Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+				} catch (FileAlreadyExistsException e) {
+					LOGGER.debug("Image {} was stored concurrently", hash);
+				}
+			}
+			return new StoredImage(hash, size, contentType);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	@Override
+	public byte[] load(String hash) throws IOException {
+		Path path = resolve(hash);
+		if (!Files.exists(path)) {
+			throw new FileNotFoundException("No image stored for hash " + hash);
+		}
+		return Files.readAllBytes(path);
+	}
+
+	@Override
+	public Resource getResource(String hash) {
+		return new FileSystemResource(resolve(hash));
+	}
+
+	@Override
+	public boolean exists(String hash) {
+		return hash != null && Files.exists(resolve(hash));
+	}
+
+	@Override
+	public void saveRendition(String hash, ImageRendition rendition, byte[] content) throws IOException {
+		Path target = resolve(hash, rendition);
+		Files.createDirectories(target.getParent());
+		Path tmp = Files.createTempFile(tmpDir, "rendition-", ".part");
+		try {
+			Files.write(tmp, content);
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	@Override
+	public Resource getResource(String hash, ImageRendition rendition) {
+		return new FileSystemResource(resolve(hash, rendition));
+	}
+
+	@Override
+	public boolean exists(String hash, ImageRendition rendition) {
+		return hash != null && Files.exists(resolve(hash, rendition));
+	}
+
+	@Override
+	public void markUndecodable(String hash) throws IOException {
+		Path marker = resolveUndecodableMarker(hash);
+		Files.createDirectories(marker.getParent());
+		try {
+			Files.createFile(marker);
+		} catch (FileAlreadyExistsException e) {
+			LOGGER.debug("Image {} was already marked undecodable", hash);
+		}
+	}
+
+	@Override
+	public boolean isUndecodable(String hash) {
+		return hash != null && Files.exists(resolveUndecodableMarker(hash));
+	}
+
+	/**
+	 * Maps a hash to its location below the store root.
+	 */
+	Path resolve(String hash) {
+		if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+			throw new IllegalArgumentException("Invalid image hash: " + hash);
+		}
+		return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+	Path resolve(String hash, ImageRendition rendition) {
+		Path original = resolve(hash);
+		if (rendition == ImageRendition.ORIGINAL) {
+			return original;
+		}
+		return original.resolveSibling(hash + "." + rendition.getKey() + ".jpg");
+	}
+
+	private Path resolveUndecodableMarker(String hash) {
+		return resolve(hash).resolveSibling(hash + ".undecodable");
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.claimit.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+
+/**
+ * {@link ImageAnnotator} that calls Google Cloud Vision through the shared
+ * {@link ImageAnnotatorClient} bean. The client is created lazily on first use
+ * so the application can start without Google credentials.
+ */
+@Service
+@ConditionalOnProperty(name = "claimit.vision.mode", havingValue = "google", matchIfMissing = true)
+public class GoogleVisionImageAnnotator implements ImageAnnotator {
+
+	@Lazy
+	@Autowired
+	private ImageAnnotatorClient imageAnnotatorClient;
+
+	@Override
+	public List<AnnotateImageResponse> batchAnnotate(List<AnnotateImageRequest> requests) {
+		return imageAnnotatorClient.batchAnnotateImages(requests).getResponsesList();
+	}
+
+}
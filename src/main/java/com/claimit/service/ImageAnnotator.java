@@ -0,0 +1,20 @@
+package com.claimit.service;
+
+import java.util.List;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+
+/**
+ * Runs image annotation requests against a vision backend. Responses are
+ * returned in the same order as the requests.
+ */
+public interface ImageAnnotator {
+
+	List<AnnotateImageResponse> batchAnnotate(List<AnnotateImageRequest> requests);
+
+	default AnnotateImageResponse annotate(AnnotateImageRequest request) {
+		return batchAnnotate(List.of(request)).get(0);
+	}
+
+}
@@ -0,0 +1,221 @@
+package com.claimit.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.claimit.dto.ImageRendition;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Produces the scaled {@link ImageRendition}s of uploaded item images. Work is
+ * done on a small bounded pool so a burst of uploads cannot exhaust memory; if
+ * the queue is full the job is dropped and the rendition is generated again the
+ * first time it is requested. An image has at most one job queued or running,
+ * so repeated requests for a missing rendition do not queue duplicates. An
+ * original that cannot be decoded is marked as such in the {@link ImageStore},
+ * so it is served in place of its renditions instead of being decoded again.
+ */
+@Service
+public class ImageRenditionService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImageRenditionService.class);
+
+	private static final float JPEG_QUALITY = 0.8f;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	private final ThreadPoolExecutor executor;
+
+	/** Images with a job queued or running. */
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+	private final class RenditionJob implements Runnable {
+
+		private final String imageHash;
+
+		private RenditionJob(String imageHash) {
+			this.imageHash = imageHash;
+		}
+
+		@Override
+		public void run() {
+			try {
+				generate(imageHash);
+			} finally {
+				pending.remove(imageHash);
+			}
+		}
+	}
+
+	public ImageRenditionService(@Value("${claimit.image-renditions.threads:2}") int threads,
+			@Value("${claimit.image-renditions.queue-capacity:100}") int queueCapacity) {
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "image-rendition-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, (runnable, pool) -> {
+					pending.remove(((RenditionJob) runnable).imageHash);
+					LOGGER.warn("Rendition queue is full, deferring renditions to first request.");
+				});
+	}
+
+	/**
+	 * Queues generation of all renditions of the given image.
+	 *
+	 * @param imageHash the content hash of the original image.
+	 */
+	public void generateAsync(String imageHash) {
+		if (pending.add(imageHash)) {
+			executor.execute(new RenditionJob(imageHash));
+		}
+	}
+
+	/**
+	 * Generates any missing renditions of the given image. The original is decoded
+	 * once and each rendition is scaled from the next larger one. An original no
+	 * image reader can decode is marked undecodable in the store.
+	 *
+	 * @param imageHash the content hash of the original image.
+	 */
+	public void generate(String imageHash) {
+		try {
+			BufferedImage original;
+			try {
+				original = decode(imageHash);
+			} catch (IIOException | RuntimeException e) {
+				LOGGER.warn("Image {} is corrupt: {}", imageHash, e.getMessage());
+				original = null;
+			}
+			if (original == null) {
+				LOGGER.warn("Image {} could not be decoded, no renditions generated.", imageHash);
+				imageStore.markUndecodable(imageHash);
+				return;
+			}
+			// Largest first, so each smaller rendition is scaled from the previous one.
+			BufferedImage source = original;
+			for (ImageRendition rendition : List.of(ImageRendition.PREVIEW, ImageRendition.THUMBNAIL)) {
+				source = scale(source, rendition.getMaxDimension());
+				if (!imageStore.exists(imageHash, rendition)) {
+					imageStore.saveRendition(imageHash, rendition, encodeJpeg(source));
+				}
+			}
+			LOGGER.debug("Renditions generated for image {}", imageHash);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.error("Failed to generate renditions for image {}: {}", imageHash, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Decodes the original image, subsampling very large photos while reading so
+	 * the decoded raster is not much bigger than the largest rendition.
+	 */
+	private BufferedImage decode(String imageHash) throws IOException {
+		try (InputStream in = imageStore.getResource(imageHash).getInputStream();
+				ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(imageInput, true, true);
+				int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+				int subsampling = Math.max(1, longestSide / (2 * ImageRendition.PREVIEW.getMaxDimension()));
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Scales the image so its longest side fits within maxDimension. Large
+	 * reductions are done in halving steps, which avoids the aliasing of a single
+	 * bilinear pass.
+	 */
+	private BufferedImage scale(BufferedImage source, int maxDimension) {
+		double ratio = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+		int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+		int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+		BufferedImage current = source;
+		do {
+			int width = Math.max(targetWidth, current.getWidth() / 2);
+			int height = Math.max(targetHeight, current.getHeight() / 2);
+			current = draw(current, width, height);
+		} while (current.getWidth() > targetWidth || current.getHeight() > targetHeight);
+		return current;
+	}
+
+	private BufferedImage draw(BufferedImage source, int width, int height) {
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = scaled.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			// Flatten transparency onto white, JPEG has no alpha channel.
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(0, 0, width, height);
+			graphics.drawImage(source, 0, 0, width, height, null);
+		} finally {
+			graphics.dispose();
+		}
+		return scaled;
+	}
+
+	private byte[] encodeJpeg(BufferedImage image) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(JPEG_QUALITY);
+			writer.setOutput(imageOutput);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		return out.toByteArray();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
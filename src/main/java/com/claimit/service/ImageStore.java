@@ -0,0 +1,84 @@
+package com.claimit.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import org.springframework.core.io.Resource;
+
+import com.claimit.dto.ImageRendition;
+import com.claimit.dto.StoredImage;
+
+
+/**
+ * Content addressed storage for item photos. Images are keyed by the SHA-256 of
+ * their bytes so identical uploads are only stored once and the key can be kept
+ * on the {@code Items} row instead of the photo itself.
+ */
+public interface ImageStore {
+
+	/**
+	 * Writes the stream to the store and returns its hash, size and content type.
+	 * The content type is detected from the leading bytes, never taken from the
+	 * client, and is {@code application/octet-stream} for anything but a JPEG,
+	 * PNG, GIF or WebP image. Storing content that already exists is a no-op.
+	 */
+	StoredImage save(InputStream content) throws IOException;
+
+	/**
+	 * Reads the full image for the given hash.
+	 * 
+	 * @throws java.io.FileNotFoundException if nothing is stored under the hash.
+	 */
+	byte[] load(String hash) throws IOException;
+
+	/**
+	 * Returns a readable resource for the given hash so the image can be streamed
+	 * to the client without buffering it in memory.
+	 */
+	Resource getResource(String hash);
+
+	boolean exists(String hash);
+
+	/**
+	 * Stores a scaled rendition next to the original image identified by the
+	 * hash. Renditions are always JPEG encoded.
+	 */
+	void saveRendition(String hash, ImageRendition rendition, byte[] content) throws IOException;
+
+	/**
+	 * Returns the given rendition of an image. {@link ImageRendition#ORIGINAL}
+	 * returns the uploaded image.
+	 */
+	Resource getResource(String hash, ImageRendition rendition);
+
+	boolean exists(String hash, ImageRendition rendition);
+
+	/**
+	 * Records that the original image identified by the hash cannot be decoded,
+	 * so no renditions will ever be generated for it.
+	 */
+	void markUndecodable(String hash) throws IOException;
+
+	/**
+	 * Returns whether the original image was recorded as undecodable by
+	 * {@link #markUndecodable(String)}.
+	 */
+	boolean isUndecodable(String hash);
+
+	/**
+	 * Reads the image for the given hash, returning an empty result when the hash
+	 * is null or the content cannot be read.
+	 */
+	default Optional<byte[]> find(String hash) {
+		if (hash == null || !exists(hash)) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(load(hash));
+		} catch (IOException e) {
+			return Optional.empty();
+		}
+	}
+
+}
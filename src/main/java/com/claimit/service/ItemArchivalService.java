@@ -0,0 +1,171 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.claimit.dto.ItemStatsKey;
+import com.claimit.dto.ItemStatus;
+import com.claimit.event.ItemsArchivedEvent;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Archives unclaimed items whose expiration date has passed with set-based
+ * updates instead of loading and saving every item.
+ *
+ * Expired items are archived in chunks of consecutive item IDs. Each chunk is
+ * one short transaction that locks the IDs it selects, updates their status
+ * with one statement and moves them between the monthly statistics counters.
+ * Only the columns needed for the statistics are read, so the detected text is
+ * never loaded, and rows that are not expired are never touched. Because the
+ * update bypasses the entity callbacks, an {@link ItemsArchivedEvent} with the
+ * archived IDs is published for each chunk, and the version of each item is
+ * incremented, so a copy of an item loaded before it was archived can no
+ * longer be saved.
+ */
+@Service
+public class ItemArchivalService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ItemArchivalService.class);
+
+	private static final String SELECT_COLUMNS = "SELECT item_id, org_id, category_id, received_date FROM items ";
+
+	private static final String SELECT_EXPIRED = SELECT_COLUMNS
+			+ "WHERE status = ? AND expiration_date < ? AND item_id > ? ORDER BY item_id LIMIT ? FOR UPDATE";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ItemStatsService itemStatsService;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${claimit.archival.chunk-size:500}")
+	private int chunkSize;
+
+	private TransactionTemplate transactionTemplate;
+
+	@PostConstruct
+	public void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * Archives every unclaimed item that expired before the given time.
+	 *
+	 * @param now the time to compare expiration dates with.
+	 * @return the IDs of the archived items, in ascending order.
+	 */
+	public List<Integer> archiveExpired(Date now) {
+		long start = System.currentTimeMillis();
+		List<Integer> archived = new ArrayList<>();
+		int after = 0;
+		while (true) {
+			final int from = after;
+			List<Integer> chunk = transactionTemplate.execute(
+					status -> archiveRows(SELECT_EXPIRED, ItemStatus.UNCLAIMED.name(), now, from, chunkSize));
+			if (chunk == null || chunk.isEmpty()) {
+				break;
+			}
+			archived.addAll(chunk);
+			after = chunk.get(chunk.size() - 1);
+			if (chunk.size() < chunkSize) {
+				break;
+			}
+		}
+		LOGGER.info("Archived {} expired items in {} ms", archived.size(), System.currentTimeMillis() - start);
+		return archived;
+	}
+
+	/**
+	 * Archives the given items among those that are still unclaimed and expired
+	 * at the given time. Items that were claimed or extended in the meantime are
+	 * left alone.
+	 *
+	 * @param itemIds the IDs of the items that are due.
+	 * @param now     the time to compare expiration dates with.
+	 * @return the IDs of the archived items, in ascending order.
+	 */
+	public List<Integer> archiveItems(List<Integer> itemIds, Date now) {
+		List<Integer> archived = new ArrayList<>();
+		for (int from = 0; from < itemIds.size(); from += chunkSize) {
+			List<Integer> chunkIds = itemIds.subList(from, Math.min(itemIds.size(), from + chunkSize));
+			Object[] args = new Object[chunkIds.size() + 2];
+			args[0] = ItemStatus.UNCLAIMED.name();
+			args[1] = now;
+			for (int i = 0; i < chunkIds.size(); i++) {
+				args[i + 2] = chunkIds.get(i);
+			}
+			String sql = SELECT_COLUMNS + "WHERE status = ? AND expiration_date <= ? AND item_id IN ("
+					+ placeholders(chunkIds.size()) + ") ORDER BY item_id FOR UPDATE";
+			List<Integer> chunk = transactionTemplate.execute(status -> archiveRows(sql, args));
+			if (chunk != null) {
+				archived.addAll(chunk);
+			}
+		}
+		LOGGER.info("Archived {} of {} due items", archived.size(), itemIds.size());
+		return archived;
+	}
+
+	/**
+	 * Archives the items selected and locked by the given query, inside the
+	 * caller's transaction.
+	 */
+	private List<Integer> archiveRows(String selectSql, Object... selectArgs) {
+		List<Integer> ids = new ArrayList<>();
+		Map<ItemStatsKey, Integer> countsByKey = new HashMap<>();
+		jdbcTemplate.query(selectSql, (RowCallbackHandler) rs -> {
+			ids.add(rs.getInt(1));
+			ItemStatsKey key = itemStatsService.keyOf(rs.getString(2), rs.getTimestamp(4), rs.getInt(3),
+					ItemStatus.UNCLAIMED);
+			if (key != null) {
+				countsByKey.merge(key, 1, Integer::sum);
+			}
+		}, selectArgs);
+		if (ids.isEmpty()) {
+			return ids;
+		}
+
+		Object[] args = new Object[ids.size() + 1];
+		args[0] = ItemStatus.ARCHIVED.name();
+		for (int i = 0; i < ids.size(); i++) {
+			args[i + 1] = ids.get(i);
+		}
+		jdbcTemplate.update("UPDATE items SET status = ?, version = version + 1 WHERE item_id IN ("
+				+ placeholders(ids.size()) + ")", args);
+
+		for (Map.Entry<ItemStatsKey, Integer> entry : countsByKey.entrySet()) {
+			ItemStatsKey from = entry.getKey();
+			ItemStatsKey to = new ItemStatsKey(from.getOrgId(), from.getMonth(), from.getCategoryId(),
+					ItemStatus.ARCHIVED);
+			itemStatsService.move(from, to, entry.getValue());
+		}
+		eventPublisher.publishEvent(new ItemsArchivedEvent(ids));
+		return ids;
+	}
+
+	private static String placeholders(int count) {
+		return String.join(", ", Collections.nCopies(count, "?"));
+	}
+
+}
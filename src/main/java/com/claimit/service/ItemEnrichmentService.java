@@ -0,0 +1,349 @@
+package com.claimit.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.claimit.dto.ItemStatus;
+import com.claimit.entity.Items;
+import com.claimit.repo.ItemsRepo;
+import com.claimit.utils.ColorUtils;
+import com.claimit.utils.HashUtils;
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.DominantColorsAnnotation;
+import com.google.cloud.vision.v1.EntityAnnotation;
+import com.google.cloud.vision.v1.Feature;
+import com.google.cloud.vision.v1.Image;
+import com.google.protobuf.ByteString;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Classifies uploaded items from their image: Vision annotation, subcategory
+ * matching, colour and text detection, carbon weight and the daily unique ID.
+ * The stages are used inline by the synchronous upload and by the background
+ * pipeline that enriches items saved as {@link ItemStatus#PENDING_ENRICHMENT}.
+ *
+ * Background jobs run on a bounded pool and are retried with exponential
+ * backoff. Items that are still pending after a restart, or whose job was
+ * rejected because the queue was full, are picked up again by a periodic
+ * sweep.
+ */
+@Service
+public class ItemEnrichmentService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ItemEnrichmentService.class);
+
+	public static final String UNKNOWN_ITEM = "Unknown Item";
+
+	private static final List<Feature> VISION_FEATURES = List.of(
+			Feature.newBuilder().setType(Feature.Type.OBJECT_LOCALIZATION).build(),
+			Feature.newBuilder().setType(Feature.Type.LABEL_DETECTION).build(),
+			Feature.newBuilder().setType(Feature.Type.IMAGE_PROPERTIES).build(),
+			Feature.newBuilder().setType(Feature.Type.TEXT_DETECTION).build());
+
+	private static final Map<String, String> CARBON_WEIGHT_MAPPING = Map.of("plastic", "3.5 kg", "paper", "1.2 kg",
+			"electronics", "5.0 kg", "unknown", "0.5 kg");
+
+	@Autowired
+	private ItemsRepo itemsRepository;
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private VisionBatcher visionBatcher;
+
+	@Autowired
+	private AnnotationCache annotationCache;
+
+	@Autowired
+	private DailySequenceService dailySequenceService;
+
+	@Value("${claimit.enrichment.max-attempts:3}")
+	private int maxAttempts;
+
+	@Value("${claimit.enrichment.retry-backoff-ms:2000}")
+	private long retryBackoffMs;
+
+	private final ThreadPoolExecutor executor;
+
+	private final ScheduledExecutorService retryScheduler;
+
+	/** Items queued or running, so the sweep does not queue them twice. */
+	private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+	public ItemEnrichmentService(@Value("${claimit.enrichment.threads:4}") int threads,
+			@Value("${claimit.enrichment.queue-capacity:200}") int queueCapacity) {
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "item-enrichment-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "item-enrichment-retry");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Annotates an item image with all item classification features. Results are
+	 * cached by content hash, so the preview and the upload of the same photo only
+	 * call Vision once.
+	 *
+	 * @param imageBytes the uploaded image.
+	 * @return the Vision response for the image.
+	 */
+	public AnnotateImageResponse annotateImage(byte[] imageBytes) {
+		String imageHash = HashUtils.sha256Hex(imageBytes);
+		Optional<AnnotateImageResponse> cached = annotationCache.get(imageHash);
+		if (cached.isPresent()) {
+			LOGGER.info("Reusing cached image analysis for image {}", imageHash);
+			return cached.get();
+		}
+
+		Image img = Image.newBuilder().setContent(ByteString.copyFrom(imageBytes)).build();
+		AnnotateImageRequest request = AnnotateImageRequest.newBuilder().setImage(img).addAllFeatures(VISION_FEATURES)
+				.build();
+		AnnotateImageResponse response = visionBatcher.annotate(request);
+		if (!response.hasError()) {
+			annotationCache.put(imageHash, response);
+		}
+		return response;
+	}
+
+	/**
+	 * Returns the cached Vision response of an image without calling Vision, for
+	 * callers that can do without it.
+	 *
+	 * @param imageBytes the image.
+	 * @return the cached response, or empty if the image was not annotated
+	 *         recently.
+	 */
+	public Optional<AnnotateImageResponse> findCachedAnnotation(byte[] imageBytes) {
+		return annotationCache.get(HashUtils.sha256Hex(imageBytes));
+	}
+
+	/**
+	 * Fills in the classification of an item from its Vision response: title,
+	 * name, category and subcategory, dominant colour, detected text, carbon weight
+	 * and description.
+	 *
+	 * @param item         the item to update.
+	 * @param response     the Vision response for the item image.
+	 * @param editedLabels labels entered by the user, used instead of the detected
+	 *                     labels when present.
+	 */
+	public void applyAnnotation(Items item, AnnotateImageResponse response, List<String> editedLabels) {
+		List<String> finalLabels = (editedLabels != null && !editedLabels.isEmpty()) ? editedLabels
+				: response.getLabelAnnotationsList().stream().map(EntityAnnotation::getDescription).distinct()
+						.collect(Collectors.toList());
+
+		String title = !finalLabels.isEmpty() ? finalLabels.get(0) : UNKNOWN_ITEM;
+		String description = "Detected Labels: " + String.join(", ", finalLabels);
+
+		List<CategoryDictionary.Subcategory> matchedSubcategories = finalLabels.stream()
+				.flatMap(label -> categoryDictionary.findSubcategories(label).stream()).distinct()
+				.collect(Collectors.toList());
+
+		if (!matchedSubcategories.isEmpty()) {
+			CategoryDictionary.Subcategory matchedSubcategory = matchedSubcategories.get(0);
+			item.setSubcatgeoryId(matchedSubcategory.getId());
+			item.setCategoryId(matchedSubcategory.getCategoryId());
+			LOGGER.info("Matched subcategory ID: {} for detected labels", matchedSubcategory.getId());
+		} else {
+			LOGGER.info("No matching subcategories found, setting default category and subcategory.");
+		}
+
+		String itemName = finalLabels.isEmpty() ? UNKNOWN_ITEM
+				: String.join(", ", finalLabels.subList(0, Math.min(3, finalLabels.size())));
+		item.setItemName(itemName);
+
+		if (response.hasImagePropertiesAnnotation()) {
+			DominantColorsAnnotation colors = response.getImagePropertiesAnnotation().getDominantColors();
+			String mostDominantColor = colors.getColorsList().stream()
+					.max((colorInfo1, colorInfo2) -> Float.compare(colorInfo1.getScore(), colorInfo2.getScore()))
+					.map(colorInfo -> ColorUtils.getClosestColorName((int) colorInfo.getColor().getRed(),
+							(int) colorInfo.getColor().getGreen(), (int) colorInfo.getColor().getBlue()))
+					.orElse("Unknown");
+			item.setColour(mostDominantColor);
+			description += ", Dominant Color: " + mostDominantColor;
+			LOGGER.info("Detected dominant color: {}", mostDominantColor);
+		}
+
+		List<String> texts = response.getTextAnnotationsList().stream().map(EntityAnnotation::getDescription)
+				.collect(Collectors.toList());
+		String detectedText = texts.isEmpty() ? "None" : String.join(", ", texts);
+		item.setDetectedText(detectedText);
+		description += ", Text Detected: " + detectedText;
+
+		item.setCarbonWeight(calculateCarbonWeight(finalLabels));
+		item.setTitle(title);
+		item.setDescription(description);
+	}
+
+	/**
+	 * Assigns the next daily unique ID, in the form {@code yyyy/MM/dd-n}.
+	 *
+	 * @param item the item to update.
+	 */
+	public void assignUniqueId(Items item) {
+		item.setUniqueId(dailySequenceService.nextUniqueId());
+	}
+
+	private String calculateCarbonWeight(List<String> detectedLabels) {
+		for (String label : detectedLabels) {
+			if (CARBON_WEIGHT_MAPPING.containsKey(label.toLowerCase())) {
+				return CARBON_WEIGHT_MAPPING.get(label.toLowerCase());
+			}
+		}
+
+		return "0.0 kg";
+	}
+
+	/**
+	 * Queues background enrichment of an item saved as PENDING_ENRICHMENT. If the
+	 * queue is full the item stays pending and is picked up by the next sweep.
+	 *
+	 * @param itemId       the ID of the pending item.
+	 * @param editedLabels labels entered by the user, or null to use the detected
+	 *                     labels.
+	 */
+	public void enrichAsync(int itemId, List<String> editedLabels) {
+		if (!inFlight.add(itemId)) {
+			return;
+		}
+		submit(itemId, editedLabels, 1);
+	}
+
+	private void submit(int itemId, List<String> editedLabels, int attempt) {
+		try {
+			executor.execute(() -> run(itemId, editedLabels, attempt));
+		} catch (RejectedExecutionException e) {
+			inFlight.remove(itemId);
+			LOGGER.warn("Enrichment queue is full, item {} will be picked up by the next sweep.", itemId);
+		}
+	}
+
+	private void run(int itemId, List<String> editedLabels, int attempt) {
+		try {
+			enrich(itemId, editedLabels);
+			inFlight.remove(itemId);
+		} catch (Exception e) {
+			if (attempt < maxAttempts) {
+				long delay = retryBackoffMs << (attempt - 1);
+				LOGGER.warn("Enrichment of item {} failed (attempt {} of {}), retrying in {} ms: {}", itemId, attempt,
+						maxAttempts, delay, e.getMessage());
+				retryScheduler.schedule(() -> submit(itemId, editedLabels, attempt + 1), delay,
+						TimeUnit.MILLISECONDS);
+			} else {
+				LOGGER.error("Enrichment of item {} failed after {} attempts: {}", itemId, attempt, e.getMessage(),
+						e);
+				markUnenriched(itemId, editedLabels);
+				inFlight.remove(itemId);
+			}
+		}
+	}
+
+	private void enrich(int itemId, List<String> editedLabels) throws Exception {
+		Optional<Items> pending = itemsRepository.findById(itemId);
+		if (pending.isEmpty() || pending.get().getStatus() != ItemStatus.PENDING_ENRICHMENT) {
+			return;
+		}
+		Items item = pending.get();
+		byte[] imageBytes = imageStore.load(item.getImageHash());
+		AnnotateImageResponse response = annotateImage(imageBytes);
+		if (response.hasError()) {
+			throw new IllegalStateException(response.getError().getMessage());
+		}
+		applyAnnotation(item, response, editedLabels);
+		assignUniqueId(item);
+		item.setStatus(ItemStatus.UNCLAIMED);
+		itemsRepository.save(item);
+		LOGGER.info("Item {} enriched with title: {}", itemId, item.getTitle());
+	}
+
+	/**
+	 * Releases an item whose enrichment kept failing, so it is still listed and
+	 * can be corrected by hand.
+	 */
+	private void markUnenriched(int itemId, List<String> editedLabels) {
+		try {
+			itemsRepository.findById(itemId).filter(item -> item.getStatus() == ItemStatus.PENDING_ENRICHMENT)
+					.ifPresent(item -> {
+						List<String> labels = editedLabels != null ? editedLabels : List.of();
+						item.setTitle(labels.isEmpty() ? UNKNOWN_ITEM : labels.get(0));
+						item.setItemName(labels.isEmpty() ? UNKNOWN_ITEM
+								: String.join(", ", labels.subList(0, Math.min(3, labels.size()))));
+						item.setDescription("Detected Labels: " + String.join(", ", labels));
+						item.setCarbonWeight(calculateCarbonWeight(labels));
+						assignUniqueId(item);
+						item.setStatus(ItemStatus.UNCLAIMED);
+						itemsRepository.save(item);
+					});
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not release unenriched item {}: {}", itemId, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Queues items left pending by a restart once the application is ready.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void requeuePendingOnStartup() {
+		requeuePending();
+	}
+
+	/**
+	 * Queues pending items that are not already queued, such as items whose job
+	 * was rejected while the queue was full. User edited labels are not persisted,
+	 * so re-queued items are classified from the detected labels.
+	 */
+	@Scheduled(fixedDelayString = "${claimit.enrichment.sweep-interval-ms:300000}", initialDelayString = "${claimit.enrichment.sweep-interval-ms:300000}")
+	public void requeuePending() {
+		List<Integer> pending = itemsRepository.findItemIdsByStatus(ItemStatus.PENDING_ENRICHMENT);
+		int queued = 0;
+		for (Integer itemId : pending) {
+			if (!inFlight.contains(itemId)) {
+				enrichAsync(itemId, null);
+				queued++;
+			}
+		}
+		if (queued > 0) {
+			LOGGER.info("Queued {} pending items for enrichment", queued);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		retryScheduler.shutdownNow();
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,221 @@
+package com.claimit.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.claimit.dto.ItemStatus;
+import com.claimit.event.ItemDeletedEvent;
+import com.claimit.event.ItemSavedEvent;
+import com.claimit.event.ItemsArchivedEvent;
+import com.claimit.utils.HierarchicalTimingWheel;
+
+/**
+ * Fires the expiry notices and the archival of unclaimed items at the moment
+ * they fall due, instead of sweeping the items table every day.
+ *
+ * Every unclaimed item with an expiration date has one timer in a
+ * {@link HierarchicalTimingWheel}, set to its next event: the next of the 30,
+ * 10, 2 and 1 day notices that is still ahead, or else the archival at the
+ * expiration date. When a notice fires the timer is set to the following
+ * event. The timers are loaded from the items table when the application
+ * starts, and are reset from the committed item events, so an item that is
+ * claimed, extended or deleted loses or moves its timer. Items that expired
+ * while the application was down are archived on the first tick, and an item
+ * whose latest notice fell due while it was down, and is not recorded as sent
+ * in {@link com.claimit.entity.ItemExpiryNotice}, gets that notice on the first
+ * tick.
+ *
+ * Archival is done in bulk by {@link ItemArchivalService} for the items due in
+ * the same tick, and it checks the status and expiration date again under a
+ * row lock, so a stale timer never archives an item that was claimed.
+ */
+@Service
+public class ItemExpiryScheduler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ItemExpiryScheduler.class);
+
+	private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+	/** Delay before archival is tried again after it failed. */
+	private static final long ARCHIVAL_RETRY_MILLIS = Duration.ofMinutes(1).toMillis();
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ItemArchivalService itemArchivalService;
+
+	@Autowired
+	private ExpiryNotificationJob expiryNotificationJob;
+
+	private final HierarchicalTimingWheel<Integer, Expiry> wheel;
+
+	/**
+	 * The event a timer fires: a notice some days before the expiration date, or
+	 * the archival when the number of days is zero.
+	 */
+	private static final class Expiry {
+
+		private final long expirationMillis;
+
+		private final int noticeDays;
+
+		private Expiry(long expirationMillis, int noticeDays) {
+			this.expirationMillis = expirationMillis;
+			this.noticeDays = noticeDays;
+		}
+	}
+
+	public ItemExpiryScheduler(@Value("${claimit.expiry-wheel.tick-ms:1000}") long tickMillis) {
+		this.wheel = new HierarchicalTimingWheel<>(tickMillis, System.currentTimeMillis());
+	}
+
+	/**
+	 * Sets a timer for every unclaimed item with an expiration date. An item whose
+	 * latest notice is already due but was not sent for its current expiration
+	 * date gets that notice first.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		long start = System.currentTimeMillis();
+		List<Object[]> rows = new ArrayList<>();
+		jdbcTemplate.query("SELECT i.item_id, i.expiration_date, n.notice_days FROM items i "
+				+ "LEFT JOIN item_expiry_notice n ON n.item_id = i.item_id AND n.expiration_date = i.expiration_date "
+				+ "WHERE i.status = ? AND i.expiration_date IS NOT NULL",
+				(RowCallbackHandler) rs -> rows.add(new Object[] { rs.getInt(1), rs.getTimestamp(2).getTime(),
+						rs.getObject(3) == null ? Integer.MAX_VALUE : rs.getInt(3) }),
+				ItemStatus.UNCLAIMED.name());
+		long now = System.currentTimeMillis();
+		int overdue = 0;
+		synchronized (wheel) {
+			for (Object[] row : rows) {
+				int itemId = (Integer) row[0];
+				long expirationMillis = (Long) row[1];
+				int dueDays = dueNoticeDays(expirationMillis, now);
+				if (dueDays > 0 && dueDays < (Integer) row[2]) {
+					wheel.schedule(itemId, now, new Expiry(expirationMillis, dueDays));
+					overdue++;
+				} else {
+					scheduleNext(itemId, expirationMillis, now);
+				}
+			}
+		}
+		LOGGER.info("Scheduled expiry timers for {} items, {} with an overdue notice, in {} ms", rows.size(), overdue,
+				System.currentTimeMillis() - start);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemSaved(ItemSavedEvent event) {
+		synchronized (wheel) {
+			if (event.getStatus() == ItemStatus.UNCLAIMED && event.getExpirationDate() != null) {
+				scheduleNext(event.getItemId(), event.getExpirationDate().getTime(), System.currentTimeMillis());
+			} else {
+				wheel.cancel(event.getItemId());
+			}
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemDeleted(ItemDeletedEvent event) {
+		synchronized (wheel) {
+			wheel.cancel(event.getItemId());
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemsArchived(ItemsArchivedEvent event) {
+		synchronized (wheel) {
+			for (Integer itemId : event.getItemIds()) {
+				wheel.cancel(itemId);
+			}
+		}
+	}
+
+	/**
+	 * Fires the timers that are due. Notices are sent and archivals done outside
+	 * the lock, so item updates are not held up by the mail server or database.
+	 */
+	@Scheduled(fixedDelayString = "${claimit.expiry-wheel.tick-ms:1000}")
+	public void tick() {
+		long now = System.currentTimeMillis();
+		Map<Integer, Expiry> dueForArchival = new TreeMap<>();
+		List<int[]> dueNotices = new ArrayList<>();
+		synchronized (wheel) {
+			wheel.advance(now, (itemId, expiry) -> {
+				if (expiry.noticeDays == 0) {
+					dueForArchival.put(itemId, expiry);
+				} else {
+					dueNotices.add(new int[] { itemId, expiry.noticeDays });
+					scheduleNext(itemId, expiry.expirationMillis, now);
+				}
+			});
+		}
+
+		for (int[] notice : dueNotices) {
+			expiryNotificationJob.sendNotice(notice[0], notice[1]);
+		}
+		if (!dueForArchival.isEmpty()) {
+			try {
+				itemArchivalService.archiveItems(new ArrayList<>(dueForArchival.keySet()), new Date(now));
+			} catch (RuntimeException e) {
+				LOGGER.error("Failed to archive {} expired items, retrying", dueForArchival.size(), e);
+				synchronized (wheel) {
+					for (Map.Entry<Integer, Expiry> entry : dueForArchival.entrySet()) {
+						if (!wheel.contains(entry.getKey())) {
+							wheel.schedule(entry.getKey(), now + ARCHIVAL_RETRY_MILLIS, entry.getValue());
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the timer of an item to its next notice that is still ahead, or to its
+	 * archival. The caller holds the lock on the wheel.
+	 */
+	private void scheduleNext(int itemId, long expirationMillis, long now) {
+		for (int days : ExpiryNotificationJob.NOTICE_DAYS) {
+			long noticeMillis = expirationMillis - days * DAY_MILLIS;
+			if (noticeMillis > now) {
+				wheel.schedule(itemId, noticeMillis, new Expiry(expirationMillis, days));
+				return;
+			}
+		}
+		wheel.schedule(itemId, expirationMillis, new Expiry(expirationMillis, 0));
+	}
+
+	/**
+	 * Returns the days of the latest notice of an item that is already due, or
+	 * zero if none is due yet or the item has expired.
+	 */
+	private static int dueNoticeDays(long expirationMillis, long now) {
+		if (expirationMillis <= now) {
+			return 0;
+		}
+		int dueDays = 0;
+		for (int days : ExpiryNotificationJob.NOTICE_DAYS) {
+			if (expirationMillis - days * DAY_MILLIS <= now) {
+				dueDays = days;
+			}
+		}
+		return dueDays;
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.claimit.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.claimit.dto.ItemDTO;
+import com.claimit.repo.ItemsRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes all items to an output stream for audits, as newline-delimited JSON or
+ * CSV. Rows are read from a database cursor and written one at a time, so the
+ * memory used does not depend on the number of items.
+ */
+@Service
+public class ItemExportService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ItemExportService.class);
+
+	private static final String[] CSV_COLUMNS = { "itemId", "uniqueId", "itemName", "status", "receivedDate",
+			"categoryName", "description", "userId", "userName", "email", "imageUrl" };
+
+	@Autowired
+	private ItemsRepo itemsRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Supported export formats.
+	 */
+	public enum Format {
+		NDJSON("application/x-ndjson", "ndjson"), CSV("text/csv", "csv");
+
+		private final String contentType;
+
+		private final String extension;
+
+		Format(String contentType, String extension) {
+			this.contentType = contentType;
+			this.extension = extension;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+	/**
+	 * Writes every item to the output stream in item ID order. The stream is
+	 * flushed but not closed.
+	 *
+	 * @param out    the stream to write to.
+	 * @param format the export format.
+	 * @return the number of items written.
+	 * @throws IOException if writing fails.
+	 */
+	@Transactional(readOnly = true)
+	public long exportItems(OutputStream out, Format format) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+		long count = 0;
+		if (format == Format.CSV) {
+			writer.write(String.join(",", CSV_COLUMNS));
+			writer.write('\n');
+		}
+		try (Stream<ItemDTO> items = itemsRepository.streamAllItems()) {
+			for (ItemDTO item : (Iterable<ItemDTO>) items::iterator) {
+				if (format == Format.CSV) {
+					writeCsvRow(writer, item, dateFormat);
+				} else {
+					writer.write(objectMapper.writeValueAsString(item));
+					writer.write('\n');
+				}
+				count++;
+			}
+		}
+		writer.flush();
+		LOGGER.info("Exported {} items as {}", count, format);
+		return count;
+	}
+
+	private void writeCsvRow(Writer writer, ItemDTO item, SimpleDateFormat dateFormat) throws IOException {
+		Object[] values = { item.getItemId(), item.getUniqueId(), item.getItemName(), item.getStatus(),
+				item.getReceivedDate() == null ? null : dateFormat.format(item.getReceivedDate()),
+				item.getCategoryName(), item.getDescription(), item.getUserId(), item.getUserName(), item.getEmail(),
+				item.getImageUrl() };
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writer.write(csvField(values[i]));
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * Quotes a CSV field when it contains a separator, quote or line break.
+	 */
+	private static String csvField(Object value) {
+		if (value == null) {
+			return "";
+		}
+		String text = value.toString();
+		if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+			return text;
+		}
+		return '"' + text.replace("\"", "\"\"") + '"';
+	}
+
+}
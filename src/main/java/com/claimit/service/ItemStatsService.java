@@ -0,0 +1,181 @@
+package com.claimit.service;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.claimit.dto.ItemStatsKey;
+import com.claimit.dto.ItemStatus;
+import com.claimit.entity.Items;
+import com.claimit.repo.ItemStatsMonthlyRepo;
+
+/**
+ * Keeps the {@code item_stats_monthly} rollup in step with the items table.
+ *
+ * Every item is counted in the row of its organisation, received month and
+ * category, under the counter of its status. The entity listener of
+ * {@link Items} remembers where a loaded item was counted and, when the item is
+ * saved with a different status, month, category or organisation, moves it
+ * between counters with upserts on the same connection and transaction as the
+ * item update. The dashboard then reads a handful of rollup rows instead of
+ * aggregating every item. Bulk updates that bypass the entity callbacks move
+ * their items with {@link #move(ItemStatsKey, ItemStatsKey, int)}.
+ *
+ * The rollup is filled from the items table when the application starts with
+ * an empty rollup, for example on the first start after the table is created.
+ * The backfill counts the rows with {@link #keyOf(String, Date, int, ItemStatus)}
+ * like the entity callbacks do, so both put an item in the same month whatever
+ * the time zone of the database session.
+ */
+@Service
+public class ItemStatsService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ItemStatsService.class);
+
+	private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+	private static final String[] STATUS_COLUMNS = new String[ItemStatus.values().length];
+
+	private static final String UPSERT;
+
+	static {
+		StringBuilder columns = new StringBuilder("org_id, stats_month, category_id, total_items");
+		StringBuilder values = new StringBuilder("?, ?, ?, ?");
+		StringBuilder updates = new StringBuilder("total_items = total_items + VALUES(total_items)");
+		for (ItemStatus status : ItemStatus.values()) {
+			String column = status.name().toLowerCase(Locale.ROOT);
+			STATUS_COLUMNS[status.ordinal()] = column;
+			columns.append(", ").append(column);
+			values.append(", ?");
+			updates.append(", ").append(column).append(" = ").append(column).append(" + VALUES(").append(column)
+					.append(')');
+		}
+		UPSERT = "INSERT INTO item_stats_monthly (" + columns + ") VALUES (" + values + ") ON DUPLICATE KEY UPDATE "
+				+ updates;
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ItemStatsMonthlyRepo itemStatsMonthlyRepo;
+
+	/**
+	 * Returns where an item is counted, or null if it has no status or received
+	 * date and is not counted.
+	 *
+	 * @param item the item.
+	 * @return the rollup row and counter of the item.
+	 */
+	public ItemStatsKey keyOf(Items item) {
+		return keyOf(item.getOrgId(), item.getReceivedDate(), item.getCategoryId(), item.getStatus());
+	}
+
+	/**
+	 * Returns where an item with the given column values is counted, or null if it
+	 * is not counted.
+	 *
+	 * @param orgId        the organisation of the item, may be null.
+	 * @param receivedDate the date the item was received.
+	 * @param categoryId   the category of the item.
+	 * @param status       the status of the item.
+	 * @return the rollup row and counter of the item.
+	 */
+	public ItemStatsKey keyOf(String orgId, Date receivedDate, int categoryId, ItemStatus status) {
+		if (status == null || receivedDate == null) {
+			return null;
+		}
+		String month = receivedDate.toInstant().atZone(ZoneId.systemDefault()).format(MONTH_FORMAT);
+		return new ItemStatsKey(orgId == null ? "" : orgId, month, categoryId, status);
+	}
+
+	/**
+	 * Moves an item from the counter it was counted in to its current one. Either
+	 * key may be null when the item was not, or is no longer, counted.
+	 *
+	 * @param from where the item was counted.
+	 * @param to   where the item is counted now.
+	 */
+	public void move(ItemStatsKey from, ItemStatsKey to) {
+		move(from, to, 1);
+	}
+
+	/**
+	 * Moves a number of items from one counter to another, for bulk updates.
+	 *
+	 * @param from  where the items were counted, may be null.
+	 * @param to    where the items are counted now, may be null.
+	 * @param count the number of items.
+	 */
+	public void move(ItemStatsKey from, ItemStatsKey to, int count) {
+		if (count == 0 || (from != null && from.equals(to))) {
+			return;
+		}
+		if (from != null) {
+			add(from, -count);
+		}
+		if (to != null) {
+			add(to, count);
+		}
+	}
+
+	private void add(ItemStatsKey key, int delta) {
+		jdbcTemplate.update(UPSERT, upsertArgs(key, delta));
+	}
+
+	private static Object[] upsertArgs(ItemStatsKey key, int delta) {
+		Object[] args = new Object[4 + STATUS_COLUMNS.length];
+		args[0] = key.getOrgId();
+		args[1] = key.getMonth();
+		args[2] = key.getCategoryId();
+		args[3] = delta;
+		for (int i = 0; i < STATUS_COLUMNS.length; i++) {
+			args[4 + i] = i == key.getStatus().ordinal() ? delta : 0;
+		}
+		return args;
+	}
+
+	/**
+	 * Fills the rollup from the items table if it is empty. Only the columns the
+	 * key is made of are read, and the counts are written with one batch of
+	 * upserts.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional
+	public void backfillIfEmpty() {
+		if (itemStatsMonthlyRepo.count() > 0) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		Map<ItemStatsKey, Integer> countsByKey = new HashMap<>();
+		jdbcTemplate.query("SELECT org_id, received_date, category_id, status FROM items "
+				+ "WHERE status IS NOT NULL AND received_date IS NOT NULL", (RowCallbackHandler) rs -> {
+					ItemStatsKey key = keyOf(rs.getString(1), rs.getTimestamp(2), rs.getInt(3),
+							ItemStatus.valueOf(rs.getString(4)));
+					countsByKey.merge(key, 1, Integer::sum);
+				});
+		List<Object[]> batchArgs = new ArrayList<>(countsByKey.size());
+		for (Map.Entry<ItemStatsKey, Integer> entry : countsByKey.entrySet()) {
+			batchArgs.add(upsertArgs(entry.getKey(), entry.getValue()));
+		}
+		jdbcTemplate.batchUpdate(UPSERT, batchArgs);
+		LOGGER.info("Filled {} monthly item statistics counters in {} ms", countsByKey.size(),
+				System.currentTimeMillis() - start);
+	}
+
+}
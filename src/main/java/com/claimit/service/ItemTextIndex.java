@@ -0,0 +1,560 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.claimit.event.ItemDeletedEvent;
+import com.claimit.event.ItemSavedEvent;
+import com.claimit.utils.LevenshteinAutomaton;
+
+/**
+ * Inverted index over the searchable text of items: name, title, description,
+ * detected text and colour. Each term maps to postings of item ordinals and
+ * field-weighted term frequencies held in primitive int arrays, so a query
+ * only touches the items that contain its terms.
+ *
+ * Matches are ranked with BM25. The term dictionary is kept sorted, so each
+ * query word is also expanded to the terms it is a prefix of and, by walking
+ * the dictionary with a {@link LevenshteinAutomaton}, to the terms within one
+ * or two typing errors of it. Expanded terms score less than exact ones.
+ *
+ * The ordinals of each category are kept as well, so a query that names a
+ * category is answered from the items of that category, ranked by how well
+ * they match the query words.
+ *
+ * The index is built from the items table once the application is ready and
+ * then follows {@link ItemSavedEvent}s and {@link ItemDeletedEvent}s after
+ * their transaction commits.
+ */
+@Service
+public class ItemTextIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ItemTextIndex.class);
+
+	private static final int NAME_WEIGHT = 3;
+
+	private static final int COLOUR_WEIGHT = 2;
+
+	private static final int TEXT_WEIGHT = 1;
+
+	/** BM25 term frequency saturation. */
+	private static final float K1 = 1.2f;
+
+	/** BM25 document length normalisation. */
+	private static final float B = 0.75f;
+
+	private static final int MIN_PREFIX_LENGTH = 3;
+
+	private static final float PREFIX_BOOST = 0.7f;
+
+	/** Boost of a fuzzy match, applied once per edit. */
+	private static final float FUZZY_BOOST = 0.5f;
+
+	/** Upper bound of dictionary terms a single query word expands to. */
+	private static final int MAX_EXPANSIONS = 50;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final NavigableMap<String, Postings> postingsByTerm = new TreeMap<>();
+
+	private final Map<Integer, Integer> ordinalsByItem = new HashMap<>();
+
+	private int[] itemIdsByOrdinal = new int[1024];
+
+	/** Sum of the field-weighted term frequencies of each ordinal. */
+	private int[] lengthsByOrdinal = new int[1024];
+
+	private long totalLength;
+
+	/** Terms indexed for each ordinal, so an update can remove the old ones. */
+	private String[][] termsByOrdinal = new String[1024][];
+
+	private int[] categoryIdsByOrdinal = new int[1024];
+
+	/** Ordinals of the items of each category, with a frequency of zero. */
+	private final Map<Integer, Postings> ordinalsByCategory = new HashMap<>();
+
+	private int ordinalCount;
+
+	private int liveCount;
+
+	/**
+	 * Postings of one term: parallel arrays of item ordinals and term frequencies.
+	 */
+	private static final class Postings {
+
+		private int[] ordinals = new int[4];
+
+		private int[] frequencies = new int[4];
+
+		private int size;
+
+		private void add(int ordinal, int frequency) {
+			if (size == ordinals.length) {
+				ordinals = Arrays.copyOf(ordinals, size * 2);
+				frequencies = Arrays.copyOf(frequencies, size * 2);
+			}
+			ordinals[size] = ordinal;
+			frequencies[size] = frequency;
+			size++;
+		}
+
+		private void remove(int ordinal) {
+			for (int i = 0; i < size; i++) {
+				if (ordinals[i] == ordinal) {
+					size--;
+					ordinals[i] = ordinals[size];
+					frequencies[i] = frequencies[size];
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Per-thread score accumulators, reused across queries so a search allocates
+	 * nothing proportional to the index size. Only the touched entries are reset
+	 * after each query.
+	 */
+	private static final class Scratch {
+
+		private float[] scores = new float[0];
+
+		private int[] matchedTerms = new int[0];
+
+		/** Best score of each ordinal for the query word being evaluated. */
+		private float[] wordScores = new float[0];
+
+		/** One plus the index of the query word that last touched each ordinal. */
+		private int[] wordMarks = new int[0];
+
+		private int[] touched = new int[256];
+
+		private int[] wordTouched = new int[256];
+
+		private Scratch ensureCapacity(int ordinals) {
+			if (scores.length < ordinals) {
+				int capacity = Math.max(ordinals, scores.length * 2);
+				scores = new float[capacity];
+				matchedTerms = new int[capacity];
+				wordScores = new float[capacity];
+				wordMarks = new int[capacity];
+			}
+			return this;
+		}
+	}
+
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	/**
+	 * Builds the index from the items table.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		RowCallbackHandler indexRow = rs -> index(rs.getInt("item_id"), rs.getString("item_name"),
+				rs.getString("title"), rs.getString("description"), rs.getString("detected_text"),
+				rs.getString("colour"), rs.getInt("category_id"));
+		jdbcTemplate.query("SELECT item_id, item_name, title, description, detected_text, colour, category_id "
+				+ "FROM items ORDER BY item_id", indexRow);
+		LOGGER.info("Text index loaded with {} items and {} terms", liveCount, postingsByTerm.size());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemSaved(ItemSavedEvent event) {
+		index(event.getItemId(), event.getItemName(), event.getTitle(), event.getDescription(),
+				event.getDetectedText(), event.getColour(), event.getCategoryId());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemDeleted(ItemDeletedEvent event) {
+		remove(event.getItemId());
+	}
+
+	/**
+	 * Indexes or re-indexes the text and category of an item.
+	 */
+	public void index(int itemId, String itemName, String title, String description, String detectedText,
+			String colour, int categoryId) {
+		Map<String, Integer> frequencies = new HashMap<>();
+		addTerms(frequencies, itemName, NAME_WEIGHT);
+		addTerms(frequencies, title, NAME_WEIGHT);
+		addTerms(frequencies, colour, COLOUR_WEIGHT);
+		addTerms(frequencies, description, TEXT_WEIGHT);
+		addTerms(frequencies, detectedText, TEXT_WEIGHT);
+
+		lock.writeLock().lock();
+		try {
+			Integer existing = ordinalsByItem.get(itemId);
+			int ordinal;
+			if (existing != null) {
+				ordinal = existing;
+				removeTerms(ordinal);
+				removeCategory(ordinal);
+			} else {
+				if (ordinalCount == itemIdsByOrdinal.length) {
+					itemIdsByOrdinal = Arrays.copyOf(itemIdsByOrdinal, ordinalCount * 2);
+					lengthsByOrdinal = Arrays.copyOf(lengthsByOrdinal, ordinalCount * 2);
+					termsByOrdinal = Arrays.copyOf(termsByOrdinal, ordinalCount * 2);
+					categoryIdsByOrdinal = Arrays.copyOf(categoryIdsByOrdinal, ordinalCount * 2);
+				}
+				ordinal = ordinalCount++;
+				itemIdsByOrdinal[ordinal] = itemId;
+				ordinalsByItem.put(itemId, ordinal);
+				liveCount++;
+			}
+			String[] terms = frequencies.keySet().toArray(new String[0]);
+			int length = 0;
+			for (String term : terms) {
+				int frequency = frequencies.get(term);
+				postingsByTerm.computeIfAbsent(term, t -> new Postings()).add(ordinal, frequency);
+				length += frequency;
+			}
+			termsByOrdinal[ordinal] = terms;
+			lengthsByOrdinal[ordinal] = length;
+			totalLength += length;
+			categoryIdsByOrdinal[ordinal] = categoryId;
+			ordinalsByCategory.computeIfAbsent(categoryId, c -> new Postings()).add(ordinal, 0);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes an item from the index. Its ordinal is not reused.
+	 */
+	public void remove(int itemId) {
+		lock.writeLock().lock();
+		try {
+			Integer ordinal = ordinalsByItem.remove(itemId);
+			if (ordinal != null) {
+				removeTerms(ordinal);
+				removeCategory(ordinal);
+				termsByOrdinal[ordinal] = null;
+				liveCount--;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void removeTerms(int ordinal) {
+		String[] terms = termsByOrdinal[ordinal];
+		if (terms == null) {
+			return;
+		}
+		totalLength -= lengthsByOrdinal[ordinal];
+		lengthsByOrdinal[ordinal] = 0;
+		for (String term : terms) {
+			Postings postings = postingsByTerm.get(term);
+			if (postings != null) {
+				postings.remove(ordinal);
+				if (postings.size == 0) {
+					postingsByTerm.remove(term);
+				}
+			}
+		}
+	}
+
+	private void removeCategory(int ordinal) {
+		int categoryId = categoryIdsByOrdinal[ordinal];
+		Postings postings = ordinalsByCategory.get(categoryId);
+		if (postings != null) {
+			postings.remove(ordinal);
+			if (postings.size == 0) {
+				ordinalsByCategory.remove(categoryId);
+			}
+		}
+	}
+
+	/**
+	 * Returns the IDs of the items that match the most query words, ranked by
+	 * BM25 score within the same number of matched words. A word matches an item
+	 * that contains it, a term it is a prefix of, or a term within its edit
+	 * distance; the best of these counts once per word.
+	 *
+	 * @param query the search text.
+	 * @param limit the maximum number of IDs to return.
+	 * @return the matching item IDs, best first.
+	 */
+	public List<Integer> search(String query, int limit) {
+		return search(QueryAnalyzer.tokenize(query), limit);
+	}
+
+	/**
+	 * Returns the IDs of the items that match the most of the given analysed
+	 * query words, ranked as by {@link #search(String, int)}.
+	 *
+	 * @param queryWords the lower case query words.
+	 * @param limit      the maximum number of IDs to return.
+	 * @return the matching item IDs, best first.
+	 */
+	public List<Integer> search(Collection<String> queryWords, int limit) {
+		return search(queryWords, null, limit);
+	}
+
+	/**
+	 * Returns the IDs of the items of a category ranked by how many of the given
+	 * analysed query words they match, then by BM25 score, so items of the
+	 * category that match none of the words come last, newest first. Without a
+	 * category this is {@link #search(Collection, int)}.
+	 *
+	 * @param queryWords the lower case query words.
+	 * @param categoryId the category the results must belong to, or null.
+	 * @param limit      the maximum number of IDs to return.
+	 * @return the matching item IDs, best first.
+	 */
+	public List<Integer> search(Collection<String> queryWords, Integer categoryId, int limit) {
+		Set<String> words = new LinkedHashSet<>(queryWords);
+		List<Integer> results = new ArrayList<>();
+		if (words.isEmpty() && categoryId == null) {
+			return results;
+		}
+
+		lock.readLock().lock();
+		try {
+			Scratch scratch = SCRATCH.get().ensureCapacity(ordinalCount);
+			float[] scores = scratch.scores;
+			int[] matchedTerms = scratch.matchedTerms;
+			float[] wordScores = scratch.wordScores;
+			int[] wordMarks = scratch.wordMarks;
+			int[] touched = scratch.touched;
+			int[] wordTouched = scratch.wordTouched;
+			int touchedCount = 0;
+			float averageLength = liveCount == 0 ? 1 : Math.max(1, (float) totalLength / liveCount);
+
+			int mark = 0;
+			for (String word : words) {
+				mark++;
+				int wordTouchedCount = 0;
+				for (Map.Entry<String, Float> expansion : expand(word).entrySet()) {
+					Postings postings = postingsByTerm.get(expansion.getKey());
+					float idf = (float) Math.log(1 + (liveCount - postings.size + 0.5) / (postings.size + 0.5));
+					float weight = expansion.getValue() * idf;
+					for (int i = 0; i < postings.size; i++) {
+						int ordinal = postings.ordinals[i];
+						int frequency = postings.frequencies[i];
+						float norm = K1 * (1 - B + B * lengthsByOrdinal[ordinal] / averageLength);
+						float score = weight * frequency * (K1 + 1) / (frequency + norm);
+						if (wordMarks[ordinal] != mark) {
+							if (wordTouchedCount == wordTouched.length) {
+								wordTouched = Arrays.copyOf(wordTouched, wordTouchedCount * 2);
+							}
+							wordTouched[wordTouchedCount++] = ordinal;
+							wordMarks[ordinal] = mark;
+							wordScores[ordinal] = score;
+						} else if (score > wordScores[ordinal]) {
+							wordScores[ordinal] = score;
+						}
+					}
+				}
+				for (int i = 0; i < wordTouchedCount; i++) {
+					int ordinal = wordTouched[i];
+					if (matchedTerms[ordinal] == 0) {
+						if (touchedCount == touched.length) {
+							touched = Arrays.copyOf(touched, touchedCount * 2);
+						}
+						touched[touchedCount++] = ordinal;
+					}
+					matchedTerms[ordinal]++;
+					scores[ordinal] += wordScores[ordinal];
+				}
+			}
+
+			// A category query ranks the ordinals of the category, matched or not,
+			// instead of the matched ordinals.
+			int[] candidates = touched;
+			int candidateCount = touchedCount;
+			if (categoryId != null) {
+				Postings category = ordinalsByCategory.get(categoryId);
+				candidates = category == null ? new int[0] : category.ordinals;
+				candidateCount = category == null ? 0 : category.size;
+			}
+
+			// Keep the best ordinals in a min-heap of the limit size, so ranking costs
+			// O(n log k) instead of sorting every match.
+			int[] heap = new int[Math.min(limit, candidateCount)];
+			int heapSize = 0;
+			for (int i = 0; i < candidateCount; i++) {
+				int ordinal = candidates[i];
+				if (heapSize < heap.length) {
+					heap[heapSize] = ordinal;
+					siftUp(heap, heapSize++, matchedTerms, scores);
+				} else if (heap.length > 0 && compare(ordinal, heap[0], matchedTerms, scores) > 0) {
+					heap[0] = ordinal;
+					siftDown(heap, heapSize, matchedTerms, scores);
+				}
+			}
+			int[] ranked = new int[heapSize];
+			while (heapSize > 0) {
+				ranked[heapSize - 1] = heap[0];
+				heap[0] = heap[--heapSize];
+				siftDown(heap, heapSize, matchedTerms, scores);
+			}
+			for (int ordinal : ranked) {
+				results.add(itemIdsByOrdinal[ordinal]);
+			}
+			for (int i = 0; i < touchedCount; i++) {
+				scores[touched[i]] = 0;
+				matchedTerms[touched[i]] = 0;
+				wordMarks[touched[i]] = 0;
+			}
+			scratch.touched = touched;
+			scratch.wordTouched = wordTouched;
+		} finally {
+			lock.readLock().unlock();
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the dictionary terms a query word matches with the boost of each:
+	 * the word itself, the terms it is a prefix of and the terms within its edit
+	 * distance. Must be called under the read lock.
+	 */
+	private Map<String, Float> expand(String word) {
+		Map<String, Float> expansions = new LinkedHashMap<>();
+		if (postingsByTerm.containsKey(word)) {
+			expansions.put(word, 1f);
+		}
+		if (word.length() >= MIN_PREFIX_LENGTH) {
+			for (String term : postingsByTerm.subMap(word, false, word + Character.MAX_VALUE, false).keySet()) {
+				if (expansions.size() >= MAX_EXPANSIONS) {
+					break;
+				}
+				expansions.put(term, PREFIX_BOOST);
+			}
+		}
+		int maxEdits = word.length() >= 8 ? 2 : word.length() >= 4 ? 1 : 0;
+		if (maxEdits > 0) {
+			addFuzzyExpansions(new LevenshteinAutomaton(word, maxEdits), expansions);
+		}
+		return expansions;
+	}
+
+	/**
+	 * Walks the sorted dictionary with a Levenshtein automaton. States are kept
+	 * per depth, so consecutive terms reuse the states of their common prefix,
+	 * and a prefix that can no longer match skips all terms that start with it.
+	 */
+	private void addFuzzyExpansions(LevenshteinAutomaton automaton, Map<String, Float> expansions) {
+		int[][] states = new int[32][];
+		states[0] = automaton.start();
+		String path = "";
+		String term = postingsByTerm.isEmpty() ? null : postingsByTerm.firstKey();
+		while (term != null && expansions.size() < MAX_EXPANSIONS) {
+			int depth = commonPrefixLength(path, term);
+			boolean dead = false;
+			while (depth < term.length()) {
+				if (depth + 1 == states.length) {
+					states = Arrays.copyOf(states, states.length * 2);
+				}
+				states[depth + 1] = automaton.step(states[depth], term.charAt(depth));
+				depth++;
+				if (!automaton.canMatch(states[depth])) {
+					dead = true;
+					break;
+				}
+			}
+			path = term.substring(0, depth);
+			if (dead) {
+				term = postingsByTerm.higherKey(path + Character.MAX_VALUE);
+				continue;
+			}
+			if (automaton.isMatch(states[depth])) {
+				float boost = (float) Math.pow(FUZZY_BOOST, automaton.distance(states[depth]));
+				expansions.merge(term, boost, Math::max);
+			}
+			term = postingsByTerm.higherKey(term);
+		}
+	}
+
+	private static int commonPrefixLength(String a, String b) {
+		int length = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < length && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Orders ordinals by the number of matched query terms, then by score, then
+	 * by ordinal, so among equals the item indexed last ranks first.
+	 */
+	private static int compare(int a, int b, int[] matchedTerms, float[] scores) {
+		if (matchedTerms[a] != matchedTerms[b]) {
+			return Integer.compare(matchedTerms[a], matchedTerms[b]);
+		}
+		if (scores[a] != scores[b]) {
+			return Float.compare(scores[a], scores[b]);
+		}
+		return Integer.compare(a, b);
+	}
+
+	private static void siftUp(int[] heap, int index, int[] matchedTerms, float[] scores) {
+		int ordinal = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (compare(ordinal, heap[parent], matchedTerms, scores) >= 0) {
+				break;
+			}
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = ordinal;
+	}
+
+	private static void siftDown(int[] heap, int size, int[] matchedTerms, float[] scores) {
+		if (size == 0) {
+			return;
+		}
+		int ordinal = heap[0];
+		int index = 0;
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && compare(heap[child + 1], heap[child], matchedTerms, scores) < 0) {
+				child++;
+			}
+			if (compare(ordinal, heap[child], matchedTerms, scores) <= 0) {
+				break;
+			}
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = ordinal;
+	}
+
+	private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+		for (String term : QueryAnalyzer.tokenize(text)) {
+			frequencies.merge(term, weight, Integer::sum);
+		}
+	}
+
+}
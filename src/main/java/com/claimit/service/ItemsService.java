@@ -1,15 +1,17 @@
 package com.claimit.service;
 
-import java.awt.Color;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.DateFormatSymbols;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -23,37 +25,38 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.claimit.constants.Constants;
+import com.claimit.dto.ImageRendition;
 import com.claimit.dto.ItemDTO;
+import com.claimit.dto.ItemImageDTO;
 import com.claimit.dto.ItemStatus;
 import com.claimit.dto.ItemStatusCountDTO;
+import com.claimit.dto.ItemSummaryView;
 import com.claimit.dto.ItemsSearchDTO;
-import com.claimit.entity.Categories;
+import com.claimit.dto.StoredImage;
 import com.claimit.entity.Items;
 import com.claimit.entity.ItemsRequest;
 import com.claimit.entity.Organisation;
-import com.claimit.entity.Subcategories;
 import com.claimit.exception.ItemNotFoundException;
-import com.claimit.repo.CategoriesRepo;
 import com.claimit.repo.ItemRequestRepo;
+import com.claimit.repo.ItemStatsMonthlyRepo;
 import com.claimit.repo.ItemsRepo;
 import com.claimit.repo.OrganisationRepository;
-import com.claimit.repo.SubCategoriesRepo;
 import com.claimit.repo.UserRepo;
+import com.claimit.service.QueryAnalyzer.AnalyzedQuery;
 import com.claimit.utils.ColorUtils;
-import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.claimit.utils.HashUtils;
+import com.claimit.utils.ImageFeatures;
+import com.claimit.utils.PerceptualHash;
 import com.google.cloud.vision.v1.AnnotateImageResponse;
 import com.google.cloud.vision.v1.DominantColorsAnnotation;
 import com.google.cloud.vision.v1.EntityAnnotation;
-import com.google.cloud.vision.v1.Feature;
-import com.google.cloud.vision.v1.Image;
-import com.google.cloud.vision.v1.ImageAnnotatorClient;
-import com.google.protobuf.ByteString;
 
 @Service
 public class ItemsService {
@@ -74,13 +77,51 @@ public class ItemsService {
 	private OrganisationRepository organisationRepository;
 
 	@Autowired
-	private CategoriesRepo categoriesRepo;
+	private CategoryDictionary categoryDictionary;
 
 	@Autowired
-	private SubCategoriesRepo subCategoriesRepo;
+	private ItemStatsMonthlyRepo itemStatsMonthlyRepo;
+
+	@Autowired
+	private ItemArchivalService itemArchivalService;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private ImageRenditionService imageRenditionService;
+
+	@Autowired
+	private ItemEnrichmentService itemEnrichmentService;
+
+	@Autowired
+	private PerceptualHashIndex perceptualHashIndex;
+
+	@Autowired
+	private VisualSimilarityIndex visualSimilarityIndex;
+
+	@Autowired
+	private ItemTextIndex itemTextIndex;
+
+	@Autowired
+	private QueryAnalyzer queryAnalyzer;
+
+	@Autowired
+	private SuggestionIndex suggestionIndex;
+
+	@Value("${claimit.image-search.max-distance:10}")
+	private int imageSearchMaxDistance;
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ItemsService.class);
 
+	private static final int MAX_SIMILAR_ITEMS = 100;
+
+	private static final int MAX_SEARCH_RESULTS = 200;
+
+	private static final int DEFAULT_PAGE_SIZE = 50;
+
+	private static final int MAX_PAGE_SIZE = 500;
+
 	/**
 	 * Detects labels from an image and updates item information based on detected
 	 * features.
@@ -113,101 +154,20 @@ public class ItemsService {
 		res.put(Constants.SUCCESS, false);
 		res.put(Constants.MESSAGE, Constants.INVALID_INPUTS);
 
-		ByteString imgBytes = ByteString.readFrom(file.getInputStream());
-		Image img = Image.newBuilder().setContent(imgBytes).build();
-
-		List<Feature> features = List.of(Feature.newBuilder().setType(Feature.Type.OBJECT_LOCALIZATION).build(),
-				Feature.newBuilder().setType(Feature.Type.LABEL_DETECTION).build(),
-				Feature.newBuilder().setType(Feature.Type.IMAGE_PROPERTIES).build(),
-				Feature.newBuilder().setType(Feature.Type.TEXT_DETECTION).build());
+		byte[] imageBytes = file.getBytes();
 
-		AnnotateImageRequest request = AnnotateImageRequest.newBuilder().setImage(img).addAllFeatures(features).build();
-
-		try (ImageAnnotatorClient client = ImageAnnotatorClient.create()) {
-			AnnotateImageResponse response = client.batchAnnotateImages(List.of(request)).getResponsesList().get(0);
+		try {
+			AnnotateImageResponse response = itemEnrichmentService.annotateImage(imageBytes);
 			LOGGER.info("Image analysis completed for organization ID: {}", orgId);
 
-			Items item = new Items();
-			item.setImage(file.getBytes());
-
-			Date setReceivedDate = new Date();
-			item.setReceivedDate(setReceivedDate);
-
-			Calendar calendar = Calendar.getInstance();
-			calendar.setTime(setReceivedDate);
-			calendar.add(Calendar.DAY_OF_MONTH, 30);
-			Date expirationDate = calendar.getTime();
-			item.setExpirationDate(expirationDate);
-
-			Organisation organisation = organisationRepository.findById(orgId).orElseGet(() -> {
-				Organisation newOrganisation = new Organisation();
-				newOrganisation.setOrgId(orgId);
-				newOrganisation.setOrgName("Default Organisation " + orgId);
-				LOGGER.info("Created new organization with ID: {}", orgId);
-				return organisationRepository.save(newOrganisation);
-			});
-
-			List<String> finalLabels = (editedLabels != null && !editedLabels.isEmpty()) ? editedLabels
-					: response.getLabelAnnotationsList().stream().map(EntityAnnotation::getDescription).distinct()
-							.collect(Collectors.toList());
-
-			String title = !finalLabels.isEmpty() ? finalLabels.get(0) : "Unknown Item";
-			String description = "Detected Labels: " + String.join(", ", finalLabels);
-
-			List<Subcategories> matchedSubcategories = finalLabels.stream()
-					.flatMap(label -> subCategoriesRepo.findByNameLikeIgnoreCase(label.toLowerCase()).stream())
-					.distinct().collect(Collectors.toList());
-
-			if (!matchedSubcategories.isEmpty()) {
-				Subcategories matchedSubcategory = matchedSubcategories.get(0);
-				item.setSubcatgeoryId(matchedSubcategory.getId());
-				item.setCategoryId(matchedSubcategory.getCategoryId());
-				LOGGER.info("Matched subcategory ID: {} for detected labels", matchedSubcategory.getId());
-			} else {
-//				item.setSubcatgeoryId(30);
-//				item.setCategoryId(7);
-				LOGGER.info("No matching subcategories found, setting default category and subcategory.");
-			}
-
-			String itemName = finalLabels.isEmpty() ? "Unknown Item"
-					: String.join(", ", finalLabels.subList(0, Math.min(3, finalLabels.size())));
-			item.setItemName(itemName);
-
-			if (response.hasImagePropertiesAnnotation()) {
-				DominantColorsAnnotation colors = response.getImagePropertiesAnnotation().getDominantColors();
-				String mostDominantColor = colors.getColorsList().stream()
-						.max((colorInfo1, colorInfo2) -> Float.compare(colorInfo1.getScore(), colorInfo2.getScore()))
-						.map(colorInfo -> ColorUtils.getClosestColorName((int) colorInfo.getColor().getRed(),
-								(int) colorInfo.getColor().getGreen(), (int) colorInfo.getColor().getBlue()))
-						.orElse("Unknown");
-				item.setColour(mostDominantColor);
-				description += ", Dominant Color: " + mostDominantColor;
-				LOGGER.info("Detected dominant color: {}", mostDominantColor);
-			}
-
-			List<String> texts = response.getTextAnnotationsList().stream().map(EntityAnnotation::getDescription)
-					.collect(Collectors.toList());
-			String detectedText = texts.isEmpty() ? "None" : String.join(", ", texts);
-			item.setDetectedText(detectedText);
-			description += ", Text Detected: " + detectedText;
-
-			LocalDate currentDate = LocalDate.now();
-			String formattedDate = currentDate.format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-
-			int latestNumber = itemsRepository.findLatestNumberByDate(formattedDate).orElse(0);
-			int newNumber = latestNumber + 1;
-
-			String uniqueId = formattedDate + "-" + newNumber;
-
-			String carbonWeight = calculateCarbonWeight(finalLabels, item.getCategoryId());
-			item.setCarbonWeight(carbonWeight);
-			item.setTitle(title);
-			item.setOrgId(orgId);
+			Items item = createIntakeItem(file, orgId);
+			itemEnrichmentService.applyAnnotation(item, response, editedLabels);
+			itemEnrichmentService.assignUniqueId(item);
 			item.setStatus(ItemStatus.UNCLAIMED);
-			item.setUniqueId(uniqueId);
-			item.setDescription(description);
 			itemsRepository.save(item);
 
+			String title = item.getTitle();
+			String description = item.getDescription();
 			res.put("title", title);
 			res.put("description", description);
 			res.put("success", true);
@@ -223,17 +183,113 @@ public class ItemsService {
 		return res;
 	}
 
-	private String calculateCarbonWeight(List<String> detectedLabels, int categoryId) {
-		Map<String, String> carbonWeightMapping = Map.of("plastic", "3.5 kg", "paper", "1.2 kg", "electronics",
-				"5.0 kg", "unknown", "0.5 kg");
+	/**
+	 * Accepts an upload without waiting for image analysis. The image is stored
+	 * and the item is saved as PENDING_ENRICHMENT, then labels, category, colour,
+	 * text and the unique ID are filled in by the background enrichment pipeline.
+	 * Clients poll {@link #getEnrichmentStatus(int)} for the result.
+	 *
+	 * @param file         The image file to be analyzed.
+	 * @param orgId        The organization ID associated with the item.
+	 * @param editedLabels Labels entered by the user, used instead of the detected
+	 *                     labels when present.
+	 * @return A map containing the status of the operation and the ID of the
+	 *         pending item.
+	 */
+	public Map<String, Object> detectLabelsAsync(MultipartFile file, String orgId, List<String> editedLabels) {
 
-		for (String label : detectedLabels) {
-			if (carbonWeightMapping.containsKey(label.toLowerCase())) {
-				return carbonWeightMapping.get(label.toLowerCase());
-			}
+		LOGGER.info("Accepting upload for background enrichment for organization ID: {}", orgId);
+
+		Map<String, Object> res = new HashMap<>();
+		res.put(Constants.SUCCESS, false);
+		res.put(Constants.MESSAGE, Constants.INVALID_INPUTS);
+
+		try {
+			Items item = createIntakeItem(file, orgId);
+			item.setTitle(ItemEnrichmentService.UNKNOWN_ITEM);
+			item.setItemName(ItemEnrichmentService.UNKNOWN_ITEM);
+			item.setStatus(ItemStatus.PENDING_ENRICHMENT);
+			Items saved = itemsRepository.save(item);
+			itemEnrichmentService.enrichAsync(saved.getItemId(), editedLabels);
+
+			res.put("itemId", saved.getItemId());
+			res.put("status", saved.getStatus());
+			res.put(Constants.SUCCESS, true);
+			res.put(Constants.MESSAGE, Constants.ITEM_ACCEPTED_FOR_ENRICHMENT);
+			LOGGER.info("Item {} saved pending enrichment", saved.getItemId());
+
+		} catch (Exception e) {
+			LOGGER.error("Error occurred while accepting upload: {}", e.getMessage(), e);
+
+			res.put("exception", e.getMessage());
+		}
+
+		return res;
+	}
+
+	/**
+	 * Returns the enrichment state of an item accepted by
+	 * {@link #detectLabelsAsync(MultipartFile, String, List)}. Once the status is
+	 * no longer PENDING_ENRICHMENT the classification fields are included.
+	 *
+	 * @param itemId The ID of the item.
+	 * @return A map containing the item status and, when enriched, its details.
+	 */
+	public Map<String, Object> getEnrichmentStatus(int itemId) {
+		Map<String, Object> res = new HashMap<>();
+		Optional<Items> item = itemsRepository.findById(itemId);
+		if (item.isEmpty()) {
+			res.put(Constants.SUCCESS, false);
+			res.put(Constants.MESSAGE, Constants.ITEM_NOT_FOUND);
+			return res;
+		}
+
+		res.put(Constants.SUCCESS, true);
+		res.put("itemId", itemId);
+		res.put("status", item.get().getStatus());
+		if (item.get().getStatus() != ItemStatus.PENDING_ENRICHMENT) {
+			res.put("title", item.get().getTitle());
+			res.put("itemName", item.get().getItemName());
+			res.put("description", item.get().getDescription());
+			res.put("uniqueId", item.get().getUniqueId());
+			res.put("colour", item.get().getColour());
+			res.put("imageUrl", Constants.itemImageUrl(itemId, item.get().getImageHash()));
+		}
+		return res;
+	}
+
+	/**
+	 * Creates a new item for an upload: stores the image, sets the received and
+	 * expiration dates, and links the organisation, creating it if needed.
+	 */
+	private Items createIntakeItem(MultipartFile file, String orgId) throws IOException {
+		Items item = new Items();
+		StoredImage storedImage = imageStore.save(file.getInputStream());
+		item.setImageHash(storedImage.getHash());
+		item.setImageSize(storedImage.getSize());
+		item.setImageContentType(storedImage.getContentType());
+		imageRenditionService.generateAsync(storedImage.getHash());
+		try (InputStream in = file.getInputStream()) {
+			item.setPerceptualHash(PerceptualHash.dHash(in));
 		}
 
-		return "0.0 kg";
+		Date setReceivedDate = new Date();
+		item.setReceivedDate(setReceivedDate);
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(setReceivedDate);
+		calendar.add(Calendar.DAY_OF_MONTH, 30);
+		item.setExpirationDate(calendar.getTime());
+
+		organisationRepository.findById(orgId).orElseGet(() -> {
+			Organisation newOrganisation = new Organisation();
+			newOrganisation.setOrgId(orgId);
+			newOrganisation.setOrgName("Default Organisation " + orgId);
+			LOGGER.info("Created new organization with ID: {}", orgId);
+			return organisationRepository.save(newOrganisation);
+		});
+		item.setOrgId(orgId);
+		return item;
 	}
 
 	/**
@@ -253,18 +309,10 @@ public class ItemsService {
 		res.put(Constants.SUCCESS, false);
 		res.put(Constants.MESSAGE, Constants.INVALID_INPUTS);
 
-		ByteString imgBytes = ByteString.readFrom(file.getInputStream());
-		Image img = Image.newBuilder().setContent(imgBytes).build();
-
-		List<Feature> features = List.of(Feature.newBuilder().setType(Feature.Type.OBJECT_LOCALIZATION).build(),
-				Feature.newBuilder().setType(Feature.Type.LABEL_DETECTION).build(),
-				Feature.newBuilder().setType(Feature.Type.IMAGE_PROPERTIES).build(),
-				Feature.newBuilder().setType(Feature.Type.TEXT_DETECTION).build());
-
-		AnnotateImageRequest request = AnnotateImageRequest.newBuilder().setImage(img).addAllFeatures(features).build();
+		byte[] imageBytes = file.getBytes();
 
-		try (ImageAnnotatorClient client = ImageAnnotatorClient.create()) {
-			AnnotateImageResponse response = client.batchAnnotateImages(List.of(request)).getResponsesList().get(0);
+		try {
+			AnnotateImageResponse response = itemEnrichmentService.annotateImage(imageBytes);
 			LOGGER.info("Image analysis completed for organization ID: {}", orgId);
 
 			Date setReceivedDate = new Date();
@@ -289,12 +337,12 @@ public class ItemsService {
 			String title = !detectedLabels.isEmpty() ? detectedLabels.get(0) : "Unknown Item";
 			String description = "Detected Labels: " + String.join(", ", detectedLabels);
 
-			List<Subcategories> matchedSubcategories = detectedLabels.stream()
-					.flatMap(label -> subCategoriesRepo.findByNameLikeIgnoreCase(label.toLowerCase()).stream())
+			List<CategoryDictionary.Subcategory> matchedSubcategories = detectedLabels.stream()
+					.flatMap(label -> categoryDictionary.findSubcategories(label).stream())
 					.distinct().collect(Collectors.toList());
 
 			if (!matchedSubcategories.isEmpty()) {
-				Subcategories matchedSubcategory = matchedSubcategories.get(0);
+				CategoryDictionary.Subcategory matchedSubcategory = matchedSubcategories.get(0);
 				LOGGER.info("Matched subcategory ID: {} for detected labels", matchedSubcategory.getId());
 
 			} else {
@@ -339,22 +387,30 @@ public class ItemsService {
 	}
 
 	/**
-	 * Retrieves all items from the database and returns them in a response map.
+	 * Retrieves one page of items from the database and returns them in a response
+	 * map.
+	 * 
+	 * This method: 1. Attempts to fetch a page of item summaries, newest first,
+	 * from the repository. 2. If the page is empty or null, it returns a response
+	 * indicating no data is found. 3. If items are found, it returns a success
+	 * response with the item data and the cursor of the next page. 4. In case of an
+	 * exception, it returns a failure response indicating an error.
 	 * 
-	 * This method: 1. Attempts to fetch a list of item summaries from the
-	 * repository. 2. If the list is empty or null, it returns a response indicating
-	 * no data is found. 3. If items are found, it returns a success response with
-	 * the item data. 4. In case of an exception, it returns a failure response
-	 * indicating an error.
+	 * Pages are addressed by the last item ID seen rather than an offset, so every
+	 * page costs the same index range scan however deep the client pages.
 	 * 
-	 * @return A map containing the success status, a message, and the item data (if
-	 *         available).
+	 * @param after the ID of the last item of the previous page, or null for the
+	 *              first page.
+	 * @param limit the page size, or null for the default.
+	 * @return A map containing the success status, a message, the item data (if
+	 *         available) and the cursor of the next page.
 	 */
-	public Map<String, Object> getAllItems() {
+	public Map<String, Object> getAllItems(Integer after, Integer limit) {
 		LOGGER.info("Entering getAllItems method.");
 		Map<String, Object> response = new HashMap<>();
 		try {
-			List<ItemDTO> items = itemsRepository.findItemsSummary();
+			int pageSize = pageSize(limit);
+			List<ItemDTO> items = itemsRepository.findItemsSummary(after, PageRequest.of(0, pageSize));
 			if (items == null || items.isEmpty()) {
 				response.put(Constants.SUCCESS, false);
 				response.put(Constants.MESSAGE, Constants.NODATA);
@@ -362,6 +418,7 @@ public class ItemsService {
 				response.put(Constants.SUCCESS, true);
 				response.put(Constants.MESSAGE, Constants.SUCESSFULLY_RETRIVED_DATA);
 				response.put(Constants.DATA, items);
+				response.put(Constants.NEXT_AFTER, nextAfter(items, pageSize));
 			}
 		} catch (Exception e) {
 			response.put(Constants.SUCCESS, false);
@@ -371,35 +428,84 @@ public class ItemsService {
 	}
 
 	/**
-	 * Archives expired items based on the received date and sends notifications.
-	 * 
-	 * This method: 1. Accepts an optional item ID to archive a specific item or
-	 * process all items. 2. Calculates the expiration date (90 days from the
-	 * received date). 3. Sends expiration reminder emails to users if the item is
-	 * about to expire (30 or 3 days before expiration). 4. Archives expired items
-	 * (if the current date is past the expiration date) and sends archived
-	 * notifications to the admin and user.
+	 * Clamps a requested page size to the allowed range, using the default when
+	 * none is given.
 	 * 
-	 * @param itemId The ID of the item to be archived (optional). If null, all
-	 *               items will be processed.
-	 * @return A response map indicating success or failure, including the relevant
-	 *         message.
+	 * @param limit the requested page size, or null.
+	 * @return the page size to query.
 	 */
-	// Archive Expired Items
-	@Scheduled(fixedRate = 86400000) // Runs every 24 hours
-	public void archiveExpiredItemsAutomatically() {
-		Date currentDate = new Date();
+	public int pageSize(Integer limit) {
+		if (limit == null) {
+			return DEFAULT_PAGE_SIZE;
+		}
+		return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+	}
 
-		List<Items> items = itemsRepository.findByStatus(ItemStatus.UNCLAIMED);
+	/**
+	 * Returns the cursor of the page after the given one: the lowest item ID of a
+	 * full page, or null when the page is the last one.
+	 * 
+	 * @param items    the items of the page.
+	 * @param pageSize the size the page was queried with.
+	 * @return the cursor to pass as after, or null.
+	 */
+	public Integer nextAfter(Collection<ItemDTO> items, int pageSize) {
+		if (items.size() < pageSize) {
+			return null;
+		}
+		return items.stream().mapToInt(ItemDTO::getItemId).min().getAsInt();
+	}
 
-		for (Items item : items) {
-			Date expirationDate = item.getExpirationDate();
+	/**
+	 * Looks up the image of an item in the requested rendition. When a scaled
+	 * rendition has not been generated yet, its generation is queued and the
+	 * original is returned in the meantime, marked as a fallback. An original
+	 * that could not be decoded has no renditions and is returned as it is.
+	 * 
+	 * @param itemId    the ID of the item.
+	 * @param rendition the size of the image to return.
+	 * @return the image, or empty if the item does not exist or has no stored
+	 *         image.
+	 */
+	public Optional<ItemImageDTO> getItemImage(int itemId, ImageRendition rendition) {
+		Optional<Items> item = itemsRepository.findById(itemId);
+		if (item.isEmpty() || !imageStore.exists(item.get().getImageHash())) {
+			return Optional.empty();
+		}
 
-			if (expirationDate != null && expirationDate.before(currentDate)) {
-				item.setStatus(ItemStatus.ARCHIVED);
-				itemsRepository.save(item);
+		String imageHash = item.get().getImageHash();
+		if (rendition != ImageRendition.ORIGINAL) {
+			if (imageStore.exists(imageHash, rendition)) {
+				return Optional.of(new ItemImageDTO(imageStore.getResource(imageHash, rendition), "image/jpeg",
+						imageHash + "-" + rendition.getKey()));
+			}
+			if (imageStore.isUndecodable(imageHash)) {
+				LOGGER.debug("Image of item ID: {} is undecodable, serving original", itemId);
+				return Optional.of(new ItemImageDTO(imageStore.getResource(imageHash),
+						item.get().getImageContentType(), imageHash));
 			}
+			LOGGER.debug("Rendition {} missing for item ID: {}, serving original", rendition, itemId);
+			imageRenditionService.generateAsync(imageHash);
+			return Optional.of(new ItemImageDTO(imageStore.getResource(imageHash), item.get().getImageContentType(),
+					imageHash, true));
 		}
+		return Optional.of(new ItemImageDTO(imageStore.getResource(imageHash), item.get().getImageContentType(),
+				imageHash));
+	}
+
+	/**
+	 * Archives unclaimed items whose expiration date has passed.
+	 * 
+	 * Items are archived in bulk, one chunk of item IDs at a time, by
+	 * {@link ItemArchivalService}; only the expired rows are updated. Items are
+	 * normally archived the moment they expire by {@link ItemExpiryScheduler};
+	 * this sweep is kept as a manual catch-up.
+	 * 
+	 * @return The IDs of the archived items, for follow-up notifications.
+	 */
+	// Archive Expired Items
+	public List<Integer> archiveExpiredItemsAutomatically() {
+		return itemArchivalService.archiveExpired(new Date());
 	}
 
 	public Map<String, Object> archiveExpiredItems(String fromDateStr, String toDateStr, String expirationDateStr) {
@@ -424,12 +530,20 @@ public class ItemsService {
 			for (Items item : archivedItems) {
 				item.setStatus(ItemStatus.UNCLAIMED);
 
+				Date setReceivedDate = new Date();
+				item.setReceivedDate(setReceivedDate);
+
+				// The old expiration date has passed, so an item brought back without a new
+				// one gets the same 30 days as a new upload instead of being archived again.
 				if (newExpirationDate != null) {
 					item.setExpirationDate(newExpirationDate);
+				} else {
+					Calendar calendar = Calendar.getInstance();
+					calendar.setTime(setReceivedDate);
+					calendar.add(Calendar.DAY_OF_MONTH, 30);
+					item.setExpirationDate(calendar.getTime());
 				}
 
-				item.setReceivedDate(new Date());
-
 				itemsRepository.save(item);
 			}
 
@@ -522,9 +636,10 @@ public class ItemsService {
 	/**
 	 * Retrieves the count of items grouped by status for a specific month.
 	 * 
-	 * This method queries the database to fetch the count of items grouped by their
-	 * status (e.g., unclaimed, pending approval, claimed, rejected, etc.) for the
-	 * given month. It returns a list of counts for each item status.
+	 * This method reads the count of items grouped by their status (e.g.,
+	 * unclaimed, pending approval, claimed, rejected, etc.) for the given month
+	 * from the monthly statistics rollup, so it costs the same however many items
+	 * there are. It returns a list of counts for each item status.
 	 * 
 	 * @param month The month for which the item status counts are being fetched.
 	 * @return A list of `ItemStatusCountDTO` objects, each representing the count
@@ -533,19 +648,19 @@ public class ItemsService {
 	public List<ItemStatusCountDTO> getItemStatusCounts(String month) {
 		LOGGER.info("Fetching item status counts for month: {}", month);
 
-		List<Object[]> results = itemsRepository.findItemsGroupedByMonth(month);
+		List<Object[]> results = itemStatsMonthlyRepo.findStatusCountsByMonth(month);
 
 		List<ItemStatusCountDTO> itemStatusCounts = new ArrayList<>();
 
 		for (Object[] result : results) {
 			String monthResult = (String) result[0];
-			int totalItems = ((Long) result[1]).intValue();
-			int unclaimed = ((Long) result[2]).intValue();
-			int pendingApproval = ((Long) result[3]).intValue();
-			int pendingPickup = ((Long) result[4]).intValue();
-			int claimed = ((Long) result[5]).intValue();
-			int rejected = ((Long) result[6]).intValue();
-			int archived = ((Long) result[7]).intValue();
+			int totalItems = ((Number) result[1]).intValue();
+			int unclaimed = ((Number) result[2]).intValue();
+			int pendingApproval = ((Number) result[3]).intValue();
+			int pendingPickup = ((Number) result[4]).intValue();
+			int claimed = ((Number) result[5]).intValue();
+			int rejected = ((Number) result[6]).intValue();
+			int archived = ((Number) result[7]).intValue();
 
 			String monthName = monthResult;
 			// Log the extracted result values for debugging purposes
@@ -573,8 +688,8 @@ public class ItemsService {
 	/**
 	 * Retrieves the count of items grouped by category for each month.
 	 * 
-	 * This method queries the database to fetch the count of items in each
-	 * category, grouped by month. It then formats the results to return a list of
+	 * This method reads the count of items in each category, grouped by month,
+	 * from the monthly statistics rollup. It then formats the results to return a list of
 	 * maps containing the month, category, and the corresponding item count. The
 	 * month is represented by its name (e.g., January, February, etc.), and each
 	 * category's item count is retrieved and included in the response.
@@ -584,17 +699,17 @@ public class ItemsService {
 	 */
 	public List<Map<String, Object>> getItemCountByCategory() {
 		LOGGER.info(" fetch item counts grouped by category for each month.");
-		List<Categories> allCategories = categoriesRepo.findAll();
+		Map<Integer, String> allCategories = categoryDictionary.getCategoryNames();
 		LOGGER.debug("Fetched all categories: {}", allCategories.size());
 
-		List<Object[]> results = itemsRepository.findItemCountGroupedByCategoryIdAndMonth();
+		List<Object[]> results = itemStatsMonthlyRepo.findItemCountGroupedByCategoryIdAndMonthOfYear();
 
 		Map<String, Map<Integer, Integer>> monthCategoryCounts = new HashMap<>();
 
 		for (Object[] result : results) {
-			String month = getMonthName((Integer) result[0]);
+			String month = getMonthName(((Number) result[0]).intValue());
 			Integer categoryId = (Integer) result[1];
-			int totalItems = ((Long) result[2]).intValue();
+			int totalItems = ((Number) result[2]).intValue();
 
 			monthCategoryCounts.putIfAbsent(month, new HashMap<>());
 
@@ -609,9 +724,9 @@ public class ItemsService {
 
 			List<Map<String, Object>> categories = new ArrayList<>();
 
-			for (Categories categoriess : allCategories) {
-				Integer categoryId = categoriess.getId();
-				String categoryName = categoriess.getCategoryName();
+			for (Map.Entry<Integer, String> category : allCategories.entrySet()) {
+				Integer categoryId = category.getKey();
+				String categoryName = category.getValue();
 				int totalItems = categoryCounts.getOrDefault(categoryId, 0);
 
 				Map<String, Object> categoryItemCount = new HashMap<>();
@@ -650,9 +765,9 @@ public class ItemsService {
 	 * 
 	 * This method allows querying item counts by category for a specific month and
 	 * year, provided in the format YYYY-MM. It validates the provided month format
-	 * and ensures the month number is between 01 and 12. The method then queries
-	 * the database for the item count in each category for the given month and
-	 * year.
+	 * and ensures the month number is between 01 and 12. The method then reads the
+	 * item count in each category for the given month and year from the monthly
+	 * statistics rollup.
 	 * 
 	 * @param month The specific month in the format YYYY-MM (e.g., "2025-01").
 	 * @return A list of maps where each map represents a category with its item
@@ -678,7 +793,7 @@ public class ItemsService {
 		}
 		LOGGER.debug("Fetching item count for the year: {} and month: {}", year, monthNumber);
 
-		List<Object[]> results = itemsRepository.findItemCountGroupedByCategoryIdAndMonth(year, monthNumber);
+		List<Object[]> results = itemStatsMonthlyRepo.findItemCountGroupedByCategoryId(month);
 
 		List<Map<String, Object>> itemCountsByCategory = new ArrayList<>();
 
@@ -689,9 +804,7 @@ public class ItemsService {
 
 			long itemCount = ((Number) result[1]).longValue();
 
-			Optional<Categories> categoryOptional = categoriesRepo.findById(categoryId);
-
-			String categoryName = categoryOptional.map(Categories::getCategoryName).orElse("Unknown Category");
+			String categoryName = categoryDictionary.getCategoryName(categoryId);
 
 			itemCountMap.put("categoryName", categoryName);
 			itemCountMap.put("itemCount", itemCount);
@@ -709,23 +822,38 @@ public class ItemsService {
 	 * where the key is the date in the format "date:MM/dd/yyyy" and the value is a
 	 * list of items that belong to that date.
 	 * 
+	 * Items are read one page at a time, newest first, starting after the given
+	 * item ID. The sorting and grouping apply within the page. Uploads still
+	 * being enriched are left out; an item without a uniqueId is grouped under
+	 * "pending".
+	 * 
+	 * @param after the ID of the last item of the previous page, or null for the
+	 *              first page.
+	 * @param limit the page size, or null for the default.
 	 * @return A Map with keys as dates in the format "date:MM/dd/yyyy" and values
 	 *         as lists of ItemSummaryDTO objects.
 	 */
-	public Map<String, List<ItemDTO>> getItemsGroupedByDate() {
+	public Map<String, List<ItemDTO>> getItemsGroupedByDate(Integer after, Integer limit) {
 		Map<String, List<ItemDTO>> groupedItems = new LinkedHashMap<>();
 
 		try {
 			LOGGER.info("Fetching items for the current month and year");
 
-			List<ItemDTO> items = itemsRepository.findItemsByCurrentMonthAndYear();
+			LocalDate monthStart = LocalDate.now().withDayOfMonth(1);
+			List<ItemDTO> items = itemsRepository.findItemsReceivedBetween(startOfDay(monthStart),
+					startOfDay(monthStart.plusMonths(1)), after, PageRequest.of(0, pageSize(limit)));
 			LOGGER.info("Retrieved {} items", items.size());
 
-			items.sort(Comparator.comparing(ItemDTO::getUniqueId).reversed());
+			// items still being enriched have no uniqueId yet; they sort last
+			items.sort(Comparator.comparing(ItemDTO::getUniqueId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+					.reversed());
 			LOGGER.info("Sorted items by uniqueId in descending order");
 
 			groupedItems = items.stream().collect(Collectors.groupingBy(item -> {
 				String uniqueId = item.getUniqueId();
+				if (uniqueId == null) {
+					return "pending";
+				}
 				String datePart = uniqueId.split("-")[0];
 				return "date:" + datePart;
 			}, LinkedHashMap::new, Collectors.toList()));
@@ -739,6 +867,14 @@ public class ItemsService {
 		return groupedItems;
 	}
 
+	/**
+	 * Returns the first instant of a day in the server time zone, for half-open
+	 * date range queries that can use the date indexes.
+	 */
+	private static Date startOfDay(LocalDate day) {
+		return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
 	/**
 	 * Searches for items based on specified criteria such as user email, received
 	 * date, and status. 1. Accepts parameters for user email, received date, and
@@ -753,10 +889,13 @@ public class ItemsService {
 	 * @param receivedDate The date when the item was received (optional).
 	 * @param status       The status of the item (optional). Should be one of the
 	 *                     `ItemStatus` values.
-	 * @return A map containing the search results, including the success status and
-	 *         the data or error message.
+	 * @param after        The ID of the last item of the previous page (optional).
+	 * @param limit        The page size (optional).
+	 * @return A map containing the search results, including the success status,
+	 *         the data or error message and the cursor of the next page.
 	 */
-	public Map<String, Object> searchItems(String mail, String receivedDate, String status) {
+	public Map<String, Object> searchItems(String mail, String receivedDate, String status, Integer after,
+			Integer limit) {
 		Map<String, Object> response = new HashMap<>();
 		try {
 			LOGGER.info("Item search with email: {}, receivedDate: {}, status: {}", mail, receivedDate, status);
@@ -797,13 +936,15 @@ public class ItemsService {
 			}
 
 			LOGGER.info("Searching items with userId: {}, itemStatus: {}, receivedDate: {}", userId, itemStatus, date);
-			List<ItemDTO> items = itemsRepository.findAllByCriteria(userId, itemStatus, date);
-
+			int pageSize = pageSize(limit);
+			List<ItemDTO> items = itemsRepository.findAllByCriteria(userId, itemStatus, date, after,
+					PageRequest.of(0, pageSize));
 			if (date != null) {
 				LOGGER.info("Performing additional search for items with receivedDate: {}", date);
 			}
 			LOGGER.info("Searching items with userId: {}, itemStatus: {}, receivedDate: {}", userId, itemStatus, date);
 			response.put(Constants.DATA, items);
+			response.put(Constants.NEXT_AFTER, nextAfter(items, pageSize));
 			response.put(Constants.SUCCESS, true);
 		} catch (RuntimeException e) {
 			LOGGER.error("Error occurred during item search: {}", e.getMessage());
@@ -814,8 +955,8 @@ public class ItemsService {
 
 	/**
 	 * Method to search for items based on a query string. If the query is empty, it
-	 * fetches all items; otherwise, it performs a refined search based on item
-	 * name, color, and category.
+	 * fetches the latest page of items that are not archived; otherwise, it
+	 * performs a refined search based on item name, color, and category.
 	 *
 	 * @param query the search query provided by the user
 	 * @return a list of items matching the search criteria
@@ -824,9 +965,9 @@ public class ItemsService {
 		LOGGER.info("Starting item search with query: {}", query);
 
 		if (query == null || query.trim().isEmpty()) {
-			LOGGER.info("No query provided, fetching all items.");
+			LOGGER.info("No query provided, fetching the latest items.");
 
-			List<ItemsSearchDTO> results = (List<ItemsSearchDTO>) getAllItems();
+			List<ItemsSearchDTO> results = itemsRepository.findLatestSearchItems(PageRequest.of(0, DEFAULT_PAGE_SIZE));
 
 			if (results.isEmpty()) {
 				LOGGER.warn("No items found.");
@@ -837,15 +978,14 @@ public class ItemsService {
 
 			return results;
 		} else {
-			LOGGER.info("Cleaning search query: {}", query);
+			AnalyzedQuery analyzedQuery = queryAnalyzer.analyze(query);
+			LOGGER.info("Analyzed query words: {}, color: {}, category: {}", analyzedQuery.getWords(),
+					analyzedQuery.getColor(), analyzedQuery.getCategory());
 
-			String cleanedQuery = cleanSearchQuery(query);
-			LOGGER.info("Cleaned query: {}", cleanedQuery);
-
-			List<ItemsSearchDTO> results = searchByItemNameColorAndCategory(cleanedQuery);
+			List<ItemsSearchDTO> results = searchByItemNameColorAndCategory(analyzedQuery);
 
 			if (results.isEmpty()) {
-				LOGGER.warn("No items found matching search: {}", cleanedQuery);
+				LOGGER.warn("No items found matching search: {}", analyzedQuery.getWords());
 
 				throw new ItemNotFoundException("No items found matching your search");
 			}
@@ -856,97 +996,80 @@ public class ItemsService {
 	}
 
 	/**
-	 * Method to clean the search query by removing common stop words. It removes
-	 * words like 'I', 'my', 'lost', etc., and returns the cleaned query.
+	 * Method to search for items by item name, color, and category based on an
+	 * analyzed query. All query words are matched against the
+	 * {@link ItemTextIndex}; a query that names a category is answered from the
+	 * items of that category, best match first.
 	 *
-	 * @param query the search query to be cleaned
-	 * @return the cleaned query
+	 * @param analyzedQuery the query words with the color and category they name
+	 * @return a list of items matching the query by name, color, and/or category
 	 */
-	private String cleanSearchQuery(String query) {
-		LOGGER.info("Cleaning search query: {}", query);
-		String cleanedQuery = query.toLowerCase()
-				.replaceAll("\\b(i|my|like|lost|a|the|or|to|of|for|in|and|find)\\b", "").trim();
-		LOGGER.info("Cleaned search query: {}", cleanedQuery);
-		return cleanedQuery;
+	private List<ItemsSearchDTO> searchByItemNameColorAndCategory(AnalyzedQuery analyzedQuery) {
+		if (analyzedQuery.getCategoryId() != null) {
+			LOGGER.info("Category identified: {}", analyzedQuery.getCategory());
+		}
+		return searchTextIndex(analyzedQuery.getWords(), analyzedQuery.getCategoryId());
 	}
 
 	/**
-	 * Method to search for items by item name, color, and category based on a
-	 * cleaned query. It processes each term in the query to check if it corresponds
-	 * to an item name, color, or category.
+	 * Method to search the {@link ItemTextIndex} and load the matching items in
+	 * rank order.
 	 *
-	 * @param query the cleaned search query
-	 * @return a list of items matching the query by name, color, and/or category
+	 * @param words      the analyzed query words
+	 * @param categoryId the category the items must belong to, or null
+	 * @return the matching items, best match first
 	 */
-	private List<ItemsSearchDTO> searchByItemNameColorAndCategory(String query) {
-		LOGGER.info("Searching by item name, color, and category with cleaned query: {}", query);
-
-		String[] queryTerms = query.split(" ");
-		StringBuilder categoryQueryBuilder = new StringBuilder();
-		StringBuilder itemNameQueryBuilder = new StringBuilder();
-		String colorQuery = null;
-
-		for (String term : queryTerms) {
-			LOGGER.debug("Processing term: {}", term);
-
-			if (isColor(term)) {
-				colorQuery = term;
-				LOGGER.debug("Identified color: {}", colorQuery);
-
-			} else {
-				if (categoryQueryBuilder.length() > 0) {
-					categoryQueryBuilder.append(" ");
-				}
-				categoryQueryBuilder.append(term);
+	private List<ItemsSearchDTO> searchTextIndex(List<String> words, Integer categoryId) {
+		List<Integer> rankedIds = itemTextIndex.search(words, categoryId, MAX_SEARCH_RESULTS);
+		LOGGER.info("Text index matched {} items for query: {}", rankedIds.size(), words);
+		if (rankedIds.isEmpty()) {
+			return new ArrayList<>();
+		}
 
-				String potentialCategoryQuery = categoryQueryBuilder.toString().trim();
-				if (isCategory(potentialCategoryQuery)) {
-					LOGGER.info("Category identified: " + potentialCategoryQuery);
-					return itemsRepository.searchByItemNameColorAndCategory(null, colorQuery, potentialCategoryQuery);
-				} else {
-					itemNameQueryBuilder.append(term).append(" ");
-				}
+		Map<Integer, ItemsSearchDTO> resultsById = new HashMap<>();
+		for (ItemsSearchDTO result : itemsRepository.findSearchItemsByIds(rankedIds)) {
+			resultsById.put(result.getItemId(), result);
+		}
+		List<ItemsSearchDTO> results = new ArrayList<>(rankedIds.size());
+		for (Integer itemId : rankedIds) {
+			ItemsSearchDTO result = resultsById.get(itemId);
+			if (result != null) {
+				results.add(result);
 			}
 		}
-
-		String itemNameQuery = itemNameQueryBuilder.toString().trim();
-		return itemsRepository.searchByItemNameColorAndCategory(itemNameQuery, colorQuery, null);
-	}
-
-	/**
-	 * Method to check if a term corresponds to a valid category. It verifies if the
-	 * term exists as a category in the repository.
-	 *
-	 * @param term the term to be checked
-	 * @return true if the term exists as a category, false otherwise
-	 */
-	private boolean isCategory(String term) {
-		LOGGER.info("Checking if category exists: " + term);
-		boolean exists = categoriesRepo.existsByCategoryNameIgnoreCase(term);
-		LOGGER.info("Category exists: " + exists);
-		return exists;
+		return results;
 	}
 
 	/**
-	 * Method to check if a term corresponds to a valid color. It attempts to map
-	 * the term to a color field from the Color class.
+	 * Method to suggest search text while the user types. Suggestions are item
+	 * names, category and subcategory names and common words detected on item
+	 * photos that start with the prefix or have a word that does, served from the
+	 * {@link SuggestionIndex} without database access.
 	 *
-	 * @param term the term to be checked
-	 * @return true if the term corresponds to a valid color, false otherwise
+	 * @param prefix the text typed so far
+	 * @param limit  the maximum number of suggestions
+	 * @return a map containing the suggestions, most items first
 	 */
-	private boolean isColor(String term) {
-		try {
-			Color color = (Color) Color.class.getField(term.toLowerCase()).get(null);
-			return true;
-		} catch (Exception e) {
-			return false;
+	public Map<String, Object> suggestItems(String prefix, int limit) {
+		Map<String, Object> response = new HashMap<>();
+		List<Map<String, Object>> suggestions = new ArrayList<>();
+		for (SuggestionIndex.Suggestion suggestion : suggestionIndex.suggest(prefix, Math.max(1, limit))) {
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("text", suggestion.getText());
+			entry.put("type", suggestion.getType());
+			entry.put("items", suggestion.getWeight());
+			suggestions.add(entry);
 		}
+		response.put("suggestions", suggestions);
+		response.put(Constants.SUCCESS, true);
+		return response;
 	}
 
 	/**
 	 * Method to upload an image for search purposes. It validates the uploaded
-	 * file, checks its type, and attempts to find matching items based on the
-	 * uploaded image.
+	 * file, checks its type, and finds items whose photo looks like the uploaded
+	 * image, closest first. Similarity is the Hamming distance of the perceptual
+	 * hashes, looked up in the {@link PerceptualHashIndex}.
 	 *
 	 * @param file the image file to be uploaded
 	 * @return a map containing the matched items and the success message
@@ -971,33 +1094,34 @@ public class ItemsService {
 		}
 		LOGGER.info("File is valid: {}", fileName);
 
-		byte[] uploadedImageBytes = file.getBytes();
-		LOGGER.info("Fetching all items with images for comparison.");
-
-		List<Items> allItemsWithImages = itemsRepository.findAll().stream().filter(item -> item.getImage() != null)
-				.collect(Collectors.toList());
-		LOGGER.info("Finding matching items based on uploaded image.");
-
-		List<Map<String, Object>> matchedItems = allItemsWithImages.stream().filter(item -> {
-			byte[] itemImageBytes = item.getImage();
-			return areImagesSimilar(uploadedImageBytes, itemImageBytes);
-		}).map(item -> {
-			Map<String, Object> itemDetails = new HashMap<>();
-			itemDetails.put("itemName", item.getItemName());
-			itemDetails.put("dominantColor", item.getColour());
-			itemDetails.put("detectedText", item.getDetectedText());
-			itemDetails.put("image", item.getImage());
-			itemDetails.put("categoryName", getCategoryNameById(item.getCategoryId()));
-			itemDetails.put("status", item.getStatus());
-			itemDetails.put("receivedDate", item.getReceivedDate());
-			itemDetails.put("title", item.getTitle());
-
-			if (item.getUser() != null) {
-				itemDetails.put("name", item.getUser().getUserName());
-				itemDetails.put("email", item.getUser().getEmail());
-				itemDetails.put("status", item.getStatus());
-				itemDetails.put("receivedDate", item.getReceivedDate());
+		byte[] uploadedImage = file.getBytes();
+		Long uploadedPerceptualHash;
+		try (InputStream in = new ByteArrayInputStream(uploadedImage)) {
+			uploadedPerceptualHash = PerceptualHash.dHash(in);
+		}
+
+		List<Items> itemsWithSameImage;
+		Map<Integer, Integer> distances = new HashMap<>();
+		if (uploadedPerceptualHash != null) {
+			List<PerceptualHashIndex.Match> matches = perceptualHashIndex.search(uploadedPerceptualHash,
+					imageSearchMaxDistance);
+			LOGGER.info("Found {} items with a similar image.", matches.size());
+			List<Integer> matchedIds = new ArrayList<>(matches.size());
+			for (PerceptualHashIndex.Match match : matches) {
+				distances.put(match.getItemId(), match.getDistance());
+				matchedIds.add(match.getItemId());
 			}
+			// findAllById does not keep the order of the ids, restore closest first.
+			itemsWithSameImage = new ArrayList<>(itemsRepository.findAllById(matchedIds));
+			itemsWithSameImage.sort(Comparator.comparingInt(item -> distances.get(item.getItemId())));
+		} else {
+			LOGGER.info("Image could not be decoded, falling back to exact match.");
+			itemsWithSameImage = itemsRepository.findByImageHash(HashUtils.sha256Hex(uploadedImage));
+		}
+
+		List<Map<String, Object>> matchedItems = itemsWithSameImage.stream().map(item -> {
+			Map<String, Object> itemDetails = toImageSearchResult(item);
+			itemDetails.put("distance", distances.getOrDefault(item.getItemId(), 0));
 			return itemDetails;
 		}).collect(Collectors.toList());
 
@@ -1017,117 +1141,97 @@ public class ItemsService {
 	}
 
 	/**
-	 * Method to compare two images for similarity. This uses basic byte comparison.
-	 * For better accuracy, use advanced techniques like pHash.
+	 * Finds items that look like the uploaded photo, for example a bag of the same
+	 * colour and shape, ranked by the cosine similarity of their visual feature
+	 * vectors. Unlike {@link #uploadImageForSearch(MultipartFile)} the photos do
+	 * not need to be copies of each other.
+	 *
+	 * @param file  the image file to be uploaded
+	 * @param limit the maximum number of items to return
+	 * @return a map containing the ranked items and the success message
+	 * @throws IOException if an error occurs during file processing
 	 */
-	private boolean areImagesSimilar(byte[] image1, byte[] image2) {
-		LOGGER.info("Starting image similarity comparison.");
-		if (image1 == null || image2 == null || image1.length != image2.length) {
-			LOGGER.warn("Images are not similar: One or both images are null or have different sizes.");
+	public Map<String, Object> findSimilarItems(MultipartFile file, int limit) throws IOException {
+		LOGGER.info("Starting visual similarity search.");
 
-			return false;
+		Map<String, Object> response = new HashMap<>();
+		byte[] uploadedImage = file.getBytes();
+
+		// Indexed vectors include the Vision dominant colours, so use them for the
+		// query too when the photo was annotated recently. Vision is never called
+		// here: a search must not wait for it or pay for it.
+		DominantColorsAnnotation dominantColors = itemEnrichmentService.findCachedAnnotation(uploadedImage)
+				.filter(AnnotateImageResponse::hasImagePropertiesAnnotation)
+				.map(annotation -> annotation.getImagePropertiesAnnotation().getDominantColors()).orElse(null);
+
+		float[] query;
+		try (InputStream in = new ByteArrayInputStream(uploadedImage)) {
+			query = ImageFeatures.extract(in, dominantColors);
+		}
+		if (query == null) {
+			throw new IllegalArgumentException("Only image files are supported.");
 		}
 
-		for (int i = 0; i < image1.length; i++) {
-			if (image1[i] != image2[i]) {
-				LOGGER.warn("Images are not similar: Byte mismatch at position {}", i);
-
-				return false;
+		List<VisualSimilarityIndex.Match> matches = visualSimilarityIndex.search(query,
+				Math.max(1, Math.min(limit, MAX_SIMILAR_ITEMS)));
+		Map<Integer, ItemsSearchDTO> itemsById = matches.isEmpty() ? Collections.emptyMap()
+				: itemsRepository.findSearchItemsByIds(
+						matches.stream().map(VisualSimilarityIndex.Match::getItemId).collect(Collectors.toList()))
+						.stream().collect(Collectors.toMap(ItemsSearchDTO::getItemId, item -> item));
+
+		List<Map<String, Object>> rankedItems = new ArrayList<>(matches.size());
+		for (VisualSimilarityIndex.Match match : matches) {
+			ItemsSearchDTO item = itemsById.get(match.getItemId());
+			if (item != null) {
+				Map<String, Object> itemDetails = toImageSearchResult(item);
+				itemDetails.put("similarity", match.getSimilarity());
+				rankedItems.add(itemDetails);
 			}
 		}
-		LOGGER.info("Images are similar.");
 
-		return true;
+		LOGGER.info("Found {} visually similar items.", rankedItems.size());
+		response.put("matchedItems", rankedItems);
+		response.put(Constants.SUCCESS, !rankedItems.isEmpty());
+		response.put(Constants.MESSAGE, rankedItems.isEmpty() ? "No matching items found." : "Matching items found.");
+		return response;
 	}
 
-	/**
-	 * Method to fetch the category name by category ID. It retrieves the category
-	 * name associated with the given category ID from the repository.
-	 *
-	 * @param categoryId the ID of the category
-	 * @return the name of the category, or 'Unknown Category' if not found
-	 */
-	private String getCategoryNameById(int categoryId) {
-		LOGGER.info("Fetching category name for categoryId: {}", categoryId);
-
-		Categories lookUp = categoriesRepo.findById(categoryId).orElse(null);
-		if (lookUp != null) {
-			LOGGER.info("Found category: {}", lookUp.getCategoryName());
-			return lookUp.getCategoryName();
-		} else {
-			LOGGER.warn("Category not found for categoryId: {}", categoryId);
-			return "Unknown Category";
+	private Map<String, Object> toImageSearchResult(Items item) {
+		Map<String, Object> itemDetails = new HashMap<>();
+		itemDetails.put("itemId", item.getItemId());
+		itemDetails.put("itemName", item.getItemName());
+		itemDetails.put("dominantColor", item.getColour());
+		itemDetails.put("detectedText", item.getDetectedText());
+		itemDetails.put("imageUrl", Constants.itemImageUrl(item.getItemId(), item.getImageHash()));
+		itemDetails.put("categoryName", categoryDictionary.getCategoryName(item.getCategoryId()));
+		itemDetails.put("status", item.getStatus());
+		itemDetails.put("receivedDate", item.getReceivedDate());
+		itemDetails.put("title", item.getTitle());
+
+		if (item.getUser() != null) {
+			itemDetails.put("name", item.getUser().getUserName());
+			itemDetails.put("email", item.getUser().getEmail());
 		}
+		return itemDetails;
 	}
 
-	/**
-	 * Calculates the statistics for each item category in terms of total weight and
-	 * item count.
-	 *
-	 * 1. Initializes maps to store the total weight and item count for each
-	 * category. 2. Fetches all categories from the repository. 3. Initializes
-	 * category data with zero values for weight and item count. 4. Retrieves all
-	 * unclaimed items and processes their category and weight data. 5. Aggregates
-	 * the total weight and item count for each category. 6. Formats the results
-	 * into a list of maps containing category name, total weight, and total item
-	 * count. 7. Returns a response map with the calculated category statistics.
-	 *
-	 * @return A map containing the calculated category statistics.
-	 */
-//	public Map<String, Object> getCarbonWeight() {
-//		LOGGER.info("Starting category stats calculation.");
-//
-//		Map<String, Object> response = new HashMap<>();
-//		Map<String, Double> categoryWeights = new HashMap<>();
-//		Map<String, Integer> categoryItemCount = new HashMap<>();
-//
-//		List<Categories> allCategories = categoriesRepo.findCategoryIdAndCategoryName("C");
-//		LOGGER.info("Found {} categories.", allCategories);
-//
-//		for (Categories lookUp : allCategories) {
-//			System.out.println(lookUp);
-//			String categoryName = lookUp.getCategoryName();
-//			categoryWeights.put(categoryName, 0.0);
-//			categoryItemCount.put(categoryName, 0);
-//		}
-//
-//		List<Items> unclaimedItems = itemsRepository.findByStatus(ItemStatus.UNCLAIMED);
-//		LOGGER.info("Found {} unclaimed items.", unclaimedItems.size());
-//
-//		for (Items item : unclaimedItems) {
-//			int categoryId = item.getCategoryId();
-////			LookUp lookUp = lookUpRepository.findAllById(categoryId).orElse(null);
-//			Optional<Categories> lookUp = categoriesRepo.findById(categoryId);
-//			System.out.println();
-//
-//			if (lookUp != null) {
-//				Double weight = 0.0;
-//				try {
-//					weight = Double.parseDouble(item.getCarbonWeight().replace(" kg", "").trim());
-//				} catch (NumberFormatException e) {
-//					weight = 0.0;
-//				}
-//
-//				String categoryName = lookUp.get().getCategoryName();
-//				categoryWeights.put(categoryName, categoryWeights.getOrDefault(categoryName, 0.0) + weight);
-//				categoryItemCount.put(categoryName, categoryItemCount.getOrDefault(categoryName, 0) + 1);
-//			}
-//		}
-//
-//		List<Map<String, String>> categories = new ArrayList<>();
-//		for (String categoryName : categoryWeights.keySet()) {
-//			Map<String, String> categoryStats = new HashMap<>();
-//			categoryStats.put("category", categoryName);
-//			categoryStats.put("totalWeight", String.format("%.2f kg", categoryWeights.get(categoryName)));
-//			categoryStats.put("totalItems", String.valueOf(categoryItemCount.get(categoryName)));
-//			categories.add(categoryStats);
-//		}
-//
-//		response.put("categories", categories);
-//		LOGGER.info("Category stats calculated: {}", categories);
-//
-//		return response;
-//	}
+	private static Map<String, Object> toImageSearchResult(ItemsSearchDTO item) {
+		Map<String, Object> itemDetails = new HashMap<>();
+		itemDetails.put("itemId", item.getItemId());
+		itemDetails.put("itemName", item.getItemName());
+		itemDetails.put("dominantColor", item.getColour());
+		itemDetails.put("detectedText", item.getDetectedText());
+		itemDetails.put("imageUrl", item.getImageUrl());
+		itemDetails.put("categoryName", item.getCategoryName());
+		itemDetails.put("status", item.getStatus());
+		itemDetails.put("receivedDate", item.getReceivedDate());
+		itemDetails.put("title", item.getTitle());
+		if (item.getUserId() != null) {
+			itemDetails.put("name", item.getUserName());
+			itemDetails.put("email", item.getEmail());
+		}
+		return itemDetails;
+	}
 
 	/**
 	 * Method to fetch details of all items with the status 'ARCHIVED'. It retrieves
@@ -1136,26 +1240,7 @@ public class ItemsService {
 	 *
 	 * @return a map containing the item count, item details, and a success message
 	 */
-
-//	public List<Items> getArchivedItems(String fromDateStr, String toDateStr) {
-//		try {
-//			if (fromDateStr != null && toDateStr != null && !fromDateStr.isEmpty() && !toDateStr.isEmpty()) {
-//				SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-//				Date fromDate = sdf.parse(fromDateStr);
-//				Date toDate = sdf.parse(toDateStr);
-//
-//				LOGGER.info("Fetching ARCHIVED items between {} and {}", fromDate, toDate);
-//				return itemsRepository.findByStatusAndReceivedDateBetween(ItemStatus.ARCHIVED, fromDate, toDate);
-//			} else {
-//				LOGGER.info("Fetching all ARCHIVED items");
-//				return itemsRepository.findByStatus(ItemStatus.ARCHIVED);
-//			}
-//		} catch (ParseException e) {
-//			LOGGER.error("Error parsing dates", e);
-//			return Collections.emptyList(); // Return empty list if date parsing fails
-//		}
-//	}
-	public List<Items> getArchivedItems(String fromDateStr, String toDateStr) {
+	public List<ItemSummaryView> getArchivedItems(String fromDateStr, String toDateStr) {
 		try {
 			if (fromDateStr != null && toDateStr != null && !fromDateStr.isEmpty() && !toDateStr.isEmpty()) {
 				SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
@@ -1171,10 +1256,11 @@ public class ItemsService {
 				toDate = calendar.getTime();
 
 				LOGGER.info("Fetching ARCHIVED items between {} and {}", fromDate, toDate);
-				return itemsRepository.findByStatusAndReceivedDateBetween(ItemStatus.ARCHIVED, fromDate, toDate);
+				return itemsRepository.findViewsByStatusAndReceivedDateBetweenOrderByItemIdDesc(ItemStatus.ARCHIVED,
+						fromDate, toDate);
 			} else {
 				LOGGER.info("Fetching all ARCHIVED items");
-				return itemsRepository.findByStatus(ItemStatus.ARCHIVED);
+				return itemsRepository.findViewsByStatusOrderByItemIdDesc(ItemStatus.ARCHIVED);
 			}
 		} catch (ParseException e) {
 			LOGGER.error("Error parsing dates", e);
@@ -0,0 +1,88 @@
+package com.claimit.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.claimit.dto.StoredImage;
+
+/**
+ * Moves photos that are still stored in the legacy {@code items.image} blob
+ * column into the {@link ImageStore}. Rows are processed in small batches by id
+ * so only a handful of images are held in memory at once, and the blob is
+ * cleared once the hash has been written.
+ */
+@Component
+public class LegacyImageMigration implements ApplicationRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LegacyImageMigration.class);
+
+	private static final int BATCH_SIZE = 50;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private ImageRenditionService imageRenditionService;
+
+	@Override
+	public void run(ApplicationArguments args) {
+		try {
+			jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE image IS NOT NULL", Integer.class);
+		} catch (DataAccessException e) {
+			LOGGER.debug("No legacy image column found, skipping image migration.");
+			return;
+		}
+
+		int lastItemId = 0;
+		int migrated = 0;
+		while (true) {
+			List<Integer> itemIds = jdbcTemplate.queryForList(
+					"SELECT item_id FROM items WHERE image IS NOT NULL AND item_id > ? ORDER BY item_id LIMIT ?",
+					Integer.class, lastItemId, BATCH_SIZE);
+			if (itemIds.isEmpty()) {
+				break;
+			}
+			for (Integer itemId : itemIds) {
+				lastItemId = itemId;
+				if (migrate(itemId)) {
+					migrated++;
+				}
+			}
+		}
+		if (migrated > 0) {
+			LOGGER.info("Moved {} legacy item images into the image store.", migrated);
+		}
+	}
+
+	private boolean migrate(int itemId) {
+		byte[] image = jdbcTemplate.queryForObject("SELECT image FROM items WHERE item_id = ?", byte[].class, itemId);
+		if (image == null) {
+			return false;
+		}
+		try {
+			StoredImage stored = imageStore.save(new ByteArrayInputStream(image));
+			jdbcTemplate.update(
+					"UPDATE items SET image_hash = ?, image_size = ?, image_content_type = ?, image = NULL WHERE item_id = ?",
+					stored.getHash(), stored.getSize(), stored.getContentType(), itemId);
+			imageRenditionService.generateAsync(stored.getHash());
+			return true;
+		} catch (IOException | DataAccessException e) {
+			LOGGER.error("Failed to migrate image for item ID: {}", itemId, e);
+			return false;
+		}
+	}
+
+}
@@ -7,10 +7,12 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.claimit.entity.Categories;
 import com.claimit.entity.LookUp;
+import com.claimit.event.CategoriesChangedEvent;
 import com.claimit.repo.CategoriesRepo;
 import com.claimit.repo.LookUpRepository;
 
@@ -23,6 +25,9 @@ public class LookUpService {
 	@Autowired
 	private CategoriesRepo categoriesRepo;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	/**
 	 * Saves a category and its associated subcategories into the database.
 	 * 
@@ -84,7 +89,9 @@ public class LookUpService {
 			category.setCategoryName(updatedCategory.getCategoryName());
 			category.setStatus(updatedCategory.getStatus());
 
-			return categoriesRepo.save(category);
+			Categories savedCategory = categoriesRepo.save(category);
+			eventPublisher.publishEvent(new CategoriesChangedEvent(savedCategory.getId()));
+			return savedCategory;
 		}).orElseThrow(() -> new RuntimeException("Category not found"));
 	}
 
@@ -122,6 +129,7 @@ public class LookUpService {
 			// Mark as deleted (soft delete)
 			category.setDeleted(true);
 			categoriesRepo.save(category); // Save the updated category
+			eventPublisher.publishEvent(new CategoriesChangedEvent(id));
 
 			response.put("message", "Category marked as deleted.");
 			response.put("success", true);
@@ -0,0 +1,23 @@
+package com.claimit.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.claimit.entity.EmailOutbox;
+
+/**
+ * Hands outbox emails to a mail backend. A batch is sent over one connection
+ * where the backend allows it.
+ */
+public interface MailDelivery {
+
+	/**
+	 * Sends a batch of emails.
+	 *
+	 * @param emails the emails to send.
+	 * @return the error of every email that was not sent, by outbox ID; empty when
+	 *         all were sent.
+	 */
+	Map<Long, String> deliver(List<EmailOutbox> emails);
+
+}
@@ -0,0 +1,50 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.claimit.entity.EmailOutbox;
+
+/**
+ * Local fake mail server for development and tests, enabled with
+ * {@code claimit.mail.mode=sink}. Every email is accepted and kept in memory,
+ * where tests can read it back; nothing leaves the process.
+ */
+@Service
+@ConditionalOnProperty(name = "claimit.mail.mode", havingValue = "sink")
+public class MailSinkDelivery implements MailDelivery {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MailSinkDelivery.class);
+
+	private final List<EmailOutbox> delivered = new CopyOnWriteArrayList<>();
+
+	@Override
+	public Map<Long, String> deliver(List<EmailOutbox> emails) {
+		delivered.addAll(emails);
+		LOGGER.debug("Accepted {} emails into the mail sink", emails.size());
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Returns the emails accepted so far, in the order they were sent.
+	 */
+	public List<EmailOutbox> getDelivered() {
+		return new ArrayList<>(delivered);
+	}
+
+	/**
+	 * Forgets the accepted emails.
+	 */
+	public void clear() {
+		delivered.clear();
+	}
+
+}
@@ -1,23 +1,15 @@
 package com.claimit.service;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.claimit.dto.ItemStatus;
 import com.claimit.entity.ClaimHistory;
-import com.claimit.entity.Items;
-import com.claimit.entity.User;
-import com.claimit.repo.ItemsRepo;
-import com.claimit.repo.UserRepo;
 
 @Service
 @Transactional
@@ -27,10 +19,7 @@ public class NotificationService {
 	private EmailService emailService;
 
 	@Autowired
-	private ItemsRepo itemsRepo;
-
-	@Autowired
-	private UserRepo userRepo;
+	private ExpiryNotificationJob expiryNotificationJob;
 
 	/**
 	 * Handle notification logic when the status changes.
@@ -111,75 +100,17 @@ public class NotificationService {
 				+ "</body>" + "</html>";
 	}
 
-	private String generateHtmlTemplate(Items item, String message) {
-		return String.format("<!DOCTYPE html>" + "<html>" + "<head>" + "    <style>"
-				+ "        body { font-family: Arial, sans-serif; margin: 0; padding: 0; }"
-				+ "        .container { width: 100%%; max-width: 600px; margin: 20px auto; border: 1px solid #ddd; padding: 20px; }"
-				+ "        .header { font-size: 18px; font-weight: bold; color: #333; margin-bottom: 10px; }"
-				+ "        table { width: 100%%; border-collapse: collapse; margin-top: 20px; }"
-				+ "        th, td { border: 1px solid #ddd; padding: 8px; text-align: left; }"
-				+ "        th { background-color: #f4f4f4; }" + "    </style>" + "</head>" + "<body>"
-				+ "    <div class='container'>" + "        <div class='header'>Item Expiration Notification</div>"
-				+ "        <p>Dear User,</p>" + "        <p>The following item will be archived/removed in %d days:</p>"
-				+ "        <table>" + "            <tr><th>Item Name</th><td>%s</td></tr>"
-				+ "            <tr><th>Expiration Date</th><td>%s</td></tr>" + "        </table>"
-				+ "        <p>Please take the necessary action before the expiration date.</p>"
-				+ "        <p>Thank you,<br>ClaimItHub Team</p>" + "    </div>" + "</body>" + "</html>", message,
-				item.getItemName(), item.getExpirationDate().toString());
-	}
-
 	/**
-	 * Notifies users about item expiration and saves the item with expiration
-	 * logic.
+	 * Notifies users about item expiration.
 	 * 
-	 * This method checks all items in the system and calculates whether they are
-	 * close to expiration. If the item is nearing expiration (30, 10, 2, or 1 day
-	 * left), a notification is sent to the associated users, and the item is saved
-	 * with updated expiration logic.
-	 * 
-	 * Subclasses that override this method must ensure the item expiration logic is
-	 * respected, and notifications are appropriately sent.
+	 * Sends today's notices for unclaimed items that expire in 30, 10, 2 or 1
+	 * days. The work is done in pages by {@link ExpiryNotificationJob}, which
+	 * saves its progress after every page, so this method runs outside a
+	 * transaction.
 	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
 	public void notifyAndSaveItem() {
-		List<Items> items = itemsRepo.findAll();
-		LocalDateTime now = LocalDateTime.now();
-		for (Items item : items) {
-			if (item.getReceivedDate() != null) {
-				LocalDateTime foundDateTime = item.getReceivedDate().toInstant().atZone(ZoneId.systemDefault())
-						.toLocalDateTime();
-				LocalDateTime expirationDate = foundDateTime.plusDays(30);
-				item.setExpirationDate(Date.from(expirationDate.atZone(ZoneId.systemDefault()).toInstant()));
-				long daysLeft = ChronoUnit.DAYS.between(now, expirationDate);
-				if (daysLeft == 30 || daysLeft == 10 || daysLeft == 2 || daysLeft == 1) {
-					String message = generateUserNotificationMessage(daysLeft, item);
-					saveItemWithExpirationLogic(item);
-					sendNotifications(item, message);
-				}
-			}
-		}
-	}
-
-	private void saveItemWithExpirationLogic(Items item) {
-		Items savedItem = itemsRepo.save(item);
-		if (savedItem == null) {
-			System.out.println("Data not saved");
-		}
-	}
-
-	private void sendNotifications(Items item, String message) {
-		List<User> users = userRepo.findByItemsItemId(item.getItemId());
-
-		List<String> userEmails = users.stream().map(User::getEmail).collect(Collectors.toList());
-		System.out.println("User emails: " + userEmails);
-
-		for (String email : userEmails) {
-			emailService.sendEmail(email, "Item Expiration Notification", generateHtmlTemplate(item, message));
-		}
-	}
-
-	private String generateUserNotificationMessage(long daysLeft, Items item) {
-		return String.format("Your item '%s' is %d days away from expiration. Please take action before it's too late!",
-				item.getItemName(), daysLeft);
+		expiryNotificationJob.run();
 	}
 
 }
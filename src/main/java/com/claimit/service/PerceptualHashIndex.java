@@ -0,0 +1,288 @@
+package com.claimit.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.claimit.dto.ImageRendition;
+import com.claimit.event.ItemDeletedEvent;
+import com.claimit.event.ItemSavedEvent;
+import com.claimit.utils.PerceptualHash;
+
+/**
+ * In-memory multi-index hash over the perceptual hashes of item images, used by
+ * the IMAGE search type to find near-duplicate photos. Each 64-bit hash is split
+ * into four 16-bit chunks with one table per chunk. Two hashes within distance
+ * r must agree within r / 4 bits on at least one chunk, so a lookup only probes
+ * the buckets near each chunk of the query and verifies the few candidates
+ * found there, instead of comparing against every item.
+ *
+ * The index is built once the application is ready, after hashing any items
+ * stored before perceptual hashes existed. It then follows
+ * {@link ItemSavedEvent}s and {@link ItemDeletedEvent}s after their transaction
+ * commits; removed items leave a tombstone entry until the next restart.
+ */
+@Service
+public class PerceptualHashIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PerceptualHashIndex.class);
+
+	private static final int BACKFILL_BATCH_SIZE = 200;
+
+	private static final int CHUNKS = 4;
+
+	private static final int CHUNK_BITS = Long.SIZE / CHUNKS;
+
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** Entry of each indexed item, so re-adding an item moves it. */
+	private final Map<Integer, Integer> entriesByItem = new HashMap<>();
+
+	private long[] entryHashes = new long[1024];
+
+	/** Item ID of each entry, -1 for removed entries. */
+	private int[] entryItemIds = new int[1024];
+
+	private int entryCount;
+
+	/** buckets[chunk][value] holds the entries whose chunk equals value. */
+	private final int[][][] buckets = new int[CHUNKS][1 << CHUNK_BITS][];
+
+	private final int[][] bucketSizes = new int[CHUNKS][1 << CHUNK_BITS];
+
+	/**
+	 * A match returned by {@link #search(long, int)}.
+	 */
+	public static final class Match {
+
+		private final int itemId;
+
+		private final int distance;
+
+		private Match(int itemId, int distance) {
+			this.itemId = itemId;
+			this.distance = distance;
+		}
+
+		public int getItemId() {
+			return itemId;
+		}
+
+		public int getDistance() {
+			return distance;
+		}
+	}
+
+	/**
+	 * Hashes items that have an image but no perceptual hash yet, then builds the
+	 * index from all stored hashes.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		backfill();
+
+		RowCallbackHandler indexRow = rs -> add(rs.getInt(1), rs.getLong(2));
+		jdbcTemplate.query("SELECT item_id, perceptual_hash FROM items WHERE perceptual_hash IS NOT NULL", indexRow);
+		LOGGER.info("Perceptual hash index loaded with {} items", entriesByItem.size());
+	}
+
+	private void backfill() {
+		int lastItemId = 0;
+		int hashed = 0;
+		while (true) {
+			List<Map<String, Object>> batch = jdbcTemplate.queryForList(
+					"SELECT item_id, image_hash FROM items WHERE perceptual_hash IS NULL AND image_hash IS NOT NULL "
+							+ "AND item_id > ? ORDER BY item_id LIMIT ?",
+					lastItemId, BACKFILL_BATCH_SIZE);
+			if (batch.isEmpty()) {
+				break;
+			}
+			for (Map<String, Object> row : batch) {
+				lastItemId = ((Number) row.get("item_id")).intValue();
+				Long hash = hashStoredImage((String) row.get("image_hash"));
+				if (hash != null) {
+					jdbcTemplate.update("UPDATE items SET perceptual_hash = ? WHERE item_id = ?", hash, lastItemId);
+					hashed++;
+				}
+			}
+		}
+		if (hashed > 0) {
+			LOGGER.info("Computed perceptual hashes for {} existing items", hashed);
+		}
+	}
+
+	/**
+	 * Hashes a stored image, using the thumbnail when it exists since it decodes
+	 * much faster and gives the same hash.
+	 */
+	private Long hashStoredImage(String imageHash) {
+		ImageRendition rendition = imageStore.exists(imageHash, ImageRendition.THUMBNAIL) ? ImageRendition.THUMBNAIL
+				: ImageRendition.ORIGINAL;
+		try (InputStream in = imageStore.getResource(imageHash, rendition).getInputStream()) {
+			return PerceptualHash.dHash(in);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Could not compute perceptual hash of image {}: {}", imageHash, e.getMessage());
+			return null;
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemSaved(ItemSavedEvent event) {
+		if (event.getPerceptualHash() != null) {
+			add(event.getItemId(), event.getPerceptualHash());
+		} else {
+			remove(event.getItemId());
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemDeleted(ItemDeletedEvent event) {
+		remove(event.getItemId());
+	}
+
+	/**
+	 * Adds an item to the index, replacing any hash it was indexed under before.
+	 *
+	 * @param itemId         the item ID.
+	 * @param perceptualHash the dHash of the item image.
+	 */
+	public void add(int itemId, long perceptualHash) {
+		lock.writeLock().lock();
+		try {
+			Integer existing = entriesByItem.get(itemId);
+			if (existing != null) {
+				if (entryHashes[existing] == perceptualHash) {
+					return;
+				}
+				entryItemIds[existing] = -1;
+			}
+			if (entryCount == entryItemIds.length) {
+				entryItemIds = Arrays.copyOf(entryItemIds, entryCount * 2);
+				entryHashes = Arrays.copyOf(entryHashes, entryCount * 2);
+			}
+			int entry = entryCount++;
+			entryHashes[entry] = perceptualHash;
+			entryItemIds[entry] = itemId;
+			entriesByItem.put(itemId, entry);
+			for (int chunk = 0; chunk < CHUNKS; chunk++) {
+				int value = chunk(perceptualHash, chunk);
+				int[] bucket = buckets[chunk][value];
+				int size = bucketSizes[chunk][value];
+				if (bucket == null || size == bucket.length) {
+					bucket = bucket == null ? new int[2] : Arrays.copyOf(bucket, size * 2);
+					buckets[chunk][value] = bucket;
+				}
+				bucket[size] = entry;
+				bucketSizes[chunk][value] = size + 1;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes an item from the index.
+	 *
+	 * @param itemId the item ID.
+	 */
+	public void remove(int itemId) {
+		lock.writeLock().lock();
+		try {
+			Integer entry = entriesByItem.remove(itemId);
+			if (entry != null) {
+				entryItemIds[entry] = -1;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static int chunk(long hash, int chunk) {
+		return (int) (hash >>> (chunk * CHUNK_BITS)) & CHUNK_MASK;
+	}
+
+	/**
+	 * Finds items whose image hash is within maxDistance bits of the query.
+	 *
+	 * @param perceptualHash the dHash of the query image.
+	 * @param maxDistance    the largest Hamming distance to accept.
+	 * @return the matches, closest first.
+	 */
+	public List<Match> search(long perceptualHash, int maxDistance) {
+		List<Match> matches = new ArrayList<>();
+		int chunkRadius = Math.min(CHUNK_BITS, maxDistance / CHUNKS);
+		lock.readLock().lock();
+		try {
+			BitSet checked = new BitSet(entryCount);
+			for (int chunk = 0; chunk < CHUNKS; chunk++) {
+				probe(chunk, chunk(perceptualHash, chunk), 0, chunkRadius, perceptualHash, maxDistance, checked,
+						matches);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		matches.sort(Comparator.comparingInt(Match::getDistance));
+		return matches;
+	}
+
+	/**
+	 * Visits every bucket of the chunk table whose value differs from the query
+	 * chunk in at most radius bits, flipping bits from position fromBit upwards
+	 * so each value is visited once.
+	 */
+	private void probe(int chunk, int value, int fromBit, int radius, long perceptualHash, int maxDistance,
+			BitSet checked, List<Match> matches) {
+		int[] bucket = buckets[chunk][value];
+		if (bucket != null) {
+			int size = bucketSizes[chunk][value];
+			for (int i = 0; i < size; i++) {
+				int entry = bucket[i];
+				if (checked.get(entry)) {
+					continue;
+				}
+				checked.set(entry);
+				int itemId = entryItemIds[entry];
+				if (itemId < 0) {
+					continue;
+				}
+				int distance = PerceptualHash.distance(entryHashes[entry], perceptualHash);
+				if (distance <= maxDistance) {
+					matches.add(new Match(itemId, distance));
+				}
+			}
+		}
+		if (radius == 0) {
+			return;
+		}
+		for (int bit = fromBit; bit < CHUNK_BITS; bit++) {
+			probe(chunk, value ^ (1 << bit), bit + 1, radius - 1, perceptualHash, maxDistance, checked, matches);
+		}
+	}
+
+}
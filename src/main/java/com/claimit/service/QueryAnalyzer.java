@@ -0,0 +1,238 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.claimit.event.CategoriesChangedEvent;
+import com.claimit.repo.CategoriesRepo;
+import com.claimit.utils.ColorUtils;
+
+/**
+ * Splits a search query into words in a single pass and recognises the colour
+ * and category it names. Stop words come from a fixed set, colours from
+ * {@link ColorUtils}, and categories from an in-memory trie of the category
+ * names that is rebuilt when categories change, so analysing a query costs one
+ * pass over its characters and no database access.
+ */
+@Service
+public class QueryAnalyzer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(QueryAnalyzer.class);
+
+	private static final Set<String> STOP_WORDS = Set.of("i", "my", "like", "lost", "a", "an", "the", "or", "to",
+			"of", "for", "in", "and", "find", "with", "is", "it", "on");
+
+	@Autowired
+	private CategoriesRepo categoriesRepo;
+
+	/** Trie of the lower case category names, replaced as a whole on refresh. */
+	private volatile TrieNode categories = new TrieNode();
+
+	/**
+	 * Result of analysing a query.
+	 */
+	public static final class AnalyzedQuery {
+
+		private final List<String> words;
+
+		private final String color;
+
+		private final String category;
+
+		private final Integer categoryId;
+
+		private AnalyzedQuery(List<String> words, String color, String category, Integer categoryId) {
+			this.words = words;
+			this.color = color;
+			this.category = category;
+			this.categoryId = categoryId;
+		}
+
+		/**
+		 * Returns the lower case words of the query without stop words.
+		 */
+		public List<String> getWords() {
+			return words;
+		}
+
+		/**
+		 * Returns the last colour named in the query, or null.
+		 */
+		public String getColor() {
+			return color;
+		}
+
+		/**
+		 * Returns the category named by the leading words of the query that are not
+		 * colours, or null.
+		 */
+		public String getCategory() {
+			return category;
+		}
+
+		/**
+		 * Returns the ID of the category named by the query, or null.
+		 */
+		public Integer getCategoryId() {
+			return categoryId;
+		}
+	}
+
+	/**
+	 * Node of the category trie. Children are kept in parallel arrays sorted by
+	 * character.
+	 */
+	private static final class TrieNode {
+
+		private char[] keys = new char[0];
+
+		private TrieNode[] children = new TrieNode[0];
+
+		private String category;
+
+		private int categoryId;
+
+		private TrieNode child(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			return index >= 0 ? children[index] : null;
+		}
+
+		private TrieNode addChild(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			if (index >= 0) {
+				return children[index];
+			}
+			int insertAt = -index - 1;
+			char[] newKeys = new char[keys.length + 1];
+			TrieNode[] newChildren = new TrieNode[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insertAt);
+			System.arraycopy(children, 0, newChildren, 0, insertAt);
+			newKeys[insertAt] = c;
+			newChildren[insertAt] = new TrieNode();
+			System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+			System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[insertAt];
+		}
+	}
+
+	/**
+	 * Loads the category names once the application is ready.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		refreshCategories();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCategoriesChanged(CategoriesChangedEvent event) {
+		refreshCategories();
+	}
+
+	/**
+	 * Rebuilds the category trie from the categories table. Names are stored as
+	 * their analysed words joined by single spaces, the form they are looked up
+	 * in, so "Bags and Luggage" is found by the words "bags luggage".
+	 */
+	public void refreshCategories() {
+		TrieNode root = new TrieNode();
+		int count = 0;
+		for (Object[] row : categoriesRepo.findIdAndCategoryName()) {
+			String name = (String) row[1];
+			if (name == null) {
+				continue;
+			}
+			List<String> words = tokenize(name);
+			if (words.isEmpty()) {
+				continue;
+			}
+			TrieNode node = root;
+			String key = String.join(" ", words);
+			for (int i = 0; i < key.length(); i++) {
+				node = node.addChild(key.charAt(i));
+			}
+			node.category = name;
+			node.categoryId = ((Number) row[0]).intValue();
+			count++;
+		}
+		categories = root;
+		LOGGER.info("Query analyzer loaded {} categories", count);
+	}
+
+	/**
+	 * Analyses a search query. The category is matched the way the search always
+	 * has: against the leading words of the query that are not colours, taking
+	 * the shortest sequence of them that names a category.
+	 *
+	 * @param query the search text.
+	 * @return the words, colour and category of the query.
+	 */
+	public AnalyzedQuery analyze(String query) {
+		List<String> words = tokenize(query);
+		String color = null;
+		String category = null;
+		Integer categoryId = null;
+		TrieNode node = categories;
+		boolean started = false;
+		for (String word : words) {
+			if (ColorUtils.isColorName(word)) {
+				color = word;
+				continue;
+			}
+			if (category != null || node == null) {
+				continue;
+			}
+			if (started) {
+				node = node.child(' ');
+			}
+			started = true;
+			for (int i = 0; i < word.length() && node != null; i++) {
+				node = node.child(word.charAt(i));
+			}
+			if (node != null && node.category != null) {
+				category = node.category;
+				categoryId = node.categoryId;
+			}
+		}
+		return new AnalyzedQuery(words, color, category, categoryId);
+	}
+
+	/**
+	 * Splits text into lower case letter and digit words, dropping stop words.
+	 *
+	 * @param text the text, may be null.
+	 * @return the words in order.
+	 */
+	public static List<String> tokenize(String text) {
+		List<String> words = new ArrayList<>();
+		if (text == null) {
+			return words;
+		}
+		StringBuilder word = new StringBuilder();
+		for (int i = 0, length = text.length(); i <= length; i++) {
+			char c = i < length ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c)) {
+				word.append(Character.toLowerCase(c));
+			} else if (word.length() > 0) {
+				String token = word.toString();
+				if (!STOP_WORDS.contains(token)) {
+					words.add(token);
+				}
+				word.setLength(0);
+			}
+		}
+		return words;
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.claimit.service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Sends prepared messages over as few SMTP connections as possible.
+ *
+ * Messages are sent in batches of {@code batch-size}, each batch over one
+ * connection, so the TCP and TLS handshake and the login are paid once per
+ * batch instead of once per message. The batch size keeps each session under
+ * the per-connection message limit of the mail server. A message rejected for
+ * its recipients is reported and the batch goes on over the same connection.
+ * Any other failure, or a rejection after which the connection is gone, is
+ * taken as a lost connection: the sender reconnects and tries the message once
+ * more, and if the server cannot be reached the rest of the batch is reported
+ * as failed.
+ */
+@Service
+@ConditionalOnProperty(name = "claimit.mail.mode", havingValue = "smtp", matchIfMissing = true)
+public class SmtpBatchSender {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SmtpBatchSender.class);
+
+	@Autowired
+	private JavaMailSenderImpl mailSender;
+
+	@Value("${claimit.mail.smtp.batch-size:50}")
+	private int batchSize;
+
+	/**
+	 * Creates an HTML message ready for {@link #send(List)}.
+	 *
+	 * @param to      the recipient.
+	 * @param subject the subject.
+	 * @param html    the HTML body.
+	 * @return the message.
+	 * @throws MessagingException if the recipient or content is invalid.
+	 */
+	public MimeMessage createMessage(String to, String subject, String html) throws MessagingException {
+		MimeMessage message = mailSender.createMimeMessage();
+		MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+		helper.setTo(to);
+		helper.setSubject(subject);
+		helper.setText(html, true);
+		return message;
+	}
+
+	/**
+	 * Sends messages, one connection per batch.
+	 *
+	 * @param messages the messages to send.
+	 * @return the error of every message that was not sent, by its index in the
+	 *         list; empty when all were sent.
+	 */
+	public Map<Integer, Exception> send(List<MimeMessage> messages) {
+		Map<Integer, Exception> failures = new HashMap<>();
+		for (int from = 0; from < messages.size(); from += batchSize) {
+			sendBatch(messages, from, Math.min(messages.size(), from + batchSize), failures);
+		}
+		if (!failures.isEmpty()) {
+			LOGGER.warn("Failed to send {} of {} messages", failures.size(), messages.size());
+		}
+		return failures;
+	}
+
+	private void sendBatch(List<MimeMessage> messages, int from, int to, Map<Integer, Exception> failures) {
+		Transport transport = null;
+		try {
+			for (int i = from; i < to; i++) {
+				MimeMessage message = messages.get(i);
+				MessagingException failure;
+				try {
+					if (transport == null) {
+						transport = connect();
+					}
+					sendMessage(transport, message);
+					continue;
+				} catch (SendFailedException e) {
+					// A server that hangs up mid-transaction also ends in a send failure;
+					// only a rejection over a live connection is final.
+					if (transport.isConnected()) {
+						failures.put(i, e);
+						continue;
+					}
+					failure = e;
+				} catch (MessagingException e) {
+					failure = e;
+				}
+				LOGGER.info("SMTP connection failed, reconnecting: {}", failure.getMessage());
+				close(transport);
+				transport = null;
+				try {
+					transport = connect();
+				} catch (MessagingException connectFailure) {
+					for (int j = i; j < to; j++) {
+						failures.put(j, connectFailure);
+					}
+					return;
+				}
+				try {
+					sendMessage(transport, message);
+				} catch (MessagingException retryFailure) {
+					failures.put(i, retryFailure);
+					if (!transport.isConnected()) {
+						close(transport);
+						transport = null;
+					}
+				}
+			}
+		} finally {
+			close(transport);
+		}
+	}
+
+	private Transport connect() throws MessagingException {
+		String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+		Transport transport = mailSender.getSession().getTransport(protocol);
+		try {
+			transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(),
+					mailSender.getPassword());
+		} catch (MessagingException e) {
+			close(transport);
+			throw e;
+		}
+		return transport;
+	}
+
+	private static void sendMessage(Transport transport, MimeMessage message) throws MessagingException {
+		if (message.getSentDate() == null) {
+			message.setSentDate(new Date());
+		}
+		message.saveChanges();
+		transport.sendMessage(message, message.getAllRecipients());
+	}
+
+	private static void close(Transport transport) {
+		if (transport == null) {
+			return;
+		}
+		try {
+			transport.close();
+		} catch (MessagingException e) {
+			LOGGER.debug("Failed to close SMTP connection: {}", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.claimit.entity.EmailOutbox;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * {@link MailDelivery} that sends through the configured SMTP server. The
+ * messages of a batch are sent by {@link SmtpBatchSender} over one connection,
+ * and the messages it reports as failed are matched back to their outbox rows.
+ */
+@Service
+@ConditionalOnProperty(name = "claimit.mail.mode", havingValue = "smtp", matchIfMissing = true)
+public class SmtpMailDelivery implements MailDelivery {
+
+	@Autowired
+	private SmtpBatchSender smtpBatchSender;
+
+	@Override
+	public Map<Long, String> deliver(List<EmailOutbox> emails) {
+		Map<Long, String> failures = new HashMap<>();
+		List<Long> ids = new ArrayList<>(emails.size());
+		List<MimeMessage> messages = new ArrayList<>(emails.size());
+		for (EmailOutbox email : emails) {
+			try {
+				messages.add(smtpBatchSender.createMessage(email.getRecipient(), email.getSubject(), email.getBody()));
+				ids.add(email.getId());
+			} catch (MessagingException e) {
+				failures.put(email.getId(), e.getMessage());
+			}
+		}
+		if (messages.isEmpty()) {
+			return failures;
+		}
+
+		smtpBatchSender.send(messages)
+				.forEach((index, cause) -> failures.put(ids.get(index), String.valueOf(cause.getMessage())));
+		return failures;
+	}
+
+}
@@ -0,0 +1,458 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.claimit.event.CategoriesChangedEvent;
+import com.claimit.event.ItemDeletedEvent;
+import com.claimit.event.ItemSavedEvent;
+
+/**
+ * Search-as-you-type suggestions over item names, category names, subcategory
+ * names and words that often appear in the text detected on item photos.
+ *
+ * Every suggestion is stored under each of its word starts in one sorted array
+ * of keys, so "wal" finds both "Wallet" and "Black Leather Wallet". The best
+ * suggestions of every prefix of up to {@value #PRECOMPUTED_PREFIX_LENGTH}
+ * characters are computed when the index is built, which covers the prefixes
+ * that match the most keys; longer prefixes binary search the small range of
+ * keys they match. Suggestions are ranked by the number of items they find.
+ *
+ * The index is an immutable snapshot. The items are read once at start up;
+ * after that {@link ItemSavedEvent}s and {@link ItemDeletedEvent}s keep the
+ * number of items of every name, category, subcategory and detected-text word
+ * up to date in memory, and mark the snapshot stale. A stale snapshot is
+ * rebuilt from those counts at most once per refresh interval, so neither
+ * requests nor refreshes read the items table again. Detected-text words are
+ * counted once per item.
+ */
+@Service
+public class SuggestionIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SuggestionIndex.class);
+
+	private static final int PRECOMPUTED_PREFIX_LENGTH = 3;
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	public static final int MAX_SUGGESTIONS = 10;
+
+	/** Detected-text words shorter than this are not suggested. */
+	private static final int MIN_TEXT_WORD_LENGTH = 3;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${claimit.suggest.min-text-word-count:3}")
+	private int minTextWordCount;
+
+	@Value("${claimit.suggest.max-text-words:5000}")
+	private int maxTextWords;
+
+	private volatile Snapshot snapshot = new Snapshot(new ArrayList<>());
+
+	private volatile boolean stale;
+
+	private volatile boolean categoriesStale;
+
+	/** What each item is counted under, so an update can take it back. */
+	private final Map<Integer, ItemEntry> itemsById = new HashMap<>();
+
+	private final Map<String, Integer> itemNameCounts = new HashMap<>();
+
+	private final Map<Integer, Integer> categoryCounts = new HashMap<>();
+
+	private final Map<Integer, Integer> subcategoryCounts = new HashMap<>();
+
+	/** Number of items whose detected text has each word. */
+	private final Map<String, Integer> textWordCounts = new HashMap<>();
+
+	private volatile Map<Integer, String> categoryNames = new HashMap<>();
+
+	private volatile Map<Integer, String> subcategoryNames = new HashMap<>();
+
+	/**
+	 * The name, category, subcategory and detected-text words an item is counted
+	 * under.
+	 */
+	private static final class ItemEntry {
+
+		private final String itemName;
+
+		private final int categoryId;
+
+		private final int subcategoryId;
+
+		private final String[] textWords;
+
+		private ItemEntry(String itemName, int categoryId, int subcategoryId, String[] textWords) {
+			this.itemName = itemName;
+			this.categoryId = categoryId;
+			this.subcategoryId = subcategoryId;
+			this.textWords = textWords;
+		}
+	}
+
+	/**
+	 * A suggestion with its type: ITEM, CATEGORY, SUBCATEGORY or TEXT.
+	 */
+	public static final class Suggestion {
+
+		private final String text;
+
+		private final String type;
+
+		private int weight;
+
+		private Suggestion(String text, String type, int weight) {
+			this.text = text;
+			this.type = type;
+			this.weight = weight;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+	}
+
+	/**
+	 * Sorted keys with the suggestion each belongs to, and the precomputed best
+	 * suggestions of the short prefixes.
+	 */
+	private static final class Snapshot {
+
+		private final Suggestion[] suggestions;
+
+		private final String[] keys;
+
+		private final int[] suggestionOfKey;
+
+		private final Map<String, int[]> topByPrefix = new HashMap<>();
+
+		private Snapshot(List<Suggestion> entries) {
+			this.suggestions = entries.toArray(new Suggestion[0]);
+
+			List<String> unsortedKeys = new ArrayList<>();
+			List<Integer> owners = new ArrayList<>();
+			for (int i = 0; i < suggestions.length; i++) {
+				String text = normalize(suggestions[i].getText());
+				for (int start = 0; start < text.length(); start++) {
+					if (start == 0 || text.charAt(start - 1) == ' ') {
+						unsortedKeys.add(text.substring(start));
+						owners.add(i);
+					}
+				}
+			}
+			Integer[] order = new Integer[unsortedKeys.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> unsortedKeys.get(a).compareTo(unsortedKeys.get(b)));
+			keys = new String[order.length];
+			suggestionOfKey = new int[order.length];
+			for (int i = 0; i < order.length; i++) {
+				keys[i] = unsortedKeys.get(order[i]);
+				suggestionOfKey[i] = owners.get(order[i]);
+			}
+
+			for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH; length++) {
+				int from = 0;
+				while (from < keys.length) {
+					if (keys[from].length() < length) {
+						from++;
+						continue;
+					}
+					String prefix = keys[from].substring(0, length);
+					int to = from + 1;
+					while (to < keys.length && keys[to].startsWith(prefix)) {
+						to++;
+					}
+					topByPrefix.put(prefix, top(from, to));
+					from = to;
+				}
+			}
+		}
+
+		/**
+		 * Returns the distinct suggestions of the keys in [from, to), best first.
+		 */
+		private int[] top(int from, int to) {
+			int[] best = new int[MAX_SUGGESTIONS];
+			int size = 0;
+			for (int i = from; i < to; i++) {
+				int candidate = suggestionOfKey[i];
+				boolean seen = false;
+				for (int j = 0; j < size; j++) {
+					if (best[j] == candidate) {
+						seen = true;
+						break;
+					}
+				}
+				if (seen) {
+					continue;
+				}
+				int weight = suggestions[candidate].getWeight();
+				if (size == best.length && weight <= suggestions[best[size - 1]].getWeight()) {
+					continue;
+				}
+				int position = size == best.length ? size - 1 : size++;
+				while (position > 0 && suggestions[best[position - 1]].getWeight() < weight) {
+					best[position] = best[position - 1];
+					position--;
+				}
+				best[position] = candidate;
+			}
+			return Arrays.copyOf(best, size);
+		}
+
+		private List<Suggestion> suggest(String prefix, int limit) {
+			int[] top = topByPrefix.get(prefix);
+			if (top == null && prefix.length() > PRECOMPUTED_PREFIX_LENGTH) {
+				int from = lowerBound(prefix);
+				int to = lowerBound(prefix + Character.MAX_VALUE);
+				top = top(from, to);
+			}
+			List<Suggestion> results = new ArrayList<>();
+			if (top != null) {
+				for (int i = 0; i < Math.min(limit, top.length); i++) {
+					results.add(suggestions[top[i]]);
+				}
+			}
+			return results;
+		}
+
+		private int lowerBound(String key) {
+			int low = 0;
+			int high = keys.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (keys[mid].compareTo(key) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Reads every item once, with the category and subcategory names, and builds
+	 * the index once the application is ready.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		long start = System.currentTimeMillis();
+		int items;
+		synchronized (this) {
+			itemsById.clear();
+			itemNameCounts.clear();
+			categoryCounts.clear();
+			subcategoryCounts.clear();
+			textWordCounts.clear();
+			jdbcTemplate.query("SELECT item_id, item_name, category_id, subcatgeory_id, detected_text FROM items",
+					(RowCallbackHandler) rs -> put(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4),
+							rs.getString(5)));
+			items = itemsById.size();
+		}
+		LOGGER.info("Suggestion index read {} items in {} ms", items, System.currentTimeMillis() - start);
+		categoriesStale = true;
+		rebuild();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onItemSaved(ItemSavedEvent event) {
+		put(event.getItemId(), event.getItemName(), event.getCategoryId(), event.getSubcategoryId(),
+				event.getDetectedText());
+		stale = true;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onItemDeleted(ItemDeletedEvent event) {
+		remove(event.getItemId());
+		stale = true;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCategoriesChanged(CategoriesChangedEvent event) {
+		categoriesStale = true;
+		stale = true;
+	}
+
+	/**
+	 * Rebuilds the index if items or categories changed since the last build.
+	 * Bursts of changes are folded into one rebuild.
+	 */
+	@Scheduled(fixedDelayString = "${claimit.suggest.refresh-interval-ms:30000}", initialDelayString = "${claimit.suggest.refresh-interval-ms:30000}")
+	public void refreshIfStale() {
+		if (stale) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Swaps in a new snapshot built from the counts kept in memory. The database
+	 * is only read when the category or subcategory names changed.
+	 */
+	public void rebuild() {
+		stale = false;
+		long start = System.currentTimeMillis();
+		if (categoriesStale) {
+			categoriesStale = false;
+			loadCategoryNames();
+		}
+		List<Suggestion> suggestions = collectSuggestions();
+		snapshot = new Snapshot(suggestions);
+		LOGGER.info("Suggestion index rebuilt with {} suggestions in {} ms", suggestions.size(),
+				System.currentTimeMillis() - start);
+	}
+
+	private void loadCategoryNames() {
+		Map<Integer, String> categories = new LinkedHashMap<>();
+		jdbcTemplate.query("SELECT id, category_name FROM categories WHERE deleted = false",
+				(RowCallbackHandler) rs -> categories.put(rs.getInt(1), rs.getString(2)));
+		Map<Integer, String> subcategories = new LinkedHashMap<>();
+		jdbcTemplate.query("SELECT id, name FROM subcategories",
+				(RowCallbackHandler) rs -> subcategories.put(rs.getInt(1), rs.getString(2)));
+		categoryNames = categories;
+		subcategoryNames = subcategories;
+	}
+
+	private synchronized List<Suggestion> collectSuggestions() {
+		Map<String, Suggestion> suggestions = new LinkedHashMap<>();
+		categoryNames.forEach((id, name) -> add(suggestions, name, "CATEGORY", categoryCounts.getOrDefault(id, 0)));
+		subcategoryNames
+				.forEach((id, name) -> add(suggestions, name, "SUBCATEGORY", subcategoryCounts.getOrDefault(id, 0)));
+		itemNameCounts.forEach((name, count) -> add(suggestions, name, "ITEM", count));
+		textWordCounts.entrySet().stream().filter(entry -> entry.getValue() >= minTextWordCount)
+				.sorted((a, b) -> b.getValue() - a.getValue()).limit(maxTextWords)
+				.forEach(entry -> add(suggestions, entry.getKey(), "TEXT", entry.getValue()));
+		return new ArrayList<>(suggestions.values());
+	}
+
+	/**
+	 * Counts an item, replacing what was counted for it before. Must be called
+	 * holding the lock of the index.
+	 */
+	private void put(int itemId, String itemName, int categoryId, int subcategoryId, String detectedText) {
+		remove(itemId);
+		ItemEntry entry = new ItemEntry(itemName, categoryId, subcategoryId, textWords(detectedText));
+		itemsById.put(itemId, entry);
+		if (itemName != null) {
+			itemNameCounts.merge(itemName, 1, Integer::sum);
+		}
+		categoryCounts.merge(categoryId, 1, Integer::sum);
+		subcategoryCounts.merge(subcategoryId, 1, Integer::sum);
+		for (String word : entry.textWords) {
+			textWordCounts.merge(word, 1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Takes back what was counted for an item. Must be called holding the lock of
+	 * the index.
+	 */
+	private void remove(int itemId) {
+		ItemEntry entry = itemsById.remove(itemId);
+		if (entry == null) {
+			return;
+		}
+		if (entry.itemName != null) {
+			decrement(itemNameCounts, entry.itemName);
+		}
+		decrement(categoryCounts, entry.categoryId);
+		decrement(subcategoryCounts, entry.subcategoryId);
+		for (String word : entry.textWords) {
+			decrement(textWordCounts, word);
+		}
+	}
+
+	private static <K> void decrement(Map<K, Integer> counts, K key) {
+		counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+	}
+
+	/**
+	 * Returns the distinct words of detected text that can be suggested.
+	 */
+	private static String[] textWords(String detectedText) {
+		Set<String> words = new LinkedHashSet<>();
+		for (String word : QueryAnalyzer.tokenize(detectedText)) {
+			if (word.length() >= MIN_TEXT_WORD_LENGTH && Character.isLetter(word.charAt(0))) {
+				words.add(word);
+			}
+		}
+		return words.toArray(new String[0]);
+	}
+
+	/**
+	 * Adds a suggestion, or adds its weight to an existing suggestion with the
+	 * same text.
+	 */
+	private static void add(Map<String, Suggestion> suggestions, String text, String type, int weight) {
+		String key = normalize(text);
+		if (key.isEmpty()) {
+			return;
+		}
+		Suggestion existing = suggestions.get(key);
+		if (existing != null) {
+			existing.weight += weight;
+		} else {
+			suggestions.put(key, new Suggestion(text.trim(), type, weight));
+		}
+	}
+
+	/**
+	 * Returns the best suggestions for a typed prefix.
+	 *
+	 * @param prefix the text typed so far.
+	 * @param limit  the maximum number of suggestions, at most
+	 *               {@link #MAX_SUGGESTIONS}.
+	 * @return the suggestions, most items first.
+	 */
+	public List<Suggestion> suggest(String prefix, int limit) {
+		String normalized = normalize(prefix);
+		if (normalized.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return snapshot.suggest(normalized, Math.min(limit, MAX_SUGGESTIONS));
+	}
+
+	/**
+	 * Lower cases text and collapses runs of whitespace into single spaces.
+	 */
+	private static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		return WHITESPACE.matcher(text.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+	}
+
+}
@@ -0,0 +1,228 @@
+package com.claimit.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Coalesces annotation requests from concurrent uploads into a single
+ * {@code batchAnnotateImages} call. A batch is sent once it holds
+ * {@code max-size} images or {@code max-bytes} of image data, or when the
+ * oldest request has waited {@code max-wait-ms}, whichever comes first. Each
+ * caller receives only its own response.
+ */
+@Service
+public class VisionBatcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(VisionBatcher.class);
+
+	@Autowired
+	private ImageAnnotator imageAnnotator;
+
+	/** Vision accepts at most 16 images in one synchronous batch request. */
+	@Value("${claimit.vision.batch.max-size:16}")
+	private int maxBatchSize;
+
+	@Value("${claimit.vision.batch.max-wait-ms:50}")
+	private long maxWaitMs;
+
+	@Value("${claimit.vision.batch.max-bytes:8388608}")
+	private long maxBatchBytes;
+
+	@Value("${claimit.vision.batch.max-in-flight:2}")
+	private int maxInFlight;
+
+	/** Longest a caller waits for its response before giving up. */
+	@Value("${claimit.vision.batch.timeout-ms:60000}")
+	private long timeoutMs;
+
+	private final LinkedBlockingQueue<PendingRequest> queue = new LinkedBlockingQueue<>();
+
+	private ExecutorService dispatcher;
+
+	private Thread collector;
+
+	private volatile boolean running;
+
+	@PostConstruct
+	public void start() {
+		AtomicInteger threadCount = new AtomicInteger();
+		dispatcher = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+			Thread thread = new Thread(runnable, "vision-batch-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		running = true;
+		collector = new Thread(this::collect, "vision-batcher");
+		collector.setDaemon(true);
+		collector.start();
+	}
+
+	/**
+	 * Queues a request for the next batch.
+	 *
+	 * @param request the annotate request for one image.
+	 * @return a future completed with the response for this request.
+	 */
+	public CompletableFuture<AnnotateImageResponse> submit(AnnotateImageRequest request) {
+		PendingRequest pending = new PendingRequest(request);
+		if (!running) {
+			pending.future.completeExceptionally(new IllegalStateException("Vision batcher is shut down"));
+			return pending.future;
+		}
+		queue.add(pending);
+		return pending.future;
+	}
+
+	/**
+	 * Queues a request and waits for its response, at most {@code timeout-ms}.
+	 *
+	 * @param request the annotate request for one image.
+	 * @return the response for this request.
+	 * @throws IllegalStateException if the batch failed, timed out or the batcher
+	 *                               shut down.
+	 */
+	public AnnotateImageResponse annotate(AnnotateImageRequest request) {
+		CompletableFuture<AnnotateImageResponse> future = submit(request);
+		try {
+			return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException("Vision annotation failed", e.getCause());
+		} catch (TimeoutException e) {
+			future.completeExceptionally(e);
+			throw new IllegalStateException("Vision annotation timed out after " + timeoutMs + " ms", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for Vision annotation", e);
+		}
+	}
+
+	private void collect() {
+		PendingRequest carry = null;
+		List<PendingRequest> batch = null;
+		while (running) {
+			try {
+				PendingRequest first = carry != null ? carry : queue.take();
+				carry = null;
+
+				batch = new ArrayList<>(maxBatchSize);
+				batch.add(first);
+				long batchBytes = first.size();
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+
+				while (batch.size() < maxBatchSize) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					PendingRequest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					if (batchBytes + next.size() > maxBatchBytes) {
+						carry = next;
+						break;
+					}
+					batch.add(next);
+					batchBytes += next.size();
+				}
+				List<PendingRequest> ready = batch;
+				batch = null;
+				try {
+					dispatcher.execute(() -> send(ready));
+				} catch (RejectedExecutionException e) {
+					fail(ready);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		// a batch being filled when the collector stopped was never dispatched
+		if (batch != null) {
+			fail(batch);
+		}
+		if (carry != null) {
+			fail(List.of(carry));
+		}
+	}
+
+	private static void fail(List<PendingRequest> batch) {
+		for (PendingRequest pending : batch) {
+			pending.future.completeExceptionally(new IllegalStateException("Vision batcher is shut down"));
+		}
+	}
+
+	private void send(List<PendingRequest> batch) {
+		List<AnnotateImageRequest> requests = new ArrayList<>(batch.size());
+		for (PendingRequest pending : batch) {
+			requests.add(pending.request);
+		}
+		try {
+			List<AnnotateImageResponse> responses = imageAnnotator.batchAnnotate(requests);
+			if (responses.size() != batch.size()) {
+				throw new IllegalStateException(
+						"Vision returned " + responses.size() + " responses for " + batch.size() + " images");
+			}
+			LOGGER.debug("Annotated batch of {} images", batch.size());
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).future.complete(responses.get(i));
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("Vision batch of {} images failed: {}", batch.size(), e.getMessage());
+			for (PendingRequest pending : batch) {
+				pending.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		running = false;
+		collector.interrupt();
+		dispatcher.shutdown();
+		PendingRequest pending;
+		while ((pending = queue.poll()) != null) {
+			pending.future.completeExceptionally(new IllegalStateException("Vision batcher is shut down"));
+		}
+	}
+
+	private static final class PendingRequest {
+
+		private final AnnotateImageRequest request;
+
+		private final CompletableFuture<AnnotateImageResponse> future = new CompletableFuture<>();
+
+		private PendingRequest(AnnotateImageRequest request) {
+			this.request = request;
+		}
+
+		private long size() {
+			return request.getImage().getContent().size();
+		}
+	}
+
+}
@@ -0,0 +1,630 @@
+package com.claimit.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.claimit.dto.ImageRendition;
+import com.claimit.dto.ItemStatus;
+import com.claimit.event.ItemDeletedEvent;
+import com.claimit.event.ItemSavedEvent;
+import com.claimit.utils.ImageFeatures;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.DominantColorsAnnotation;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Approximate nearest neighbour index over {@link ImageFeatures} vectors, used
+ * to find items that look like a photo. Vectors are kept in one flat
+ * {@code float[]}. Once enough items are indexed, they are partitioned into
+ * inverted lists around k-means centroids (IVF-flat) and a query only scans the
+ * few lists whose centroids are closest to it. Below that size, or before the
+ * first training, queries scan all vectors.
+ *
+ * Training and the snapshot file run on a schedule, off the request path. On
+ * startup the snapshot is loaded and reconciled with the items table: vectors of
+ * deleted items are dropped and missing items are computed from their
+ * thumbnails. After that the index follows {@link ItemSavedEvent}s and
+ * {@link ItemDeletedEvent}s after their transaction commits. The vector of a
+ * saved item is only computed when its image changed, and not before
+ * enrichment, so the dominant colours of its annotation are included.
+ */
+@Service
+public class VisualSimilarityIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(VisualSimilarityIndex.class);
+
+	private static final int DIM = ImageFeatures.DIMENSIONS;
+
+	private static final int SNAPSHOT_MAGIC = 0x56495846;
+
+	private static final int SNAPSHOT_VERSION = 1;
+
+	private static final int KMEANS_ITERATIONS = 8;
+
+	private static final int KMEANS_SAMPLE_SIZE = 20_000;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private AnnotationCache annotationCache;
+
+	@Value("${claimit.visual-index.snapshot:./data/visual-index.bin}")
+	private String snapshotPath;
+
+	/** Items needed before vectors are partitioned into inverted lists. */
+	@Value("${claimit.visual-index.train-threshold:1000}")
+	private int trainThreshold;
+
+	/** Number of inverted lists scanned per query. */
+	@Value("${claimit.visual-index.nprobe:8}")
+	private int nprobe;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** Vector of slot s is vectors[s * DIM, (s + 1) * DIM). */
+	private float[] vectors = new float[1024 * DIM];
+
+	/** Item ID of each slot, -1 for removed slots. */
+	private int[] slotItemIds = new int[1024];
+
+	private int slotCount;
+
+	private final Map<Integer, Integer> slotsByItem = new HashMap<>();
+
+	/** Image each indexed item was computed from, so a save of the same image is skipped. */
+	private final Map<Integer, String> imageHashesByItem = new ConcurrentHashMap<>();
+
+	/** Centroids of the inverted lists, empty before training. */
+	private float[] centroids = new float[0];
+
+	private int listCount;
+
+	private int[][] lists = new int[0][];
+
+	private int[] listSizes = new int[0];
+
+	/** Live items when the centroids were last trained. */
+	private int trainedSize;
+
+	private volatile boolean dirty;
+
+	/**
+	 * A match returned by {@link #search(float[], int)}.
+	 */
+	public static final class Match {
+
+		private final int itemId;
+
+		private final float similarity;
+
+		private Match(int itemId, float similarity) {
+			this.itemId = itemId;
+			this.similarity = similarity;
+		}
+
+		public int getItemId() {
+			return itemId;
+		}
+
+		public float getSimilarity() {
+			return similarity;
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemSaved(ItemSavedEvent event) {
+		if (event.getImageHash() == null) {
+			remove(event.getItemId());
+			return;
+		}
+		if (event.getStatus() == ItemStatus.PENDING_ENRICHMENT
+				|| event.getImageHash().equals(imageHashesByItem.get(event.getItemId()))) {
+			return;
+		}
+		indexStoredImage(event.getItemId(), event.getImageHash());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemDeleted(ItemDeletedEvent event) {
+		remove(event.getItemId());
+	}
+
+	private DominantColorsAnnotation dominantColors(AnnotateImageResponse response) {
+		return response != null && response.hasImagePropertiesAnnotation()
+				? response.getImagePropertiesAnnotation().getDominantColors()
+				: null;
+	}
+
+	/**
+	 * Adds or replaces the vector of an item.
+	 *
+	 * @param itemId the item ID.
+	 * @param vector the unit length feature vector.
+	 */
+	public void add(int itemId, float[] vector) {
+		lock.writeLock().lock();
+		try {
+			Integer existing = slotsByItem.get(itemId);
+			if (existing != null) {
+				removeSlot(existing);
+			}
+			if (slotCount == slotItemIds.length) {
+				slotItemIds = Arrays.copyOf(slotItemIds, slotCount * 2);
+				vectors = Arrays.copyOf(vectors, slotCount * 2 * DIM);
+			}
+			int slot = slotCount++;
+			System.arraycopy(vector, 0, vectors, slot * DIM, DIM);
+			slotItemIds[slot] = itemId;
+			slotsByItem.put(itemId, slot);
+			if (listCount > 0) {
+				appendToList(nearestCentroid(vectors, slot * DIM), slot);
+			}
+			dirty = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes an item from the index.
+	 *
+	 * @param itemId the item ID.
+	 */
+	public void remove(int itemId) {
+		lock.writeLock().lock();
+		try {
+			Integer slot = slotsByItem.get(itemId);
+			if (slot != null) {
+				removeSlot(slot);
+				dirty = true;
+			}
+			imageHashesByItem.remove(itemId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void removeSlot(int slot) {
+		slotsByItem.remove(slotItemIds[slot]);
+		// The slot stays in its inverted list and is skipped until the next
+		// compaction.
+		slotItemIds[slot] = -1;
+	}
+
+	private void appendToList(int list, int slot) {
+		if (listSizes[list] == lists[list].length) {
+			lists[list] = Arrays.copyOf(lists[list], Math.max(8, lists[list].length * 2));
+		}
+		lists[list][listSizes[list]++] = slot;
+	}
+
+	/**
+	 * Finds the items whose photos are most similar to the query vector.
+	 *
+	 * @param query the unit length feature vector of the query photo.
+	 * @param k     the number of results.
+	 * @return up to k matches, most similar first.
+	 */
+	public List<Match> search(float[] query, int k) {
+		TopK top = new TopK(k);
+		lock.readLock().lock();
+		try {
+			if (listCount == 0) {
+				for (int slot = 0; slot < slotCount; slot++) {
+					offer(top, query, slot);
+				}
+			} else {
+				for (int list : nearestCentroids(query, Math.min(nprobe, listCount))) {
+					int[] slots = lists[list];
+					for (int i = 0; i < listSizes[list]; i++) {
+						offer(top, query, slots[i]);
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return top.toMatches();
+	}
+
+	private void offer(TopK top, float[] query, int slot) {
+		int itemId = slotItemIds[slot];
+		if (itemId < 0) {
+			return;
+		}
+		float dot = 0;
+		int offset = slot * DIM;
+		for (int d = 0; d < DIM; d++) {
+			dot += query[d] * vectors[offset + d];
+		}
+		top.offer(itemId, dot);
+	}
+
+	private int nearestCentroid(float[] data, int offset) {
+		int best = 0;
+		float bestDot = Float.NEGATIVE_INFINITY;
+		for (int c = 0; c < listCount; c++) {
+			float dot = dot(centroids, c * DIM, data, offset);
+			if (dot > bestDot) {
+				bestDot = dot;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	private int[] nearestCentroids(float[] query, int count) {
+		TopK top = new TopK(count);
+		for (int c = 0; c < listCount; c++) {
+			top.offer(c, dot(centroids, c * DIM, query, 0));
+		}
+		return top.ids();
+	}
+
+	private static float dot(float[] a, int aOffset, float[] b, int bOffset) {
+		float dot = 0;
+		for (int d = 0; d < DIM; d++) {
+			dot += a[aOffset + d] * b[bOffset + d];
+		}
+		return dot;
+	}
+
+	/**
+	 * Retrains the centroids once the index has grown enough and writes the
+	 * snapshot if anything changed.
+	 */
+	@Scheduled(fixedDelayString = "${claimit.visual-index.maintenance-interval-ms:600000}", initialDelayString = "${claimit.visual-index.maintenance-interval-ms:600000}")
+	public void maintain() {
+		int live;
+		lock.readLock().lock();
+		try {
+			live = slotsByItem.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (live >= trainThreshold && (trainedSize == 0 || live >= 2 * trainedSize)) {
+			train();
+		}
+		if (dirty) {
+			saveSnapshot();
+		}
+	}
+
+	/**
+	 * Runs spherical k-means on a sample of the vectors, then rebuilds the
+	 * inverted lists and compacts removed slots. Only the final rebuild holds the
+	 * write lock.
+	 */
+	private void train() {
+		float[] sample;
+		int sampleSize;
+		lock.readLock().lock();
+		try {
+			List<Integer> liveSlots = new ArrayList<>(slotsByItem.values());
+			sampleSize = Math.min(liveSlots.size(), KMEANS_SAMPLE_SIZE);
+			Collections.shuffle(liveSlots, new Random(42));
+			sample = new float[sampleSize * DIM];
+			for (int i = 0; i < sampleSize; i++) {
+				System.arraycopy(vectors, liveSlots.get(i) * DIM, sample, i * DIM, DIM);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (sampleSize == 0) {
+			return;
+		}
+
+		int k = Math.max(1, (int) Math.sqrt(sampleSize));
+		float[] trained = kMeans(sample, sampleSize, k);
+
+		lock.writeLock().lock();
+		try {
+			compact();
+			centroids = trained;
+			listCount = k;
+			lists = new int[k][];
+			listSizes = new int[k];
+			for (int c = 0; c < k; c++) {
+				lists[c] = new int[8];
+			}
+			for (int slot = 0; slot < slotCount; slot++) {
+				appendToList(nearestCentroid(vectors, slot * DIM), slot);
+			}
+			trainedSize = slotCount;
+			dirty = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		LOGGER.info("Visual similarity index trained with {} lists over {} items", k, trainedSize);
+	}
+
+	private static float[] kMeans(float[] sample, int sampleSize, int k) {
+		float[] centers = new float[k * DIM];
+		for (int c = 0; c < k; c++) {
+			System.arraycopy(sample, (c * sampleSize / k) * DIM, centers, c * DIM, DIM);
+		}
+		int[] assignment = new int[sampleSize];
+		for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+			for (int i = 0; i < sampleSize; i++) {
+				int best = 0;
+				float bestDot = Float.NEGATIVE_INFINITY;
+				for (int c = 0; c < k; c++) {
+					float dot = dot(centers, c * DIM, sample, i * DIM);
+					if (dot > bestDot) {
+						bestDot = dot;
+						best = c;
+					}
+				}
+				assignment[i] = best;
+			}
+			float[] sums = new float[k * DIM];
+			for (int i = 0; i < sampleSize; i++) {
+				int offset = assignment[i] * DIM;
+				for (int d = 0; d < DIM; d++) {
+					sums[offset + d] += sample[i * DIM + d];
+				}
+			}
+			for (int c = 0; c < k; c++) {
+				double norm = 0;
+				for (int d = 0; d < DIM; d++) {
+					norm += sums[c * DIM + d] * sums[c * DIM + d];
+				}
+				// Empty clusters keep their previous center.
+				if (norm > 0) {
+					float scale = (float) (1 / Math.sqrt(norm));
+					for (int d = 0; d < DIM; d++) {
+						centers[c * DIM + d] = sums[c * DIM + d] * scale;
+					}
+				}
+			}
+		}
+		return centers;
+	}
+
+	/** Drops removed slots. Must hold the write lock; lists are rebuilt after. */
+	private void compact() {
+		int target = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			int itemId = slotItemIds[slot];
+			if (itemId < 0) {
+				continue;
+			}
+			if (target != slot) {
+				System.arraycopy(vectors, slot * DIM, vectors, target * DIM, DIM);
+				slotItemIds[target] = itemId;
+				slotsByItem.put(itemId, target);
+			}
+			target++;
+		}
+		slotCount = target;
+	}
+
+	/**
+	 * Loads the snapshot and reconciles it with the items table once the
+	 * application is ready.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		loadSnapshot();
+
+		Map<Integer, String> imageHashes = new HashMap<>();
+		jdbcTemplate.query("SELECT item_id, image_hash FROM items WHERE image_hash IS NOT NULL",
+				(RowCallbackHandler) rs -> imageHashes.put(rs.getInt(1),
+						rs.getString(2)));
+
+		Set<Integer> indexed;
+		lock.readLock().lock();
+		try {
+			indexed = new HashSet<>(slotsByItem.keySet());
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (Integer itemId : indexed) {
+			if (!imageHashes.containsKey(itemId)) {
+				remove(itemId);
+			}
+		}
+		int computed = 0;
+		for (Map.Entry<Integer, String> entry : imageHashes.entrySet()) {
+			if (indexed.contains(entry.getKey())) {
+				imageHashesByItem.put(entry.getKey(), entry.getValue());
+			} else if (indexStoredImage(entry.getKey(), entry.getValue())) {
+				computed++;
+			}
+		}
+		LOGGER.info("Visual similarity index loaded with {} items ({} computed)", imageHashes.size(), computed);
+		maintain();
+	}
+
+	/**
+	 * Computes the feature vector of an item from its stored image and the cached
+	 * annotation of the image. Failures are logged, the item simply is not found
+	 * by visual search.
+	 */
+	private boolean indexStoredImage(int itemId, String imageHash) {
+		ImageRendition rendition = imageStore.exists(imageHash, ImageRendition.THUMBNAIL) ? ImageRendition.THUMBNAIL
+				: ImageRendition.ORIGINAL;
+		// The annotation cache is keyed by the same content hash as the image store.
+		Optional<AnnotateImageResponse> response = annotationCache.get(imageHash);
+		try (InputStream in = imageStore.getResource(imageHash, rendition).getInputStream()) {
+			float[] vector = ImageFeatures.extract(in, dominantColors(response.orElse(null)));
+			if (vector == null) {
+				return false;
+			}
+			add(itemId, vector);
+			imageHashesByItem.put(itemId, imageHash);
+			return true;
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Could not compute visual features of image {}: {}", imageHash, e.getMessage());
+			return false;
+		}
+	}
+
+	private void loadSnapshot() {
+		Path path = Paths.get(snapshotPath);
+		if (!Files.exists(path)) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION || in.readInt() != DIM) {
+				LOGGER.warn("Ignoring visual index snapshot {} written by another version", path);
+				return;
+			}
+			int k = in.readInt();
+			float[] snapshotCentroids = new float[k * DIM];
+			for (int i = 0; i < snapshotCentroids.length; i++) {
+				snapshotCentroids[i] = in.readFloat();
+			}
+			int count = in.readInt();
+			lock.writeLock().lock();
+			try {
+				centroids = snapshotCentroids;
+				listCount = k;
+				lists = new int[k][];
+				listSizes = new int[k];
+				for (int c = 0; c < k; c++) {
+					lists[c] = new int[8];
+				}
+				trainedSize = k > 0 ? count : 0;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			float[] vector = new float[DIM];
+			for (int i = 0; i < count; i++) {
+				int itemId = in.readInt();
+				for (int d = 0; d < DIM; d++) {
+					vector[d] = in.readFloat();
+				}
+				add(itemId, vector);
+			}
+			dirty = false;
+			LOGGER.info("Loaded {} vectors from visual index snapshot", count);
+		} catch (IOException e) {
+			LOGGER.warn("Could not read visual index snapshot {}: {}", path, e.getMessage());
+		}
+	}
+
+	private void saveSnapshot() {
+		Path path = Paths.get(snapshotPath).toAbsolutePath();
+		lock.readLock().lock();
+		try {
+			dirty = false;
+			Files.createDirectories(path.getParent());
+			Path tmp = Files.createTempFile(path.getParent(), "visual-index-", ".part");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(SNAPSHOT_MAGIC);
+				out.writeInt(SNAPSHOT_VERSION);
+				out.writeInt(DIM);
+				out.writeInt(listCount);
+				for (int i = 0; i < listCount * DIM; i++) {
+					out.writeFloat(centroids[i]);
+				}
+				out.writeInt(slotsByItem.size());
+				for (int slot = 0; slot < slotCount; slot++) {
+					if (slotItemIds[slot] < 0) {
+						continue;
+					}
+					out.writeInt(slotItemIds[slot]);
+					for (int d = 0; d < DIM; d++) {
+						out.writeFloat(vectors[slot * DIM + d]);
+					}
+				}
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			dirty = true;
+			LOGGER.warn("Could not write visual index snapshot {}: {}", path, e.getMessage());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (dirty) {
+			saveSnapshot();
+		}
+	}
+
+	/**
+	 * Keeps the k highest scores seen, in a small array sorted by score.
+	 */
+	private static final class TopK {
+
+		private final int[] ids;
+
+		private final float[] scores;
+
+		private int size;
+
+		private TopK(int k) {
+			this.ids = new int[Math.max(0, k)];
+			this.scores = new float[Math.max(0, k)];
+		}
+
+		private void offer(int id, float score) {
+			if (ids.length == 0 || (size == ids.length && score <= scores[size - 1])) {
+				return;
+			}
+			int i = size < ids.length ? size++ : size - 1;
+			while (i > 0 && scores[i - 1] < score) {
+				ids[i] = ids[i - 1];
+				scores[i] = scores[i - 1];
+				i--;
+			}
+			ids[i] = id;
+			scores[i] = score;
+		}
+
+		private int[] ids() {
+			return Arrays.copyOf(ids, size);
+		}
+
+		private List<Match> toMatches() {
+			List<Match> matches = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				matches.add(new Match(ids[i], scores[i]));
+			}
+			return matches;
+		}
+	}
+
+}
@@ -2,6 +2,9 @@ package com.claimit.utils;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class ColorUtils {
 
@@ -11,6 +14,19 @@ public class ColorUtils {
 			new Color("Magenta", 255, 0, 255), new Color("Gray", 128, 128, 128), new Color("Orange", 255, 165, 0),
 			new Color("Pink", 255, 192, 203));
 
+	private static final Set<String> COLOR_NAMES = COLORS.stream()
+			.map(color -> color.getName().toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+
+	/**
+	 * Checks whether a word is the name of one of the known colors.
+	 *
+	 * @param word the lower case word.
+	 * @return true if the word names a color.
+	 */
+	public static boolean isColorName(String word) {
+		return COLOR_NAMES.contains(word);
+	}
+
 	public static String getClosestColorName(int r, int g, int b) {
 		Color closestColor = null;
 		double minDistance = Double.MAX_VALUE;
@@ -0,0 +1,46 @@
+package com.claimit.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtils {
+
+	private static final HexFormat HEX = HexFormat.of();
+
+	private HashUtils() {
+	}
+
+	/**
+	 * Creates a new SHA-256 digest.
+	 * 
+	 * @return a fresh {@link MessageDigest} instance.
+	 */
+	public static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * Computes the hex encoded SHA-256 of the given bytes.
+	 * 
+	 * @param content the bytes to hash.
+	 * @return the lower case hex digest.
+	 */
+	public static String sha256Hex(byte[] content) {
+		return HEX.formatHex(newSha256().digest(content));
+	}
+
+	/**
+	 * Hex encodes the result of a finished digest.
+	 * 
+	 * @param digest the digest to complete.
+	 * @return the lower case hex digest.
+	 */
+	public static String toHex(MessageDigest digest) {
+		return HEX.formatHex(digest.digest());
+	}
+}
@@ -0,0 +1,206 @@
+package com.claimit.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Hierarchical timing wheel holding at most one timer per key.
+ *
+ * Time is divided into ticks. Level 0 has one bucket per tick for the next
+ * {@value #WHEEL_SIZE} ticks, and every higher level has buckets
+ * {@value #WHEEL_SIZE} times as wide as the level below, so six levels cover
+ * far more than any expiry date. A timer is linked into the bucket of the
+ * lowest level whose span reaches its deadline. When time enters a bucket of a
+ * higher level, its timers are moved down to the level below, and the timers
+ * in the level 0 bucket of the current tick fire. Scheduling and cancelling a
+ * timer are constant time, and a timer is moved at most once per level before
+ * it fires.
+ *
+ * The wheel is not thread safe; callers synchronize access to it.
+ *
+ * @param <K> the timer key, such as an item ID.
+ * @param <V> the value handed back when the timer fires.
+ */
+public class HierarchicalTimingWheel<K, V> {
+
+	private static final int WHEEL_BITS = 6;
+
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private static final int LEVELS = 6;
+
+	private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+	private final long tickMillis;
+
+	private final Timer<K, V>[][] buckets;
+
+	private final Map<K, Timer<K, V>> timers = new HashMap<>();
+
+	/** The last tick whose timers have fired. */
+	private long currentTick;
+
+	private static final class Timer<K, V> {
+
+		private final K key;
+
+		private final V value;
+
+		private final long deadlineTick;
+
+		private Timer<K, V> previous;
+
+		private Timer<K, V> next;
+
+		private int level;
+
+		private int slot;
+
+		private Timer(K key, V value, long deadlineTick) {
+			this.key = key;
+			this.value = value;
+			this.deadlineTick = deadlineTick;
+		}
+	}
+
+	/**
+	 * Creates an empty wheel.
+	 *
+	 * @param tickMillis the length of a tick, the precision timers fire with.
+	 * @param nowMillis  the current time.
+	 */
+	@SuppressWarnings("unchecked")
+	public HierarchicalTimingWheel(long tickMillis, long nowMillis) {
+		this.tickMillis = tickMillis;
+		this.buckets = new Timer[LEVELS][WHEEL_SIZE];
+		this.currentTick = nowMillis / tickMillis;
+	}
+
+	/**
+	 * Schedules a timer, replacing the timer of the same key. A deadline that has
+	 * passed fires on the next tick.
+	 *
+	 * @param key            the timer key.
+	 * @param deadlineMillis the time the timer fires at.
+	 * @param value          the value handed back when it fires.
+	 */
+	public void schedule(K key, long deadlineMillis, V value) {
+		cancel(key);
+		long deadlineTick = Math.max(currentTick + 1, ceilDiv(deadlineMillis, tickMillis));
+		Timer<K, V> timer = new Timer<>(key, value, Math.min(deadlineTick, currentTick + MAX_DELTA));
+		timers.put(key, timer);
+		link(timer);
+	}
+
+	/**
+	 * Cancels the timer of a key.
+	 *
+	 * @param key the timer key.
+	 * @return whether there was a timer.
+	 */
+	public boolean cancel(K key) {
+		Timer<K, V> timer = timers.remove(key);
+		if (timer == null) {
+			return false;
+		}
+		unlink(timer);
+		return true;
+	}
+
+	/**
+	 * Returns whether a key has a timer.
+	 */
+	public boolean contains(K key) {
+		return timers.containsKey(key);
+	}
+
+	/**
+	 * Returns the number of timers.
+	 */
+	public int size() {
+		return timers.size();
+	}
+
+	/**
+	 * Moves time forward and fires the timers that are due, in deadline order.
+	 * A fired timer is removed before it is handed to the callback, which may
+	 * schedule a new timer for the same key.
+	 *
+	 * @param nowMillis the current time.
+	 * @param onExpiry  called with the key and value of every fired timer.
+	 */
+	public void advance(long nowMillis, BiConsumer<K, V> onExpiry) {
+		long targetTick = nowMillis / tickMillis;
+		while (currentTick < targetTick) {
+			currentTick++;
+			for (int level = LEVELS - 1; level > 0; level--) {
+				if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+					cascade(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+				}
+			}
+			int slot = (int) (currentTick & WHEEL_MASK);
+			Timer<K, V> timer = buckets[0][slot];
+			buckets[0][slot] = null;
+			while (timer != null) {
+				Timer<K, V> next = timer.next;
+				timer.previous = null;
+				timer.next = null;
+				timers.remove(timer.key);
+				onExpiry.accept(timer.key, timer.value);
+				timer = next;
+			}
+		}
+	}
+
+	private void cascade(int level, int slot) {
+		Timer<K, V> timer = buckets[level][slot];
+		buckets[level][slot] = null;
+		while (timer != null) {
+			Timer<K, V> next = timer.next;
+			timer.previous = null;
+			timer.next = null;
+			link(timer);
+			timer = next;
+		}
+	}
+
+	private void link(Timer<K, V> timer) {
+		long delta = timer.deadlineTick - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+			level++;
+		}
+		// a timer cascaded in its own tick goes to the bucket fired next
+		long tick = Math.max(timer.deadlineTick, currentTick);
+		int slot = (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+		timer.level = level;
+		timer.slot = slot;
+		Timer<K, V> head = buckets[level][slot];
+		timer.next = head;
+		if (head != null) {
+			head.previous = timer;
+		}
+		buckets[level][slot] = timer;
+	}
+
+	private void unlink(Timer<K, V> timer) {
+		if (timer.previous != null) {
+			timer.previous.next = timer.next;
+		} else {
+			buckets[timer.level][timer.slot] = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.previous = timer.previous;
+		}
+		timer.previous = null;
+		timer.next = null;
+	}
+
+	private static long ceilDiv(long dividend, long divisor) {
+		return -Math.floorDiv(-dividend, divisor);
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.claimit.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.cloud.vision.v1.ColorInfo;
+import com.google.cloud.vision.v1.DominantColorsAnnotation;
+
+/**
+ * Compact visual feature vector of an item photo, used to find items that look
+ * alike. The vector holds a 4x4x4 RGB colour histogram, blended with the Vision
+ * dominant colours when they are known, followed by an 8-bin histogram of edge
+ * orientations that captures the rough shape and texture. Vectors are unit
+ * length, so the cosine similarity of two photos is the dot product.
+ */
+public class ImageFeatures {
+
+	private static final int LEVELS = 4;
+
+	private static final int COLOR_BINS = LEVELS * LEVELS * LEVELS;
+
+	private static final int EDGE_BINS = 8;
+
+	public static final int DIMENSIONS = COLOR_BINS + EDGE_BINS;
+
+	private static final int DECODE_SIZE = 128;
+
+	private static final float COLOR_WEIGHT = 1.0f;
+
+	private static final float EDGE_WEIGHT = 0.6f;
+
+	/** Gradients weaker than this are noise rather than edges. */
+	private static final double EDGE_THRESHOLD = 32;
+
+	private ImageFeatures() {
+	}
+
+	/**
+	 * Decodes an image and computes its feature vector.
+	 *
+	 * @param in             the encoded image.
+	 * @param dominantColors the Vision dominant colours of the image, or null.
+	 * @return the feature vector, or null if the image cannot be decoded.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public static float[] extract(InputStream in, DominantColorsAnnotation dominantColors) throws IOException {
+		BufferedImage image = ImageUtils.decodeSubsampled(in, DECODE_SIZE);
+		return image == null ? null : extract(image, dominantColors);
+	}
+
+	/**
+	 * Computes the feature vector of a decoded image.
+	 *
+	 * @param image          the image.
+	 * @param dominantColors the Vision dominant colours of the image, or null.
+	 * @return the feature vector.
+	 */
+	public static float[] extract(BufferedImage image, DominantColorsAnnotation dominantColors) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+
+		float[] colors = new float[COLOR_BINS];
+		for (int pixel : rgb) {
+			colors[colorBin((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF)]++;
+		}
+		normalizeL1(colors);
+
+		if (dominantColors != null && dominantColors.getColorsCount() > 0) {
+			float[] vision = new float[COLOR_BINS];
+			for (ColorInfo color : dominantColors.getColorsList()) {
+				float weight = color.getPixelFraction() > 0 ? color.getPixelFraction() : color.getScore();
+				vision[colorBin((int) color.getColor().getRed(), (int) color.getColor().getGreen(),
+						(int) color.getColor().getBlue())] += weight;
+			}
+			normalizeL1(vision);
+			for (int i = 0; i < COLOR_BINS; i++) {
+				colors[i] = 0.5f * colors[i] + 0.5f * vision[i];
+			}
+		}
+		// Square root of the histogram turns the dot product into the Hellinger
+		// similarity, which is less dominated by one large background colour.
+		for (int i = 0; i < COLOR_BINS; i++) {
+			colors[i] = (float) Math.sqrt(colors[i]);
+		}
+		normalizeL2(colors);
+
+		float[] edges = edgeHistogram(rgb, width, height);
+		normalizeL2(edges);
+
+		float[] vector = new float[DIMENSIONS];
+		for (int i = 0; i < COLOR_BINS; i++) {
+			vector[i] = COLOR_WEIGHT * colors[i];
+		}
+		for (int i = 0; i < EDGE_BINS; i++) {
+			vector[COLOR_BINS + i] = EDGE_WEIGHT * edges[i];
+		}
+		normalizeL2(vector);
+		return vector;
+	}
+
+	private static int colorBin(int r, int g, int b) {
+		int level = 256 / LEVELS;
+		int ri = Math.min(LEVELS - 1, Math.max(0, r / level));
+		int gi = Math.min(LEVELS - 1, Math.max(0, g / level));
+		int bi = Math.min(LEVELS - 1, Math.max(0, b / level));
+		return (ri * LEVELS + gi) * LEVELS + bi;
+	}
+
+	/**
+	 * Histogram of Sobel gradient orientations weighted by magnitude. Orientation
+	 * is taken modulo 180 degrees, so dark-to-light and light-to-dark edges count
+	 * the same.
+	 */
+	private static float[] edgeHistogram(int[] rgb, int width, int height) {
+		float[] histogram = new float[EDGE_BINS];
+		if (width < 3 || height < 3) {
+			return histogram;
+		}
+		float[] gray = new float[rgb.length];
+		for (int i = 0; i < rgb.length; i++) {
+			int pixel = rgb[i];
+			gray[i] = 0.299f * ((pixel >> 16) & 0xFF) + 0.587f * ((pixel >> 8) & 0xFF) + 0.114f * (pixel & 0xFF);
+		}
+		for (int y = 1; y < height - 1; y++) {
+			for (int x = 1; x < width - 1; x++) {
+				int i = y * width + x;
+				float gx = gray[i - width + 1] + 2 * gray[i + 1] + gray[i + width + 1] - gray[i - width - 1]
+						- 2 * gray[i - 1] - gray[i + width - 1];
+				float gy = gray[i + width - 1] + 2 * gray[i + width] + gray[i + width + 1] - gray[i - width - 1]
+						- 2 * gray[i - width] - gray[i - width + 1];
+				double magnitude = Math.sqrt(gx * gx + gy * gy);
+				if (magnitude < EDGE_THRESHOLD) {
+					continue;
+				}
+				double angle = Math.atan2(gy, gx);
+				if (angle < 0) {
+					angle += Math.PI;
+				}
+				int bin = Math.min(EDGE_BINS - 1, (int) (angle / Math.PI * EDGE_BINS));
+				histogram[bin] += (float) magnitude;
+			}
+		}
+		return histogram;
+	}
+
+	private static void normalizeL1(float[] values) {
+		float sum = 0;
+		for (float value : values) {
+			sum += value;
+		}
+		if (sum > 0) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] /= sum;
+			}
+		}
+	}
+
+	private static void normalizeL2(float[] values) {
+		double sum = 0;
+		for (float value : values) {
+			sum += value * value;
+		}
+		if (sum > 0) {
+			float norm = (float) Math.sqrt(sum);
+			for (int i = 0; i < values.length; i++) {
+				values[i] /= norm;
+			}
+		}
+	}
+
+	/**
+	 * Returns the dot product of two vectors, which is their cosine similarity
+	 * since both are unit length.
+	 */
+	public static float similarity(float[] vector1, float[] vector2) {
+		float dot = 0;
+		for (int i = 0; i < vector1.length; i++) {
+			dot += vector1[i] * vector2[i];
+		}
+		return dot;
+	}
+}
@@ -0,0 +1,109 @@
+package com.claimit.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+public class ImageUtils {
+
+	/** Content type of anything that is not a recognised raster image. */
+	public static final String OCTET_STREAM = "application/octet-stream";
+
+	/** Number of leading bytes needed by {@link #detectContentType(byte[])}. */
+	public static final int HEADER_LENGTH = 12;
+
+	/**
+	 * Raster types that are safe to serve back with their own content type: none
+	 * of them can carry script, unlike HTML or SVG.
+	 */
+	private static final Set<String> RASTER_TYPES = Set.of("image/jpeg", "image/png", "image/gif", "image/webp");
+
+	private ImageUtils() {
+	}
+
+	/**
+	 * Detects the type of an image from its leading bytes, ignoring whatever type
+	 * the client declared.
+	 *
+	 * @param header the first {@value #HEADER_LENGTH} bytes of the image, or all
+	 *               of them if it is shorter.
+	 * @return one of the raster types, or {@value #OCTET_STREAM} if the bytes are
+	 *         not a JPEG, PNG, GIF or WebP image.
+	 */
+	public static String detectContentType(byte[] header) {
+		if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+			return "image/jpeg";
+		}
+		if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+			return "image/png";
+		}
+		if (startsWith(header, 0, 'G', 'I', 'F', '8') && (startsWith(header, 4, '7', 'a')
+				|| startsWith(header, 4, '9', 'a'))) {
+			return "image/gif";
+		}
+		if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+			return "image/webp";
+		}
+		return OCTET_STREAM;
+	}
+
+	/**
+	 * Returns whether a stored content type is one of the raster types that may
+	 * be served as is.
+	 */
+	public static boolean isRasterType(String contentType) {
+		return contentType != null && RASTER_TYPES.contains(contentType);
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, int... expected) {
+		if (bytes.length < offset + expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if ((bytes[offset + i] & 0xFF) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes an image, subsampling while reading so the longest side is not much
+	 * larger than targetSize. This keeps memory and time low for large photos when
+	 * only a small version is needed.
+	 *
+	 * @param in         the encoded image.
+	 * @param targetSize the smallest acceptable length of the longest side.
+	 * @return the decoded image, or null if the format is not supported.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public static BufferedImage decodeSubsampled(InputStream in, int targetSize) throws IOException {
+		try (ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+			if (imageInput == null) {
+				return null;
+			}
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(imageInput, true, true);
+				int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+				int subsampling = Math.max(1, longestSide / targetSize);
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.claimit.utils;
+
+/**
+ * Automaton that accepts the words within a maximum edit distance of a query
+ * word. A state is the row of the edit distance table after reading some
+ * characters of a candidate word, so it can be stepped one character at a time
+ * while walking a sorted term dictionary. Once no entry of the state is within
+ * the distance, no word with the characters read so far can match and the walk
+ * skips every term that shares that prefix.
+ */
+public class LevenshteinAutomaton {
+
+	private final char[] word;
+
+	private final int maxEdits;
+
+	public LevenshteinAutomaton(String word, int maxEdits) {
+		this.word = word.toCharArray();
+		this.maxEdits = maxEdits;
+	}
+
+	/**
+	 * Returns the state before any character has been read.
+	 */
+	public int[] start() {
+		int[] state = new int[word.length + 1];
+		for (int i = 0; i < state.length; i++) {
+			state[i] = i;
+		}
+		return state;
+	}
+
+	/**
+	 * Returns the state after reading one more character.
+	 *
+	 * @param state the current state.
+	 * @param c     the character read.
+	 * @return the next state.
+	 */
+	public int[] step(int[] state, char c) {
+		int[] next = new int[state.length];
+		next[0] = state[0] + 1;
+		for (int i = 1; i < state.length; i++) {
+			int substitution = state[i - 1] + (word[i - 1] == c ? 0 : 1);
+			next[i] = Math.min(substitution, Math.min(state[i] + 1, next[i - 1] + 1));
+		}
+		return next;
+	}
+
+	/**
+	 * Returns whether the characters read so far are within the distance of the
+	 * query word.
+	 */
+	public boolean isMatch(int[] state) {
+		return state[state.length - 1] <= maxEdits;
+	}
+
+	/**
+	 * Returns the edit distance of the characters read so far to the query word.
+	 */
+	public int distance(int[] state) {
+		return state[state.length - 1];
+	}
+
+	/**
+	 * Returns whether some continuation of the characters read so far can still
+	 * match.
+	 */
+	public boolean canMatch(int[] state) {
+		for (int distance : state) {
+			if (distance <= maxEdits) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getMaxEdits() {
+		return maxEdits;
+	}
+}
@@ -0,0 +1,90 @@
+package com.claimit.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Difference hash (dHash) of images. The image is reduced to a 9x8 grid of
+ * average luminance and each bit records whether a cell is brighter than its
+ * right neighbour. Resized, recompressed or slightly edited copies of a photo
+ * differ in only a few bits, so similarity is the Hamming distance of the
+ * hashes.
+ */
+public class PerceptualHash {
+
+	private static final int GRID_WIDTH = 9;
+
+	private static final int GRID_HEIGHT = 8;
+
+	/** Images are subsampled while decoding to about this many pixels per side. */
+	private static final int DECODE_SIZE = 256;
+
+	/** Upper bound of pixels sampled per grid cell and axis. */
+	private static final int SAMPLES_PER_CELL = 16;
+
+	private PerceptualHash() {
+	}
+
+	/**
+	 * Decodes an image and computes its dHash.
+	 *
+	 * @param in the encoded image.
+	 * @return the 64-bit hash, or null if the image cannot be decoded.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public static Long dHash(InputStream in) throws IOException {
+		BufferedImage image = ImageUtils.decodeSubsampled(in, DECODE_SIZE);
+		return image == null ? null : dHash(image);
+	}
+
+	/**
+	 * Computes the dHash of a decoded image.
+	 *
+	 * @param image the image.
+	 * @return the 64-bit hash.
+	 */
+	public static long dHash(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		double[][] cells = new double[GRID_HEIGHT][GRID_WIDTH];
+		for (int row = 0; row < GRID_HEIGHT; row++) {
+			int y0 = row * height / GRID_HEIGHT;
+			int y1 = Math.max(y0 + 1, (row + 1) * height / GRID_HEIGHT);
+			int stepY = Math.max(1, (y1 - y0) / SAMPLES_PER_CELL);
+			for (int col = 0; col < GRID_WIDTH; col++) {
+				int x0 = col * width / GRID_WIDTH;
+				int x1 = Math.max(x0 + 1, (col + 1) * width / GRID_WIDTH);
+				int stepX = Math.max(1, (x1 - x0) / SAMPLES_PER_CELL);
+				double sum = 0;
+				int samples = 0;
+				for (int y = y0; y < y1 && y < height; y += stepY) {
+					for (int x = x0; x < x1 && x < width; x += stepX) {
+						int rgb = image.getRGB(x, y);
+						sum += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+						samples++;
+					}
+				}
+				cells[row][col] = samples == 0 ? 0 : sum / samples;
+			}
+		}
+
+		long hash = 0;
+		for (int row = 0; row < GRID_HEIGHT; row++) {
+			for (int col = 0; col < GRID_WIDTH - 1; col++) {
+				hash <<= 1;
+				if (cells[row][col] > cells[row][col + 1]) {
+					hash |= 1;
+				}
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the number of differing bits of two hashes.
+	 */
+	public static int distance(long hash1, long hash2) {
+		return Long.bitCount(hash1 ^ hash2);
+	}
+}
@@ -0,0 +1,151 @@
+package com.claimit.repo;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.claimit.dto.ItemStatus;
+
+/**
+ * Checks against an embedded H2 schema generated from the entities that the
+ * date range predicates of the item queries are served by the indexes declared
+ * on {@code Items}. The repository queries are explained from the SQL Hibernate
+ * generates for them, captured by a statement inspector, so a query rewritten
+ * back to functions on the date columns fails here.
+ */
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.auto_quote_keyword=true",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.claimit.repo.ItemsIndexUsageTest$SqlCapture" })
+class ItemsIndexUsageTest {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private ItemsRepo itemsRepo;
+
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Records the SQL of every statement Hibernate prepares.
+	 */
+	public static class SqlCapture implements StatementInspector {
+
+		private static final List<String> STATEMENTS = new ArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			synchronized (STATEMENTS) {
+				STATEMENTS.add(sql);
+			}
+			return sql;
+		}
+
+		static void clear() {
+			synchronized (STATEMENTS) {
+				STATEMENTS.clear();
+			}
+		}
+
+		/** Returns the first captured statement that reads the items table. */
+		static String firstItemsQuery() {
+			synchronized (STATEMENTS) {
+				for (String sql : STATEMENTS) {
+					String lowerCase = sql.toLowerCase(Locale.ROOT);
+					if (lowerCase.startsWith("select") && lowerCase.matches("(?s).*\\bfrom\\s+\"?items\"?\\s.*")) {
+						return sql;
+					}
+				}
+				return null;
+			}
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		SqlCapture.clear();
+	}
+
+	@Test
+	void findByStatusAndExpiringBetweenUsesStatusExpirationIndex() {
+		itemsRepo.findByStatusAndExpiringBetween(ItemStatus.UNCLAIMED, new Date(0), new Date());
+		String plan = explainGenerated();
+		assertTrue(plan.contains("IDX_ITEMS_STATUS_EXPIRATION"), plan);
+	}
+
+	@Test
+	void findItemsReceivedBetweenUsesReceivedIndex() {
+		itemsRepo.findItemsReceivedBetween(new Date(0), new Date(), null, PageRequest.of(0, 10));
+		String plan = explainGenerated();
+		assertTrue(plan.contains("IDX_ITEMS_RECEIVED"), plan);
+	}
+
+	@Test
+	void receivedItemsOfAStatusUseStatusReceivedIndex() {
+		assertUsesIndex("IDX_ITEMS_STATUS_RECEIVED", "SELECT item_id FROM items WHERE status = 'ARCHIVED' "
+				+ "AND received_date >= TIMESTAMP '2025-01-01 00:00:00' AND received_date < TIMESTAMP '2025-01-02 00:00:00'");
+	}
+
+	@Test
+	void receivedItemsOfACategoryUseCategoryReceivedIndex() {
+		assertUsesIndex("IDX_ITEMS_CATEGORY_RECEIVED", "SELECT item_id FROM items WHERE category_id = 3 "
+				+ "AND received_date >= TIMESTAMP '2025-01-01 00:00:00' AND received_date < TIMESTAMP '2025-02-01 00:00:00'");
+	}
+
+	@Test
+	void itemsOfAnOrganisationUseOrgStatusIndex() {
+		assertUsesIndex("IDX_ITEMS_ORG_STATUS",
+				"SELECT item_id FROM items WHERE org_id = 'ORG1' AND status = 'UNCLAIMED'");
+	}
+
+	@Test
+	void monthFunctionOnReceivedDateScansTheTable() {
+		String plan = explain("SELECT item_id FROM items WHERE MONTH(received_date) = 1 AND YEAR(received_date) = 2025");
+		assertTrue(plan.contains("TABLESCAN"), plan);
+	}
+
+	private void assertUsesIndex(String index, String sql) {
+		String plan = explain(sql);
+		assertTrue(plan.contains(index), plan);
+	}
+
+	private String explain(String sql) {
+		return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class)).toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * Explains the captured items query. The plan is chosen when the statement is
+	 * prepared, so every parameter is bound to null only to let it run.
+	 */
+	private String explainGenerated() {
+		String sql = SqlCapture.firstItemsQuery();
+		assertNotNull(sql, "no items query was captured");
+		List<String> plan = jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+			int parameters = statement.getParameterMetaData().getParameterCount();
+			for (int i = 1; i <= parameters; i++) {
+				statement.setNull(i, Types.NULL);
+			}
+			return statement;
+		}, (rs, rowNum) -> rs.getString(1));
+		return String.join("\n", plan).toUpperCase(Locale.ROOT);
+	}
+
+}
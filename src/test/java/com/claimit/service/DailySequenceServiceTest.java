@@ -0,0 +1,142 @@
+package com.claimit.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.claimit.repo.DailySequenceRepo;
+import com.claimit.repo.ItemsRepo;
+
+/**
+ * Tests of the block reservation of {@link DailySequenceService} against an
+ * embedded H2 database. Every test creates its own services, standing for
+ * application instances that share the {@code daily_sequence} table, so no
+ * block is carried over from another test. The test methods are not
+ * transactional because each reservation commits in a transaction of its own.
+ */
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.auto_quote_keyword=true" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DailySequenceServiceTest {
+
+	private static final int BLOCK_SIZE = 5;
+
+	private static final String TODAY = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+
+	@Autowired
+	private DailySequenceRepo dailySequenceRepo;
+
+	@Autowired
+	private ItemsRepo itemsRepo;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM daily_sequence");
+		jdbcTemplate.update("DELETE FROM items");
+	}
+
+	@Test
+	void numbersAreConsecutiveAcrossBlocks() {
+		DailySequenceService service = newService();
+
+		for (int n = 1; n <= 12; n++) {
+			assertEquals(TODAY + "-" + n, service.nextUniqueId());
+		}
+		// three blocks of five were reserved
+		assertEquals(16, nextValue());
+	}
+
+	@Test
+	void firstBlockOfTheDayContinuesAfterExistingIds() {
+		jdbcTemplate.update("INSERT INTO items (item_name, unique_id, subcatgeory_id, category_id, image_size) "
+				+ "VALUES ('Wallet', ?, 0, 0, 0), ('Phone', ?, 0, 0, 0)", TODAY + "-9", TODAY + "-41");
+
+		assertEquals(TODAY + "-42", newService().nextUniqueId());
+		assertEquals(42 + BLOCK_SIZE, nextValue());
+	}
+
+	@Test
+	void instancesTakeDisjointBlocks() {
+		DailySequenceService first = newService();
+		DailySequenceService second = newService();
+
+		assertEquals(TODAY + "-1", first.nextUniqueId());
+		assertEquals(TODAY + "-6", second.nextUniqueId());
+		assertEquals(TODAY + "-2", first.nextUniqueId());
+		assertEquals(TODAY + "-7", second.nextUniqueId());
+	}
+
+	@Test
+	void concurrentCallersOnTwoInstancesGetUniqueIds() throws Exception {
+		List<DailySequenceService> services = List.of(newService(), newService());
+		Set<String> ids = ConcurrentHashMap.newKeySet();
+		int threads = 8;
+		int idsPerThread = 50;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				DailySequenceService service = services.get(t % services.size());
+				futures.add(pool.submit(() -> {
+					for (int i = 0; i < idsPerThread; i++) {
+						assertTrue(ids.add(service.nextUniqueId()), "duplicate ID");
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		assertEquals(threads * idsPerThread, ids.size());
+		long reserved = nextValue() - 1;
+		for (String id : ids) {
+			long number = Long.parseLong(id.substring(TODAY.length() + 1));
+			assertTrue(number >= 1 && number <= reserved, id);
+		}
+		// each instance leaves at most part of one block unused
+		assertTrue(reserved < threads * idsPerThread + services.size() * BLOCK_SIZE, "reserved " + reserved);
+	}
+
+	private DailySequenceService newService() {
+		DailySequenceService service = new DailySequenceService();
+		ReflectionTestUtils.setField(service, "dailySequenceRepo", dailySequenceRepo);
+		ReflectionTestUtils.setField(service, "itemsRepository", itemsRepo);
+		ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+		ReflectionTestUtils.setField(service, "blockSize", BLOCK_SIZE);
+		service.init();
+		return service;
+	}
+
+	private long nextValue() {
+		return dailySequenceRepo.findById(TODAY).orElseThrow().getNextValue();
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.claimit.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.claimit.entity.EmailOutbox;
+import com.claimit.repo.EmailOutboxRepo;
+
+/**
+ * Runs emails through the outbox and {@link EmailOutboxDispatcher} against an
+ * embedded H2 schema, with {@link MailSinkDelivery} standing in for the mail
+ * server. The test methods are not transactional because the dispatcher sends
+ * from its own threads and only sees committed rows. Polling is pushed out of
+ * the way so the tests call {@link EmailOutboxDispatcher#dispatch()} directly.
+ */
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.auto_quote_keyword=true", "claimit.mail.mode=sink",
+		"claimit.mail.outbox.poll-interval-ms=3600000", "claimit.mail.outbox.retry-backoff-ms=60000",
+		"claimit.mail.outbox.max-attempts=3" })
+@Import({ EmailService.class, ExpiryNotificationJob.class, EmailOutboxDispatcher.class, MailSinkDelivery.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailOutboxDispatcherTest {
+
+	private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+	@Autowired
+	private EmailService emailService;
+
+	@Autowired
+	private ExpiryNotificationJob expiryNotificationJob;
+
+	@Autowired
+	private EmailOutboxDispatcher dispatcher;
+
+	@Autowired
+	private MailSinkDelivery mailSink;
+
+	@Autowired
+	private EmailOutboxRepo emailOutboxRepo;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void tearDown() {
+		ReflectionTestUtils.setField(dispatcher, "mailDelivery", mailSink);
+		mailSink.clear();
+		jdbcTemplate.update("DELETE FROM email_outbox");
+		jdbcTemplate.update("DELETE FROM item_expiry_notice");
+		jdbcTemplate.update("DELETE FROM items");
+		jdbcTemplate.update("DELETE FROM \"user\"");
+	}
+
+	@Test
+	void expiryNoticeIsDeliveredByDispatcher() {
+		int itemId = insertUnclaimedItem("owner@example.com", "Blue umbrella",
+				System.currentTimeMillis() + 10 * DAY_MILLIS - 60_000);
+
+		assertTrue(expiryNotificationJob.sendNotice(itemId, 10));
+		assertEquals(1, dispatcher.dispatch());
+
+		List<EmailOutbox> delivered = mailSink.getDelivered();
+		assertEquals(1, delivered.size());
+		assertEquals("owner@example.com", delivered.get(0).getRecipient());
+		assertEquals("Item Expiration Notification", delivered.get(0).getSubject());
+		assertTrue(delivered.get(0).getBody().contains("Blue umbrella"));
+		assertTrue(delivered.get(0).getBody().contains("in 10 days"));
+		EmailOutbox sent = emailOutboxRepo.findAll().get(0);
+		assertNotNull(sent.getSentAt());
+		assertEquals(1, sent.getAttempts());
+
+		// the notice is recorded, so it is not queued again
+		assertFalse(expiryNotificationJob.sendNotice(itemId, 10));
+		assertEquals(0, dispatcher.dispatch());
+		assertEquals(1, mailSink.getDelivered().size());
+	}
+
+	@Test
+	void failedEmailIsRetriedAfterBackoff() {
+		ReflectionTestUtils.setField(dispatcher, "mailDelivery", (MailDelivery) emails -> {
+			Map<Long, String> failures = new HashMap<>();
+			emails.forEach(email -> failures.put(email.getId(), "Connection refused"));
+			return failures;
+		});
+		emailService.sendEmail("owner@example.com", "Subject", "<p>Body</p>");
+
+		long before = System.currentTimeMillis();
+		assertEquals(1, dispatcher.dispatch());
+		long after = System.currentTimeMillis();
+
+		EmailOutbox failed = emailOutboxRepo.findAll().get(0);
+		assertNull(failed.getSentAt());
+		assertEquals(1, failed.getAttempts());
+		assertEquals("Connection refused", failed.getLastError());
+		long nextAttempt = failed.getNextAttemptAt().getTime();
+		assertTrue(nextAttempt >= before + 60_000 && nextAttempt <= after + 60_000,
+				"next attempt not one backoff ahead: " + nextAttempt);
+
+		// not due again until the backoff has passed
+		assertEquals(0, dispatcher.dispatch());
+
+		ReflectionTestUtils.setField(dispatcher, "mailDelivery", mailSink);
+		makeDue(failed.getId());
+		assertEquals(1, dispatcher.dispatch());
+
+		EmailOutbox sent = emailOutboxRepo.findById(failed.getId()).orElseThrow();
+		assertNotNull(sent.getSentAt());
+		assertEquals(2, sent.getAttempts());
+		assertNull(sent.getLastError());
+		assertEquals(1, mailSink.getDelivered().size());
+	}
+
+	@Test
+	void backoffDoublesAndEmailIsGivenUpAfterMaxAttempts() {
+		ReflectionTestUtils.setField(dispatcher, "mailDelivery", (MailDelivery) emails -> {
+			throw new IllegalStateException("SMTP server unavailable");
+		});
+		emailService.sendEmail("owner@example.com", "Subject", "<p>Body</p>");
+		long id = emailOutboxRepo.findAll().get(0).getId();
+
+		assertEquals(1, dispatcher.dispatch());
+		makeDue(id);
+		long before = System.currentTimeMillis();
+		assertEquals(1, dispatcher.dispatch());
+
+		EmailOutbox failed = emailOutboxRepo.findById(id).orElseThrow();
+		assertEquals(2, failed.getAttempts());
+		assertEquals("SMTP server unavailable", failed.getLastError());
+		assertTrue(failed.getNextAttemptAt().getTime() >= before + 120_000,
+				"second backoff not doubled: " + failed.getNextAttemptAt());
+
+		makeDue(id);
+		assertEquals(1, dispatcher.dispatch());
+		makeDue(id);
+		assertEquals(0, dispatcher.dispatch());
+
+		EmailOutbox givenUp = emailOutboxRepo.findById(id).orElseThrow();
+		assertEquals(3, givenUp.getAttempts());
+		assertNull(givenUp.getSentAt());
+		assertTrue(mailSink.getDelivered().isEmpty());
+	}
+
+	private void makeDue(long id) {
+		jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ? WHERE id = ?",
+				new Timestamp(System.currentTimeMillis() - 1000), id);
+	}
+
+	/**
+	 * Inserts an owner and an unclaimed item with plain SQL, so the item entity
+	 * callbacks, which need the statistics service, are not involved.
+	 */
+	private int insertUnclaimedItem(String email, String itemName, long expirationMillis) {
+		jdbcTemplate.update("INSERT INTO \"user\" (user_name, email, is_read) VALUES (?, ?, FALSE)", "Owner", email);
+		Integer userId = jdbcTemplate.queryForObject("SELECT user_id FROM \"user\" WHERE email = ?", Integer.class,
+				email);
+		jdbcTemplate.update(
+				"INSERT INTO items (item_name, status, received_date, expiration_date, subcatgeory_id, category_id, "
+						+ "image_size, user_id) VALUES (?, 'UNCLAIMED', ?, ?, 0, 0, 0, ?)",
+				itemName, new Timestamp(System.currentTimeMillis()), new Timestamp(expirationMillis), userId);
+		return jdbcTemplate.queryForObject("SELECT item_id FROM items WHERE user_id = ?", Integer.class, userId);
+	}
+
+}
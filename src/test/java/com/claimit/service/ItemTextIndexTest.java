@@ -0,0 +1,142 @@
+package com.claimit.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the matching and BM25 ranking of {@link ItemTextIndex}, on an index
+ * filled directly instead of from the items table.
+ */
+class ItemTextIndexTest {
+
+	private final ItemTextIndex index = new ItemTextIndex();
+
+	@Test
+	void nameMatchOutranksDescriptionMatch() {
+		index.index(1, "Charger", null, "left with a black wallet", null, null, 0);
+		index.index(2, "Wallet", null, "brown leather", null, null, 0);
+
+		assertEquals(List.of(2, 1), index.search("wallet", 10));
+	}
+
+	@Test
+	void rarerTermOutranksCommonTerm() {
+		for (int itemId = 1; itemId <= 10; itemId++) {
+			index.index(itemId, "Black bottle", null, null, null, null, 0);
+		}
+		index.index(11, "Passport", null, null, null, null, 0);
+
+		List<Integer> results = index.search("black passport", 20);
+
+		assertEquals(11, results.size());
+		assertEquals(11, results.get(0).intValue());
+	}
+
+	@Test
+	void itemMatchingMoreWordsRanksFirst() {
+		index.index(1, "Umbrella umbrella umbrella", null, null, null, null, 0);
+		index.index(2, "Blue umbrella", null, "blue handle", null, null, 0);
+		index.index(3, "Blue scarf", null, null, null, null, 0);
+
+		assertEquals(List.of(2, 1, 3), index.search("blue umbrella", 10));
+	}
+
+	@Test
+	void higherTermFrequencyRanksFirst() {
+		index.index(1, "Keys", null, "spare ring", null, null, 0);
+		index.index(2, "Keys", null, "keys ring", null, null, 0);
+		index.index(3, "Bottle", null, null, null, null, 0);
+
+		assertEquals(List.of(2, 1), index.search("keys", 10));
+	}
+
+	@Test
+	void exactMatchOutranksPrefixAndFuzzyMatches() {
+		index.index(1, "Bags", null, null, null, null, 0);
+		index.index(2, "Bagpack", null, null, null, null, 0);
+		index.index(3, "Bag", null, null, null, null, 0);
+		index.index(4, "Bottle", null, null, null, null, 0);
+
+		List<Integer> results = index.search("bag", 10);
+
+		assertEquals(3, results.get(0).intValue());
+		assertEquals(3, results.size());
+		assertTrue(results.containsAll(List.of(1, 2)));
+	}
+
+	@Test
+	void misspelledWordsFindFuzzyMatches() {
+		index.index(1, "Wallet", null, null, null, null, 0);
+		index.index(2, "Headphones", null, null, null, null, 0);
+		index.index(3, "Umbrella", null, null, null, null, 0);
+
+		assertEquals(List.of(1), index.search("walet", 10));
+		assertEquals(List.of(2), index.search("headphnes", 10));
+		// eight letters or more allow two edits
+		assertEquals(List.of(2), index.search("hedphnes", 10));
+		assertEquals(List.of(), index.search("wxlxt", 10));
+		// short words must match exactly or as a prefix
+		assertEquals(List.of(), index.search("umb1", 10));
+	}
+
+	@Test
+	void oneEditMatchOutranksTwoEditMatch() {
+		index.index(1, "Sunglass", null, null, null, null, 0);
+		index.index(2, "Sunglasses", null, null, null, null, 0);
+
+		assertEquals(List.of(2, 1), index.search("sunglases", 10));
+	}
+
+	@Test
+	void limitKeepsTheBestMatches() {
+		for (int itemId = 1; itemId <= 30; itemId++) {
+			StringBuilder description = new StringBuilder();
+			for (int i = 0; i < itemId; i++) {
+				description.append("card ");
+			}
+			index.index(itemId, "Item " + itemId, null, description.toString(), null, "red", 0);
+		}
+
+		List<Integer> all = index.search("red card", 100);
+		List<Integer> top = index.search("red card", 5);
+
+		assertEquals(30, all.size());
+		assertEquals(all.subList(0, 5), top);
+	}
+
+	@Test
+	void reindexAndRemoveUpdateMatches() {
+		index.index(1, "Wallet", null, null, null, null, 0);
+		index.index(2, "Phone", null, null, null, null, 0);
+
+		index.index(1, "Bottle", null, null, null, null, 0);
+		assertEquals(List.of(), index.search("wallet", 10));
+		assertEquals(List.of(1), index.search("bottle", 10));
+
+		index.remove(2);
+		assertEquals(List.of(), index.search("phone", 10));
+	}
+
+	@Test
+	void categorySearchRanksItemsOfTheCategoryOnly() {
+		index.index(1, "Black backpack", null, null, null, null, 7);
+		index.index(2, "Suitcase", null, null, null, null, 7);
+		index.index(3, "Black wallet", null, null, null, null, 4);
+		index.index(4, "Duffel", null, "black straps", null, null, 7);
+
+		// "bags" is in no item text, so items match on "black" or not at all
+		assertEquals(List.of(1, 4, 2), index.search(List.of("black", "bags"), 7, 10));
+		// the category words alone list the category, last indexed first
+		assertEquals(List.of(4, 2, 1), index.search(List.of("bags"), 7, 10));
+
+		index.index(2, "Suitcase", null, null, null, null, 4);
+		index.remove(4);
+		assertEquals(List.of(1), index.search(List.of("bags"), 7, 10));
+		assertEquals(List.of(), index.search(List.of("bags"), 9, 10));
+	}
+
+}
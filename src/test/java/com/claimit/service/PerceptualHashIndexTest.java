@@ -0,0 +1,126 @@
+package com.claimit.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link PerceptualHashIndex}. The multi-index lookup only probes
+ * buckets near each chunk of the query, so its results are compared with a
+ * scan of every hash to check that no match within the distance is missed.
+ */
+class PerceptualHashIndexTest {
+
+	private final PerceptualHashIndex index = new PerceptualHashIndex();
+
+	@Test
+	void lookupFindsExactlyTheHashesAScanFinds() {
+		Random random = new Random(42);
+		Map<Integer, Long> hashes = new HashMap<>();
+		List<Long> queries = new ArrayList<>();
+		int itemId = 0;
+		for (int q = 0; q < 50; q++) {
+			long query = random.nextLong();
+			queries.add(query);
+			// neighbours at every distance up to past the largest radius searched
+			for (int distance = 0; distance <= 20; distance++) {
+				long hash = flipBits(query, distance, random);
+				hashes.put(++itemId, hash);
+				index.add(itemId, hash);
+			}
+		}
+		for (int i = 0; i < 2000; i++) {
+			long hash = random.nextLong();
+			hashes.put(++itemId, hash);
+			index.add(itemId, hash);
+		}
+
+		for (long query : queries) {
+			for (int maxDistance = 0; maxDistance <= 16; maxDistance++) {
+				assertEquals(scan(hashes, query, maxDistance), found(query, maxDistance),
+						"distance " + maxDistance);
+			}
+		}
+	}
+
+	@Test
+	void lookupFindsMatchWithDifferencesSpreadEvenlyOverChunks() {
+		long query = 0x0123_4567_89AB_CDEFL;
+		// three bits in every 16-bit chunk: no chunk is equal to the query
+		long hash = query ^ 0x0007_0007_0007_0007L;
+		index.add(1, hash);
+
+		assertTrue(index.search(query, 11).isEmpty());
+		List<PerceptualHashIndex.Match> matches = index.search(query, 12);
+		assertEquals(1, matches.size());
+		assertEquals(1, matches.get(0).getItemId());
+		assertEquals(12, matches.get(0).getDistance());
+	}
+
+	@Test
+	void matchesAreReturnedOnceClosestFirst() {
+		long query = 0L;
+		index.add(1, 0b111L);
+		index.add(2, 0L);
+		index.add(3, 0b1L | 1L << 20);
+
+		List<PerceptualHashIndex.Match> matches = index.search(query, 8);
+
+		assertEquals(3, matches.size());
+		assertEquals(2, matches.get(0).getItemId());
+		assertEquals(3, matches.get(1).getItemId());
+		assertEquals(1, matches.get(2).getItemId());
+	}
+
+	@Test
+	void removedAndMovedItemsAreNotFoundUnderTheirOldHash() {
+		index.add(1, 0L);
+		index.add(2, 0L);
+		index.remove(1);
+		index.add(2, -1L);
+
+		assertTrue(index.search(0L, 4).isEmpty());
+		assertEquals(2, index.search(-1L, 0).get(0).getItemId());
+
+		index.add(1, 0L);
+		assertEquals(1, index.search(0L, 0).get(0).getItemId());
+	}
+
+	private Map<Integer, Integer> found(long query, int maxDistance) {
+		Map<Integer, Integer> found = new TreeMap<>();
+		for (PerceptualHashIndex.Match match : index.search(query, maxDistance)) {
+			Integer previous = found.put(match.getItemId(), match.getDistance());
+			assertNull(previous, "item " + match.getItemId() + " returned twice");
+		}
+		return found;
+	}
+
+	private static Map<Integer, Integer> scan(Map<Integer, Long> hashes, long query, int maxDistance) {
+		Map<Integer, Integer> expected = new TreeMap<>();
+		hashes.forEach((itemId, hash) -> {
+			int distance = Long.bitCount(hash ^ query);
+			if (distance <= maxDistance) {
+				expected.put(itemId, distance);
+			}
+		});
+		return expected;
+	}
+
+	private static long flipBits(long hash, int count, Random random) {
+		long flipped = hash;
+		while (Long.bitCount(flipped ^ hash) < count) {
+			flipped ^= 1L << random.nextInt(Long.SIZE);
+		}
+		return flipped;
+	}
+
+}
@@ -0,0 +1,223 @@
+package com.claimit.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.claimit.entity.EmailOutbox;
+
+/**
+ * Sends outbox emails through {@link SmtpMailDelivery} and
+ * {@link SmtpBatchSender} to an SMTP server embedded in the test. The server
+ * speaks just enough SMTP for Jakarta Mail, rejects recipients in the
+ * {@code rejected.example.com} domain and can hang up on a chosen message,
+ * which an off-the-shelf test server does not offer.
+ */
+class SmtpMailDeliveryTest {
+
+	private static final int BATCH_SIZE = 3;
+
+	private TestSmtpServer server;
+
+	private SmtpMailDelivery delivery;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = new TestSmtpServer();
+		delivery = newDelivery(server.getPort());
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		server.close();
+	}
+
+	@Test
+	void eachFullBatchIsSentOverOneConnection() {
+		List<EmailOutbox> emails = emails("a@example.com", "b@example.com", "c@example.com", "d@example.com",
+				"e@example.com", "f@example.com", "g@example.com");
+
+		Map<Long, String> failures = delivery.deliver(emails);
+
+		assertTrue(failures.isEmpty(), "unexpected failures: " + failures);
+		assertEquals(List.of("a@example.com", "b@example.com", "c@example.com", "d@example.com", "e@example.com",
+				"f@example.com", "g@example.com"), server.delivered);
+		assertEquals(3, server.connections.get());
+	}
+
+	@Test
+	void rejectedRecipientIsReportedAndBatchGoesOn() {
+		List<EmailOutbox> emails = emails("a@example.com", "nobody@rejected.example.com", "c@example.com");
+
+		Map<Long, String> failures = delivery.deliver(emails);
+
+		assertEquals(Set.of(2L), failures.keySet());
+		assertEquals(List.of("a@example.com", "c@example.com"), server.delivered);
+		// the rejection did not cost the connection
+		assertEquals(1, server.connections.get());
+	}
+
+	@Test
+	void droppedConnectionIsReopenedAndMessageRetried() {
+		server.dropOnMail = 2;
+		List<EmailOutbox> emails = emails("a@example.com", "b@example.com", "c@example.com");
+
+		Map<Long, String> failures = delivery.deliver(emails);
+
+		assertTrue(failures.isEmpty(), "unexpected failures: " + failures);
+		assertEquals(List.of("a@example.com", "b@example.com", "c@example.com"), server.delivered);
+		assertEquals(2, server.connections.get());
+	}
+
+	@Test
+	void unreachableServerFailsWholeBatch() throws IOException {
+		int port = server.getPort();
+		server.close();
+		List<EmailOutbox> emails = emails("a@example.com", "b@example.com");
+
+		Map<Long, String> failures = newDelivery(port).deliver(emails);
+
+		assertEquals(Set.of(1L, 2L), failures.keySet());
+	}
+
+	private static SmtpMailDelivery newDelivery(int port) {
+		JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+		mailSender.setHost("127.0.0.1");
+		mailSender.setPort(port);
+		mailSender.getJavaMailProperties().setProperty("mail.smtp.connectiontimeout", "5000");
+		mailSender.getJavaMailProperties().setProperty("mail.smtp.timeout", "5000");
+
+		SmtpBatchSender batchSender = new SmtpBatchSender();
+		ReflectionTestUtils.setField(batchSender, "mailSender", mailSender);
+		ReflectionTestUtils.setField(batchSender, "batchSize", BATCH_SIZE);
+		SmtpMailDelivery smtpMailDelivery = new SmtpMailDelivery();
+		ReflectionTestUtils.setField(smtpMailDelivery, "smtpBatchSender", batchSender);
+		return smtpMailDelivery;
+	}
+
+	/** Outbox rows to the given recipients, with IDs counting from 1. */
+	private static List<EmailOutbox> emails(String... recipients) {
+		List<EmailOutbox> emails = new ArrayList<>();
+		for (String recipient : recipients) {
+			EmailOutbox email = new EmailOutbox(recipient, "Subject", "<p>Body</p>");
+			email.setId(emails.size() + 1);
+			emails.add(email);
+		}
+		return emails;
+	}
+
+	/**
+	 * Single threaded SMTP server on a loopback port, serving one connection at a
+	 * time like the batch sender uses them.
+	 */
+	private static final class TestSmtpServer implements Closeable {
+
+		private final ServerSocket serverSocket;
+
+		/** Recipients of the messages accepted, in order. */
+		private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+		private final AtomicInteger connections = new AtomicInteger();
+
+		private final AtomicInteger mailCommands = new AtomicInteger();
+
+		/** The MAIL command, counted from 1, on which the server hangs up. */
+		private volatile int dropOnMail;
+
+		private TestSmtpServer() throws IOException {
+			serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			Thread thread = new Thread(this::serve, "test-smtp-server");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private int getPort() {
+			return serverSocket.getLocalPort();
+		}
+
+		private void serve() {
+			while (!serverSocket.isClosed()) {
+				try (Socket socket = serverSocket.accept()) {
+					connections.incrementAndGet();
+					session(socket);
+				} catch (IOException e) {
+					// closed by the test, or the client went away
+				}
+			}
+		}
+
+		private void session(Socket socket) throws IOException {
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+			List<String> recipients = new ArrayList<>();
+			reply(out, "220 localhost ESMTP");
+			String line;
+			while ((line = in.readLine()) != null) {
+				String command = line.toUpperCase(Locale.ROOT);
+				if (command.startsWith("MAIL FROM:")) {
+					if (mailCommands.incrementAndGet() == dropOnMail) {
+						return;
+					}
+					recipients.clear();
+					reply(out, "250 OK");
+				} else if (command.startsWith("RCPT TO:")) {
+					String recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+					if (recipient.endsWith("@rejected.example.com")) {
+						reply(out, "550 5.1.1 No such user");
+					} else {
+						recipients.add(recipient);
+						reply(out, "250 OK");
+					}
+				} else if (command.equals("DATA")) {
+					reply(out, "354 End data with <CR><LF>.<CR><LF>");
+					while ((line = in.readLine()) != null && !line.equals(".")) {
+						// the message content is not checked
+					}
+					delivered.addAll(recipients);
+					reply(out, "250 OK");
+				} else if (command.equals("QUIT")) {
+					reply(out, "221 Bye");
+					return;
+				} else {
+					// EHLO, HELO, RSET and NOOP
+					reply(out, "250 localhost");
+				}
+			}
+		}
+
+		private static void reply(Writer out, String reply) throws IOException {
+			out.write(reply + "\r\n");
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			serverSocket.close();
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.claimit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link HierarchicalTimingWheel}. The wheel under test uses one
+ * millisecond ticks and starts off a level boundary, as the wheel of the
+ * expiry scheduler does, so timers are cascaded between levels part way
+ * through their span.
+ */
+class HierarchicalTimingWheelTest {
+
+	private static final long START = 1000;
+
+	private final HierarchicalTimingWheel<String, Long> wheel = new HierarchicalTimingWheel<>(1, START);
+
+	private final List<String> fired = new ArrayList<>();
+
+	private final List<Long> firedAt = new ArrayList<>();
+
+	private void advance(long now) {
+		wheel.advance(now, (key, deadline) -> {
+			fired.add(key);
+			firedAt.add(now);
+		});
+	}
+
+	/** Advances one tick at a time, so every timer is seen firing on its tick. */
+	private void advanceTickByTick(long from, long to) {
+		for (long now = from; now <= to; now++) {
+			advance(now);
+		}
+	}
+
+	@Test
+	void timerOneLevelZeroSpanAheadFiresOnItsTick() {
+		assertFiresExactlyAt(START + 64);
+	}
+
+	@Test
+	void timerOneLevelOneSpanAheadFiresOnItsTick() {
+		assertFiresExactlyAt(START + 4096);
+	}
+
+	@Test
+	void timerOnAlignedLevelBoundaryFiresOnItsTick() {
+		assertFiresExactlyAt(8192);
+		assertFiresExactlyAt(8192 + 64 * 64 * 64);
+	}
+
+	private void assertFiresExactlyAt(long deadline) {
+		fired.clear();
+		wheel.schedule("a", deadline, deadline);
+		advance(deadline - 1);
+		assertTrue(fired.isEmpty(), "fired before " + deadline);
+		advance(deadline);
+		assertEquals(List.of("a"), fired);
+		assertFalse(wheel.contains("a"));
+	}
+
+	@Test
+	void timersFireStepByStepAcrossLevelBoundaries() {
+		long[] deadlines = { START + 63, START + 64, START + 65, START + 4095, START + 4096, START + 4097 };
+		for (long deadline : deadlines) {
+			wheel.schedule("t" + deadline, deadline, deadline);
+		}
+		advanceTickByTick(START + 1, START + 4100);
+		assertEquals(deadlines.length, firedAt.size());
+		for (int i = 0; i < deadlines.length; i++) {
+			assertEquals("t" + deadlines[i], fired.get(i));
+			assertEquals(deadlines[i], firedAt.get(i).longValue());
+		}
+	}
+
+	@Test
+	void timersOnDifferentLevelsFireInDeadlineOrder() {
+		wheel.schedule("level2", START + 5000, 0L);
+		wheel.schedule("level0", START + 3, 0L);
+		wheel.schedule("level1-late", START + 200, 0L);
+		wheel.schedule("level3", START + 300_000, 0L);
+		wheel.schedule("level1-early", START + 70, 0L);
+
+		advance(START + 400_000);
+
+		assertEquals(List.of("level0", "level1-early", "level1-late", "level2", "level3"), fired);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void cancelAfterCascadeRemovesTimer() {
+		wheel.schedule("a", START + 5000, 0L);
+		wheel.schedule("b", START + 5000, 0L);
+		// far enough for both timers to have been moved down to level 0
+		advance(START + 4990);
+		assertTrue(fired.isEmpty());
+
+		assertTrue(wheel.cancel("a"));
+		assertFalse(wheel.cancel("a"));
+		advance(START + 6000);
+
+		assertEquals(List.of("b"), fired);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void rescheduleReplacesCascadedTimer() {
+		wheel.schedule("a", START + 5000, 0L);
+		advance(START + 4990);
+		wheel.schedule("a", START + 4995, 0L);
+
+		advanceTickByTick(START + 4991, START + 6000);
+
+		assertEquals(List.of("a"), fired);
+		assertEquals(List.of(START + 4995), firedAt);
+	}
+
+	@Test
+	void timerRescheduledFromItsCallbackFiresAgain() {
+		List<Long> ticks = new ArrayList<>();
+		wheel.schedule("a", START + 5, 3L);
+		for (long now = START + 1; now <= START + 5000; now++) {
+			long tick = now;
+			wheel.advance(now, (key, remaining) -> {
+				ticks.add(tick);
+				if (remaining > 0) {
+					wheel.schedule(key, tick + 100 * remaining, remaining - 1);
+				}
+			});
+		}
+
+		assertEquals(List.of(START + 5, START + 305, START + 505, START + 605), ticks);
+		assertFalse(wheel.contains("a"));
+	}
+
+	@Test
+	void deadlineInThePastFiresOnNextTick() {
+		wheel.schedule("past", START - 10_000, 0L);
+		wheel.schedule("now", START, 0L);
+		assertEquals(2, wheel.size());
+
+		advance(START);
+		assertTrue(fired.isEmpty());
+		advance(START + 1);
+
+		assertEquals(2, fired.size());
+		assertTrue(fired.containsAll(List.of("past", "now")));
+	}
+
+	@Test
+	void advanceWithCoarseTicksFiresTimersDueWithinTheTick() {
+		HierarchicalTimingWheel<String, Long> seconds = new HierarchicalTimingWheel<>(1000, 1_000_000);
+		seconds.schedule("a", 1_001_500, 0L);
+		List<String> due = new ArrayList<>();
+
+		seconds.advance(1_001_999, (key, value) -> due.add(key));
+		assertTrue(due.isEmpty());
+		seconds.advance(1_002_000, (key, value) -> due.add(key));
+
+		assertEquals(List.of("a"), due);
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.claimit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link LevenshteinAutomaton} against a plain edit distance table.
+ */
+class LevenshteinAutomatonTest {
+
+	private static final String[] WORDS = { "", "a", "bag", "bags", "gab", "wallet", "walet", "wallets", "wlalet",
+			"mallet", "umbrella", "umbrela", "headphones", "hedphnes", "phone", "charger" };
+
+	@Test
+	void distanceMatchesEditDistance() {
+		for (String query : WORDS) {
+			LevenshteinAutomaton automaton = new LevenshteinAutomaton(query, 2);
+			for (String candidate : WORDS) {
+				int[] state = run(automaton, candidate);
+				int expected = editDistance(query, candidate);
+				assertEquals(expected, automaton.distance(state), query + " -> " + candidate);
+				assertEquals(expected <= 2, automaton.isMatch(state), query + " -> " + candidate);
+			}
+		}
+	}
+
+	@Test
+	void acceptsOneEditOfEachKind() {
+		LevenshteinAutomaton automaton = new LevenshteinAutomaton("wallet", 1);
+		assertTrue(automaton.isMatch(run(automaton, "wallet")));
+		assertTrue(automaton.isMatch(run(automaton, "walet")));
+		assertTrue(automaton.isMatch(run(automaton, "walleta")));
+		assertTrue(automaton.isMatch(run(automaton, "mallet")));
+		// a transposition is two edits
+		assertFalse(automaton.isMatch(run(automaton, "wlalet")));
+	}
+
+	@Test
+	void canMatchStopsOnceNoContinuationCanMatch() {
+		LevenshteinAutomaton automaton = new LevenshteinAutomaton("wallet", 1);
+		assertTrue(automaton.canMatch(run(automaton, "w")));
+		assertTrue(automaton.canMatch(run(automaton, "x")));
+		assertTrue(automaton.canMatch(run(automaton, "wxl")));
+		assertFalse(automaton.canMatch(run(automaton, "xx")));
+		assertFalse(automaton.canMatch(run(automaton, "wxx")));
+		assertFalse(automaton.canMatch(run(automaton, "walletxx")));
+	}
+
+	@Test
+	void prefixOfAMatchMayNotMatchItself() {
+		LevenshteinAutomaton automaton = new LevenshteinAutomaton("umbrella", 1);
+		int[] state = run(automaton, "umbr");
+		assertFalse(automaton.isMatch(state));
+		assertTrue(automaton.canMatch(state));
+		assertEquals(4, automaton.distance(state));
+	}
+
+	private static int[] run(LevenshteinAutomaton automaton, String candidate) {
+		int[] state = automaton.start();
+		for (char c : candidate.toCharArray()) {
+			state = automaton.step(state, c);
+		}
+		return state;
+	}
+
+	private static int editDistance(String a, String b) {
+		int[][] table = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					table[i][j] = i + j;
+				} else {
+					int substitution = table[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+					table[i][j] = Math.min(substitution, Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+				}
+			}
+		}
+		return table[a.length()][b.length()];
+	}
+
+}